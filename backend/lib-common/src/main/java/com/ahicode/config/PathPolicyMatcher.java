@@ -0,0 +1,178 @@
+package com.ahicode.config;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+// rules are compiled into a character trie, a lookup walks the path once without allocating
+public final class PathPolicyMatcher {
+
+    private static final String PREFIX_WILDCARD = "/**";
+    // one bit per standard method from methodBit, plus one for everything else
+    private static final int OTHER_METHOD = 1 << 8;
+    private static final int ANY_METHOD = (OTHER_METHOD << 1) - 1;
+
+    private final Node root;
+
+    private PathPolicyMatcher(Node root) {
+        this.root = root;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean matches(String method, String path) {
+        if (path == null) {
+            return false;
+        }
+
+        int methodBit = methodBit(method);
+        Node node = root;
+        int length = path.length();
+
+        for (int i = 0; i < length; i++) {
+            // "/swagger-ui/**" matches "/swagger-ui" and anything below it, but not "/swagger-uix"
+            if ((node.prefixMethods & methodBit) != 0 && path.charAt(i) == '/') {
+                return true;
+            }
+
+            node = node.child(path.charAt(i));
+
+            if (node == null) {
+                return false;
+            }
+        }
+
+        return ((node.exactMethods | node.prefixMethods) & methodBit) != 0;
+    }
+
+    private static int methodBit(String method) {
+        if (method == null) {
+            return OTHER_METHOD;
+        }
+
+        switch (method) {
+            case "GET":
+                return 1;
+            case "HEAD":
+                return 1 << 1;
+            case "POST":
+                return 1 << 2;
+            case "PUT":
+                return 1 << 3;
+            case "PATCH":
+                return 1 << 4;
+            case "DELETE":
+                return 1 << 5;
+            case "OPTIONS":
+                return 1 << 6;
+            case "TRACE":
+                return 1 << 7;
+            default:
+                return OTHER_METHOD;
+        }
+    }
+
+    public static final class Builder {
+
+        private final BuilderNode root = new BuilderNode();
+
+        private Builder() {
+        }
+
+        // pattern is an exact path or a prefix ending with "/**", no methods means any method
+        public Builder permit(String pattern, String... methods) {
+            if (pattern == null || !pattern.startsWith("/")) {
+                throw new IllegalArgumentException("The path pattern must start with '/': " + pattern);
+            }
+
+            int methodMask = methods.length == 0 ? ANY_METHOD : 0;
+            for (String method : methods) {
+                int methodBit = methodBit(method);
+
+                if (methodBit == OTHER_METHOD) {
+                    throw new IllegalArgumentException("Unsupported HTTP method: " + method);
+                }
+                methodMask |= methodBit;
+            }
+
+            boolean prefix = pattern.endsWith(PREFIX_WILDCARD);
+            String path = prefix ? pattern.substring(0, pattern.length() - PREFIX_WILDCARD.length()) : pattern;
+
+            if (path.contains("*")) {
+                throw new IllegalArgumentException("Only a trailing \"/**\" wildcard is supported: " + pattern);
+            }
+
+            BuilderNode node = root;
+            for (int i = 0; i < path.length(); i++) {
+                node = node.children.computeIfAbsent(path.charAt(i), key -> new BuilderNode());
+            }
+
+            if (prefix) {
+                node.prefixMethods |= methodMask;
+            } else {
+                node.exactMethods |= methodMask;
+            }
+
+            return this;
+        }
+
+        public PathPolicyMatcher build() {
+            return new PathPolicyMatcher(root.compile());
+        }
+    }
+
+    private static final class Node {
+        private final char[] keys;
+        private final Node[] children;
+        private final int exactMethods;
+        private final int prefixMethods;
+
+        private Node(char[] keys, Node[] children, int exactMethods, int prefixMethods) {
+            this.keys = keys;
+            this.children = children;
+            this.exactMethods = exactMethods;
+            this.prefixMethods = prefixMethods;
+        }
+
+        // keys are sorted, and a node rarely has more than a handful of them
+        private Node child(char key) {
+            int low = 0;
+            int high = keys.length - 1;
+
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+
+                if (keys[middle] < key) {
+                    low = middle + 1;
+                } else if (keys[middle] > key) {
+                    high = middle - 1;
+                } else {
+                    return children[middle];
+                }
+            }
+
+            return null;
+        }
+    }
+
+    private static final class BuilderNode {
+        private final TreeMap<Character, BuilderNode> children = new TreeMap<>();
+        private int exactMethods;
+        private int prefixMethods;
+
+        private Node compile() {
+            char[] keys = new char[children.size()];
+            Node[] compiled = new Node[children.size()];
+
+            int i = 0;
+            for (Map.Entry<Character, BuilderNode> entry : children.entrySet()) {
+                keys[i] = entry.getKey();
+                compiled[i] = entry.getValue().compile();
+                i++;
+            }
+
+            return new Node(keys, compiled, exactMethods, prefixMethods);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.ahicode.config;
+
+// the contract between the gateway, which signs these headers, and the services, which verify them
+public final class TrustedIdentityHeaders {
+
+    public static final String USER_ID = "X-User-Id";
+    public static final String USER_ROLE = "X-User-Role";
+    // the subject of the access token, the services use it the same way whether it came from a token or a header
+    public static final String USER_SUBJECT = "X-User-Subject";
+    // the jti is only sent for tokens that carry one, the epoch always, 0 for tokens issued without the claim
+    public static final String TOKEN_ID = "X-User-Token-Id";
+    public static final String TOKEN_EPOCH = "X-User-Token-Epoch";
+    public static final String EXPIRATION = "X-User-Expiration";
+    public static final String SIGNATURE = "X-User-Signature";
+
+    // every header under this prefix is reserved for the gateway, including ones this contract doesn't define yet
+    public static final String PREFIX = "X-User-";
+
+    private TrustedIdentityHeaders() {
+    }
+
+    public static boolean isReserved(String headerName) {
+        return headerName.regionMatches(true, 0, PREFIX, 0, PREFIX.length());
+    }
+
+    // the subject is expected url encoded, exactly as it travels in the header, a missing jti is signed as empty
+    public static String canonical(
+            String userId, String role, String subject, String tokenId, String tokenEpoch, String expiration
+    ) {
+        return userId + '\n' + role + '\n' + subject + '\n' + (tokenId != null ? tokenId : "") + '\n'
+                + tokenEpoch + '\n' + expiration;
+    }
+}
@@ -0,0 +1,73 @@
+package com.ahicode.dtos;
+
+import com.ahicode.enums.RevocationReason;
+import com.ahicode.services.TokenFingerprint;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// what the gateway needs to blacklist a token without decoding it, exactly one of tokenId and fingerprint is set
+public final class RevocationEvent {
+
+    public static final String TOKEN_ID_KEY_PREFIX = "jti:";
+    public static final String FINGERPRINT_KEY_PREFIX = "fp:";
+
+    private final String tokenId;
+    private final String fingerprint;
+    private final Instant expiration;
+    private final RevocationReason reason;
+    private final String issuer;
+
+    public RevocationEvent(String tokenId, String fingerprint, Instant expiration, RevocationReason reason, String issuer) {
+        if ((tokenId == null) == (fingerprint == null)) {
+            throw new IllegalArgumentException("A revocation event has either a token id or a fingerprint");
+        }
+
+        this.tokenId = tokenId;
+        this.fingerprint = fingerprint;
+        this.expiration = expiration;
+        this.reason = reason;
+        this.issuer = issuer;
+    }
+
+    // the event for a token whose jti claim, if any, can be trusted
+    public static RevocationEvent forToken(String token, String tokenId, Instant expiration, RevocationReason reason, String issuer) {
+        return new RevocationEvent(tokenId, tokenId == null ? TokenFingerprint.of(token) : null, expiration, reason, issuer);
+    }
+
+    // the key a token is blacklisted and looked up under: its jti claim when the payload has one, the fingerprint of
+    // the whole token otherwise. The gateway looks every request up this way, an event under any other key never matches
+    public static String keyOf(String token, String tokenId) {
+        return tokenId != null ? TOKEN_ID_KEY_PREFIX + tokenId : FINGERPRINT_KEY_PREFIX + TokenFingerprint.of(token);
+    }
+
+    // "jti:<token id>" or "fp:<fingerprint>", the blacklist entry is stored under this key
+    public String getKey() {
+        return tokenId != null ? TOKEN_ID_KEY_PREFIX + tokenId : FINGERPRINT_KEY_PREFIX + fingerprint;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public Instant getExpiration() {
+        return expiration;
+    }
+
+    // null for legacy records, which carried the token only, and for reasons added by newer producers
+    public RevocationReason getReason() {
+        return reason;
+    }
+
+    public String getIssuer() {
+        return issuer;
+    }
+
+    public Duration getTtl(Instant now) {
+        return Duration.between(now, expiration);
+    }
+}
@@ -0,0 +1,6 @@
+package com.ahicode.enums;
+
+public enum RevocationReason {
+    LOGOUT,
+    INVALID_TOKEN
+}
@@ -0,0 +1,190 @@
+package com.ahicode.services;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// reads a compacted topic whole, as a table, on a thread of its own. The partitions are assigned instead of
+// subscribed, so there is no consumer group: nothing is committed, nothing rebalances and a restart doesn't leave a
+// group behind. Every start reads from the beginning, or from the given offsets, and start returns once the records
+// that were in the topic at that moment have been handed over
+public final class CompactedTopicReader implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(CompactedTopicReader.class.getName());
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    // a topic created after the start, or one that gained partitions, is read this late at most
+    private static final long PARTITION_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long RECONNECT_DELAY_MILLIS = 5000;
+
+    private final String topic;
+    private final Supplier<Consumer<String, String>> consumers;
+    private final java.util.function.Consumer<ConsumerRecord<String, String>> handler;
+    private final CountDownLatch caughtUp = new CountDownLatch(1);
+    // the next offset to read per partition, kept across a reconnect
+    private final Map<TopicPartition, Long> positions = new HashMap<>();
+
+    private volatile Consumer<String, String> consumer;
+    private volatile boolean closed;
+    private Thread thread;
+
+    public CompactedTopicReader(
+            String topic,
+            Supplier<Consumer<String, String>> consumers,
+            java.util.function.Consumer<ConsumerRecord<String, String>> handler
+    ) {
+        this.topic = topic;
+        this.consumers = consumers;
+        this.handler = handler;
+    }
+
+    // false when the timeout passed first, the reader keeps going either way
+    public boolean start(Map<TopicPartition, Long> startOffsets, Duration timeout) throws InterruptedException {
+        positions.putAll(startOffsets);
+
+        thread = new Thread(this::run, topic + "-reader");
+        thread.setDaemon(true);
+        thread.start();
+
+        return caughtUp.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+
+        Consumer<String, String> current = consumer;
+        if (current != null) {
+            current.wakeup();
+        }
+
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            try (Consumer<String, String> current = consumers.get()) {
+                consumer = current;
+                read(current);
+            } catch (WakeupException exception) {
+                // closing
+            } catch (RuntimeException exception) {
+                logger.log(Level.WARNING, "Reading " + topic + " failed, reconnecting: " + exception);
+                sleep(RECONNECT_DELAY_MILLIS);
+            } finally {
+                consumer = null;
+            }
+        }
+    }
+
+    private void read(Consumer<String, String> consumer) {
+        List<TopicPartition> assigned = new ArrayList<>();
+        assignNew(consumer, assigned);
+        // only what is there now has to be read before start returns, the records after it arrive while serving
+        Map<TopicPartition, Long> endOffsets = consumer.endOffsets(assigned);
+        long refreshAt = System.nanoTime() + PARTITION_REFRESH_NANOS;
+
+        while (!closed) {
+            if (caughtUp.getCount() > 0 && isCaughtUp(consumer, endOffsets)) {
+                caughtUp.countDown();
+            }
+
+            if (System.nanoTime() - refreshAt >= 0) {
+                assignNew(consumer, assigned);
+                refreshAt = System.nanoTime() + PARTITION_REFRESH_NANOS;
+            }
+
+            // polling without any partition fails, the topic may not have been created yet
+            if (assigned.isEmpty()) {
+                sleep(POLL_TIMEOUT.toMillis());
+                continue;
+            }
+
+            for (ConsumerRecord<String, String> record : consumer.poll(POLL_TIMEOUT)) {
+                try {
+                    handler.accept(record);
+                } catch (RuntimeException exception) {
+                    logger.log(Level.WARNING, "Skipped a record of " + topic + " at offset " + record.offset() + ": " + exception);
+                }
+
+                positions.put(new TopicPartition(record.topic(), record.partition()), record.offset() + 1);
+            }
+        }
+    }
+
+    private void assignNew(Consumer<String, String> consumer, List<TopicPartition> assigned) {
+        List<PartitionInfo> infos = consumer.partitionsFor(topic);
+        List<TopicPartition> added = new ArrayList<>();
+
+        if (infos != null) {
+            for (PartitionInfo info : infos) {
+                TopicPartition partition = new TopicPartition(info.topic(), info.partition());
+
+                if (!assigned.contains(partition)) {
+                    added.add(partition);
+                }
+            }
+        }
+
+        if (added.isEmpty()) {
+            return;
+        }
+
+        assigned.addAll(added);
+        consumer.assign(assigned);
+
+        List<TopicPartition> fromBeginning = new ArrayList<>();
+        for (TopicPartition partition : added) {
+            Long position = positions.get(partition);
+
+            if (position != null) {
+                consumer.seek(partition, position);
+            } else {
+                fromBeginning.add(partition);
+            }
+        }
+
+        // an empty collection would mean every assigned partition
+        if (!fromBeginning.isEmpty()) {
+            consumer.seekToBeginning(fromBeginning);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+    }
+
+    private static boolean isCaughtUp(Consumer<String, String> consumer, Map<TopicPartition, Long> endOffsets) {
+        for (Map.Entry<TopicPartition, Long> end : endOffsets.entrySet()) {
+            if (consumer.position(end.getKey()) < end.getValue()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
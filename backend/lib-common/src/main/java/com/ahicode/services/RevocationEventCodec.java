@@ -0,0 +1,128 @@
+package com.ahicode.services;
+
+import com.ahicode.dtos.RevocationEvent;
+import com.ahicode.enums.RevocationReason;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.IOException;
+import java.time.Instant;
+
+// revocation events go to the blacklist topic as one flat JSON object, e.g.
+// {"jti":"...","exp":1700000000,"rsn":"LOGOUT","iss":"AUTH-SERVICE"}, with "fp" instead of "jti" for tokens without one
+public final class RevocationEventCodec {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(96));
+
+    private RevocationEventCodec() {
+    }
+
+    public static String encode(RevocationEvent event) {
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+
+        builder.append('{');
+        if (event.getTokenId() != null) {
+            builder.append("\"jti\":");
+            appendString(builder, event.getTokenId());
+        } else {
+            builder.append("\"fp\":");
+            appendString(builder, event.getFingerprint());
+        }
+        builder.append(",\"exp\":").append(event.getExpiration().getEpochSecond());
+        if (event.getReason() != null) {
+            builder.append(",\"rsn\":\"").append(event.getReason().name()).append('"');
+        }
+        if (event.getIssuer() != null) {
+            builder.append(",\"iss\":");
+            appendString(builder, event.getIssuer());
+        }
+        builder.append('}');
+
+        return builder.toString();
+    }
+
+    // unknown fields and reasons are skipped, so older consumers keep reading what newer producers write
+    public static RevocationEvent decode(String record) {
+        try (JsonParser parser = JSON_FACTORY.createParser(record)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("A revocation event is a JSON object");
+            }
+
+            return readEvent(parser);
+        } catch (IOException exception) {
+            throw new IllegalArgumentException("Revocation event parsing failed", exception);
+        }
+    }
+
+    private static RevocationEvent readEvent(JsonParser parser) throws IOException {
+        String tokenId = null;
+        String fingerprint = null;
+        String reason = null;
+        String issuer = null;
+        long expiration = -1;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            switch (field) {
+                case "jti":
+                    tokenId = textOf(parser, value);
+                    break;
+                case "fp":
+                    fingerprint = textOf(parser, value);
+                    break;
+                case "rsn":
+                    reason = textOf(parser, value);
+                    break;
+                case "iss":
+                    issuer = textOf(parser, value);
+                    break;
+                case "exp":
+                    expiration = value == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : -1;
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        if (expiration < 0 || (tokenId == null && fingerprint == null)) {
+            throw new IllegalArgumentException("Revocation event without a key or an expiration");
+        }
+
+        // a record carrying both is keyed by the token id, as the producers would have keyed it
+        return new RevocationEvent(tokenId, tokenId == null ? fingerprint : null, Instant.ofEpochSecond(expiration),
+                reasonOf(reason), issuer);
+    }
+
+    private static RevocationReason reasonOf(String reason) {
+        if (reason == null) {
+            return null;
+        }
+
+        try {
+            return RevocationReason.valueOf(reason);
+        } catch (IllegalArgumentException exception) {
+            return null;
+        }
+    }
+
+    private static String textOf(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return null;
+        }
+
+        return parser.getText();
+    }
+
+    private static void appendString(StringBuilder builder, String value) {
+        builder.append('"');
+        JsonStringEncoder.getInstance().quoteAsString(value, builder);
+        builder.append('"');
+    }
+}
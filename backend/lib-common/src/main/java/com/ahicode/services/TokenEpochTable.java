@@ -0,0 +1,29 @@
+package com.ahicode.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// the minimum token epoch per user, as the token epoch topic holds it. Only users who revoked all of their sessions
+// at least once have an entry, everyone else is at epoch 0
+public final class TokenEpochTable {
+
+    private final Map<Long, Integer> minimumEpochs = new ConcurrentHashMap<>();
+
+    public boolean isRevoked(Long userId, int tokenEpoch) {
+        if (userId == null) {
+            return false;
+        }
+
+        Integer minimumEpoch = minimumEpochs.get(userId);
+        return minimumEpoch != null && tokenEpoch < minimumEpoch;
+    }
+
+    public void update(Long userId, int minimumEpoch) {
+        // records can be replayed, an epoch never goes back
+        minimumEpochs.merge(userId, minimumEpoch, Math::max);
+    }
+
+    public boolean isEmpty() {
+        return minimumEpochs.isEmpty();
+    }
+}
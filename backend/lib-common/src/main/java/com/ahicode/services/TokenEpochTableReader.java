@@ -0,0 +1,101 @@
+package com.ahicode.services;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// every instance reads the whole token epoch topic, without a consumer group, into its TokenEpochTable. The services
+// and the gateway start it in an early lifecycle phase, before the Eureka registration and the web server, so an
+// instance doesn't take traffic with a table that misses the revocations made while it was down
+public class TokenEpochTableReader {
+
+    private static final Logger logger = Logger.getLogger(TokenEpochTableReader.class.getName());
+
+    private final String topic;
+    private final Supplier<Consumer<String, String>> consumers;
+    private final TokenEpochTable table;
+    private final boolean enabled;
+    private final boolean required;
+    private final Duration timeout;
+
+    private CompactedTopicReader reader;
+    private volatile boolean running;
+
+    public TokenEpochTableReader(
+            String topic,
+            Supplier<Consumer<String, String>> consumers,
+            TokenEpochTable table,
+            boolean enabled,
+            boolean required,
+            Duration timeout
+    ) {
+        this.topic = topic;
+        this.consumers = consumers;
+        this.table = table;
+        this.enabled = enabled;
+        this.required = required;
+        this.timeout = timeout;
+    }
+
+    // positions are never committed, there is no group to commit them to
+    public static Properties consumerProperties() {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        return properties;
+    }
+
+    public void start() {
+        running = true;
+
+        if (!enabled) {
+            return;
+        }
+
+        reader = new CompactedTopicReader(topic, consumers, this::apply);
+
+        boolean caughtUp;
+        try {
+            caughtUp = reader.start(Map.of(), timeout);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            caughtUp = false;
+        }
+
+        if (caughtUp) {
+            logger.log(Level.INFO, "The token epoch table was read");
+        } else if (required) {
+            reader.close();
+            throw new IllegalStateException("The token epoch table was not read within " + timeout);
+        } else {
+            logger.log(Level.WARNING, "The token epoch table was not read within " + timeout
+                    + ", the instance starts with what has been read");
+        }
+    }
+
+    public void stop() {
+        running = false;
+
+        if (reader != null) {
+            reader.close();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void apply(ConsumerRecord<String, String> record) {
+        try {
+            table.update(Long.valueOf(record.key()), Integer.parseInt(record.value()));
+        } catch (NumberFormatException exception) {
+            logger.log(Level.WARNING, "Skipped a token epoch record with key " + record.key() + " that could not be parsed");
+        }
+    }
+}
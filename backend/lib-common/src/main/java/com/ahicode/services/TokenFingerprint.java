@@ -0,0 +1,39 @@
+package com.ahicode.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public final class TokenFingerprint {
+
+    private static final int FINGERPRINT_BYTES = 16;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not supported by the JVM", exception);
+        }
+    });
+
+    private TokenFingerprint() {
+    }
+
+    // first 128 bits of the SHA-256 of the token, hex encoded
+    public static String of(String token) {
+        byte[] hash = digest(token);
+        char[] hex = new char[FINGERPRINT_BYTES * 2];
+
+        for (int i = 0; i < FINGERPRINT_BYTES; i++) {
+            hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0x0F];
+            hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0x0F];
+        }
+
+        return new String(hex);
+    }
+
+    public static byte[] digest(String token) {
+        return DIGEST.get().digest(token.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,53 @@
+package config;
+
+import com.ahicode.config.PathPolicyMatcher;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PathPolicyMatcherTest {
+
+    private final PathPolicyMatcher matcher = PathPolicyMatcher.builder()
+            .permit("/api/v1/auth/login", "POST")
+            .permit("/favicon.ico")
+            .permit("/swagger-ui/**", "GET", "HEAD")
+            .build();
+
+    @Test
+    void shouldMatchExactPathForAllowedMethod() {
+        assertTrue(matcher.matches("POST", "/api/v1/auth/login"));
+        assertFalse(matcher.matches("GET", "/api/v1/auth/login"));
+        assertFalse(matcher.matches("POST", "/api/v1/auth/login/"));
+        assertFalse(matcher.matches("POST", "/api/v1/auth/log"));
+    }
+
+    @Test
+    void shouldMatchAnyMethodWhenNoneGiven() {
+        assertTrue(matcher.matches("GET", "/favicon.ico"));
+        assertTrue(matcher.matches("DELETE", "/favicon.ico"));
+        assertTrue(matcher.matches("PROPFIND", "/favicon.ico"));
+    }
+
+    @Test
+    void shouldMatchWildcardPrefixOnSegmentBoundary() {
+        assertTrue(matcher.matches("GET", "/swagger-ui"));
+        assertTrue(matcher.matches("GET", "/swagger-ui/index.html"));
+        assertTrue(matcher.matches("HEAD", "/swagger-ui/nested/swagger-ui-bundle.js"));
+        assertFalse(matcher.matches("GET", "/swagger-uix"));
+        assertFalse(matcher.matches("POST", "/swagger-ui/index.html"));
+    }
+
+    @Test
+    void shouldNotMatchUnknownPaths() {
+        assertFalse(matcher.matches("GET", "/api/v1/project/projects"));
+        assertFalse(matcher.matches("GET", ""));
+        assertFalse(matcher.matches("GET", null));
+    }
+
+    @Test
+    void shouldRejectUnsupportedPatterns() {
+        assertThrows(IllegalArgumentException.class, () -> PathPolicyMatcher.builder().permit("api/v1"));
+        assertThrows(IllegalArgumentException.class, () -> PathPolicyMatcher.builder().permit("/api/*/auth"));
+        assertThrows(IllegalArgumentException.class, () -> PathPolicyMatcher.builder().permit("/api", "FETCH"));
+    }
+}
@@ -0,0 +1,91 @@
+package services;
+
+import com.ahicode.services.CompactedTopicReader;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactedTopicReaderTest {
+
+    private static final String TOPIC = "token_epochs_topic";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+    private MockConsumer<String, String> consumer;
+    private List<String> values;
+    private CompactedTopicReader reader;
+
+    @BeforeEach
+    void setup() {
+        consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.updatePartitions(TOPIC, List.of(new PartitionInfo(TOPIC, 0, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        consumer.updateEndOffsets(Map.of(PARTITION, 2L));
+
+        values = new CopyOnWriteArrayList<>();
+        reader = new CompactedTopicReader(TOPIC, () -> consumer, record -> values.add(record.value()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        reader.close();
+    }
+
+    @Test
+    void shouldReturnOnceExistingRecordsAreRead() throws Exception {
+        scheduleRecords("1", "2");
+
+        assertTrue(reader.start(Map.of(), Duration.ofSeconds(5)));
+
+        assertEquals(List.of("1", "2"), values);
+    }
+
+    @Test
+    void shouldResumeFromGivenOffsets() throws Exception {
+        scheduleRecords("1", "2");
+
+        assertTrue(reader.start(Map.of(PARTITION, 1L), Duration.ofSeconds(5)));
+
+        assertEquals(List.of("2"), values);
+    }
+
+    @Test
+    void shouldSkipRecordTheHandlerRejects() throws Exception {
+        reader = new CompactedTopicReader(TOPIC, () -> consumer, record -> {
+            if (record.offset() == 0) {
+                throw new IllegalArgumentException("unparsable");
+            }
+            values.add(record.value());
+        });
+        scheduleRecords("1", "2");
+
+        assertTrue(reader.start(Map.of(), Duration.ofSeconds(5)));
+
+        assertEquals(List.of("2"), values);
+    }
+
+    @Test
+    void shouldReportTimeoutWhenEndIsNotReached() throws Exception {
+        // the end offset is never reached, the records never arrive
+        assertFalse(reader.start(Map.of(), Duration.ofMillis(100)));
+    }
+
+    private void scheduleRecords(String... records) {
+        consumer.schedulePollTask(() -> {
+            for (int i = 0; i < records.length; i++) {
+                consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, i, String.valueOf(i), records[i]));
+            }
+        });
+    }
+}
@@ -0,0 +1,65 @@
+package services;
+
+import com.ahicode.dtos.RevocationEvent;
+import com.ahicode.enums.RevocationReason;
+import com.ahicode.services.RevocationEventCodec;
+import com.ahicode.services.TokenFingerprint;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RevocationEventCodecTest {
+
+    private static final Instant EXPIRATION = Instant.ofEpochSecond(1700000000);
+
+    @Test
+    void shouldEncodeEventKeyedByTokenId() {
+        RevocationEvent event = new RevocationEvent("AAECAwQFBgcICQoL", null, EXPIRATION, RevocationReason.LOGOUT, "AUTH-SERVICE");
+
+        assertEquals("jti:AAECAwQFBgcICQoL", event.getKey());
+        assertEquals("{\"jti\":\"AAECAwQFBgcICQoL\",\"exp\":1700000000,\"rsn\":\"LOGOUT\",\"iss\":\"AUTH-SERVICE\"}",
+                RevocationEventCodec.encode(event));
+    }
+
+    @Test
+    void shouldKeyEventAsTheTokenIsLookedUp() {
+        String token = "header.payload.signature";
+
+        assertEquals(RevocationEvent.keyOf(token, "id"), RevocationEvent.forToken(token, "id", EXPIRATION, null, null).getKey());
+        assertEquals(RevocationEvent.keyOf(token, null), RevocationEvent.forToken(token, null, EXPIRATION, null, null).getKey());
+        assertEquals("fp:" + TokenFingerprint.of(token), RevocationEvent.keyOf(token, null));
+    }
+
+    @Test
+    void shouldDecodeWhatItEncodes() {
+        RevocationEvent event = new RevocationEvent(null, "00ff", EXPIRATION, RevocationReason.INVALID_TOKEN, "PROJECT-\"SERVICE\"");
+
+        RevocationEvent decoded = RevocationEventCodec.decode(RevocationEventCodec.encode(event));
+
+        assertEquals("fp:00ff", decoded.getKey());
+        assertEquals(EXPIRATION, decoded.getExpiration());
+        assertEquals(RevocationReason.INVALID_TOKEN, decoded.getReason());
+        assertEquals("PROJECT-\"SERVICE\"", decoded.getIssuer());
+    }
+
+    @Test
+    void shouldSkipUnknownFieldsAndReasons() {
+        RevocationEvent event = RevocationEventCodec.decode(
+                "{\"v\":2,\"jti\":\"id\",\"extra\":{\"exp\":1},\"exp\":1700000000,\"rsn\":\"EXPIRED\",\"tags\":[\"a\"]}");
+
+        assertEquals("jti:id", event.getKey());
+        assertEquals(EXPIRATION, event.getExpiration());
+        assertNull(event.getReason());
+    }
+
+    @Test
+    void shouldRejectIncompleteOrMalformedEvents() {
+        assertThrows(IllegalArgumentException.class, () -> RevocationEventCodec.decode("{\"jti\":\"id\"}"));
+        assertThrows(IllegalArgumentException.class, () -> RevocationEventCodec.decode("{\"exp\":1700000000}"));
+        assertThrows(IllegalArgumentException.class, () -> RevocationEventCodec.decode("{\"jti\":\"id\",\"exp\":\"soon\"}"));
+        assertThrows(IllegalArgumentException.class, () -> RevocationEventCodec.decode("{\"jti\":\"id\",\"exp\":17"));
+        assertThrows(IllegalArgumentException.class, () -> RevocationEventCodec.decode("[1700000000]"));
+    }
+}
@@ -0,0 +1,83 @@
+package services;
+
+import com.ahicode.services.TokenEpochTable;
+import com.ahicode.services.TokenEpochTableReader;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenEpochTableReaderTest {
+
+    private static final String TOPIC = "token_epochs_topic";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+    private MockConsumer<String, String> consumer;
+    private TokenEpochTable table;
+    private TokenEpochTableReader reader;
+
+    @BeforeEach
+    void setup() {
+        consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.updatePartitions(TOPIC, List.of(new PartitionInfo(TOPIC, 0, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        consumer.updateEndOffsets(Map.of(PARTITION, 3L));
+        table = new TokenEpochTable();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (reader != null) {
+            reader.stop();
+        }
+    }
+
+    @Test
+    void shouldReadTableBeforeStartReturns() {
+        scheduleRecords("3", "not-a-number", "2");
+
+        reader(true, Duration.ofSeconds(5)).start();
+
+        // the replayed lower epoch doesn't win, the unparsable record is skipped
+        assertTrue(table.isRevoked(7L, 2));
+        assertFalse(table.isRevoked(7L, 3));
+        assertTrue(reader.isRunning());
+    }
+
+    @Test
+    void shouldAbortStartupWhenRequiredTableIsNotRead() {
+        // the end offset is never reached, the records never arrive
+        assertThrows(IllegalStateException.class, () -> reader(true, Duration.ofMillis(100)).start());
+    }
+
+    @Test
+    void shouldStartWithoutTableWhenNotRequired() {
+        reader(false, Duration.ofMillis(100)).start();
+
+        assertTrue(reader.isRunning());
+        assertTrue(table.isEmpty());
+    }
+
+    private TokenEpochTableReader reader(boolean required, Duration timeout) {
+        reader = new TokenEpochTableReader(TOPIC, () -> consumer, table, true, required, timeout);
+        return reader;
+    }
+
+    private void scheduleRecords(String... epochs) {
+        consumer.schedulePollTask(() -> {
+            for (int i = 0; i < epochs.length; i++) {
+                consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, i, "7", epochs[i]));
+            }
+        });
+    }
+}
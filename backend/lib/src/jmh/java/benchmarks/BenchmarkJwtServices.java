@@ -0,0 +1,50 @@
+package benchmarks;
+
+import com.ahicode.services.AccessTokenMinter;
+import com.ahicode.services.AccessTokenMinterImpl;
+import com.ahicode.services.JwtService;
+import com.ahicode.services.JwtServiceImpl;
+import com.ahicode.services.VerifiedTokenCacheImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.time.Duration;
+import java.util.Base64;
+
+final class BenchmarkJwtServices {
+
+    static final byte[] ACCESS_SECRET = "benchmarkAccessSecretKey1234567890ABCDEF".getBytes();
+    static final byte[] REFRESH_SECRET = "benchmarkRefreshSecretKey1234567890ABCDEF".getBytes();
+
+    private BenchmarkJwtServices() {
+    }
+
+    // wired the way Spring wires it, the caches only when application.security.jwt.cache.enabled is set
+    static JwtServiceImpl jwtService(boolean cached) {
+        JwtServiceImpl service = new JwtServiceImpl();
+
+        ReflectionTestUtils.setField(service, "accessTokenSecretKey", Base64.getEncoder().encodeToString(ACCESS_SECRET));
+        ReflectionTestUtils.setField(service, "refreshTokenSecretKey", Base64.getEncoder().encodeToString(REFRESH_SECRET));
+        ReflectionTestUtils.setField(service, "accessTokenExpirationTime", 3600000L);
+        ReflectionTestUtils.setField(service, "refreshTokenExpirationTime", 86400000L);
+
+        if (cached) {
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            ReflectionTestUtils.setField(service, "accessTokenCache", new VerifiedTokenCacheImpl("access", 10000, registry));
+            ReflectionTestUtils.setField(service, "refreshTokenCache", new VerifiedTokenCacheImpl("refresh", 10000, registry));
+        }
+
+        ReflectionTestUtils.invokeMethod(service, "init");
+        return service;
+    }
+
+    static AccessTokenMinter accessTokenMinter(JwtService jwtService) {
+        return new AccessTokenMinterImpl(jwtService, Duration.ofSeconds(5), 10000, new SimpleMeterRegistry());
+    }
+
+    static Key accessSignKey() {
+        return Keys.hmacShaKeyFor(ACCESS_SECRET);
+    }
+}
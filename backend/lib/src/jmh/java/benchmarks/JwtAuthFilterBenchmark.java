@@ -0,0 +1,105 @@
+package benchmarks;
+
+import com.ahicode.config.JwtAuthFilter;
+import com.ahicode.config.UserAuthenticationProvider;
+import com.ahicode.enums.AppRole;
+import com.ahicode.enums.RevocationReason;
+import com.ahicode.services.Hs256JwtEngine;
+import com.ahicode.services.JwtServiceImpl;
+import com.ahicode.services.MessageProducerService;
+import com.ahicode.services.TokenEpochServiceImpl;
+import com.ahicode.services.TokenEpochTable;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+// a fresh mock request per invocation is part of the measured cost, OncePerRequestFilter marks the request as filtered
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JwtAuthFilterBenchmark {
+
+    @Param({"fresh", "expired", "invalid"})
+    public String scenario;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private JwtAuthFilter filter;
+    private Cookie accessTokenCookie;
+    private Cookie refreshTokenCookie;
+    private final FilterChain filterChain = (request, response) -> {
+    };
+
+    @Setup
+    public void setup() {
+        JwtServiceImpl jwtService = BenchmarkJwtServices.jwtService(cached);
+        // another user revoked their sessions, so the epoch check does a real lookup
+        TokenEpochServiceImpl tokenEpochService = new TokenEpochServiceImpl(new TokenEpochTable());
+        tokenEpochService.update(2L, 1);
+
+        UserAuthenticationProvider provider = new UserAuthenticationProvider(
+                jwtService, BenchmarkJwtServices.accessTokenMinter(jwtService), tokenEpochService
+        );
+        filter = new JwtAuthFilter(provider, new NoopMessageProducerService());
+
+        String refreshToken = jwtService.generateRefreshToken(1L, "benchmark@example.com", AppRole.USER, 0);
+        refreshTokenCookie = new Cookie("refreshToken", refreshToken);
+        accessTokenCookie = new Cookie("accessToken", accessToken(jwtService));
+    }
+
+    @Benchmark
+    public MockHttpServletResponse doFilter() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/projects");
+        request.setCookies(accessTokenCookie, refreshTokenCookie);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, filterChain);
+        SecurityContextHolder.clearContext();
+
+        return response;
+    }
+
+    private static class NoopMessageProducerService implements MessageProducerService {
+
+        @Override
+        public void revokeSession(String accessToken, String refreshToken, RevocationReason reason) {
+        }
+
+        @Override
+        public void sendInvalidToken(String token) {
+        }
+
+        @Override
+        public void sendTokenEpoch(Long userId, int minimumEpoch) {
+        }
+    }
+
+    private String accessToken(JwtServiceImpl jwtService) {
+        switch (scenario) {
+            case "expired":
+                Instant issuedAt = Instant.now().minusSeconds(7200);
+                return new Hs256JwtEngine(BenchmarkJwtServices.accessSignKey())
+                        .sign(1L, AppRole.USER, "benchmark@example.com", "benchmarkTokenId", 0, issuedAt, issuedAt.plusSeconds(3600));
+            case "invalid":
+                return "eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJiZW5jaG1hcmsifQ.invalid";
+            default:
+                return jwtService.generateAccessToken(1L, "benchmark@example.com", AppRole.USER, 0);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import com.ahicode.dtos.VerifiedToken;
+import com.ahicode.enums.AppRole;
+import com.ahicode.services.Hs256JwtEngine;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.Key;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// jjwt as JwtServiceImpl used it before the engine, against the engine itself
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JwtEngineBenchmark {
+
+    private static final String SUBJECT = "benchmark@example.com";
+
+    private Key signKey;
+    private Hs256JwtEngine engine;
+    private String token;
+
+    @Setup
+    public void setup() {
+        signKey = Keys.hmacShaKeyFor("benchmarkSecretKey1234567890ABCDEFGH".getBytes());
+        engine = new Hs256JwtEngine(signKey);
+        token = engine.sign(1L, AppRole.USER, SUBJECT, "benchmarkTokenId", 0, Instant.now(), Instant.now().plusSeconds(3600));
+    }
+
+    @Benchmark
+    public String signWithJjwt() {
+        Instant now = Instant.now();
+
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("id", 1L);
+        claims.put("role", AppRole.USER.toString());
+
+        return Jwts.builder()
+                .setClaims(claims)
+                .setSubject(SUBJECT)
+                .setId("benchmarkTokenId")
+                .setIssuedAt(Date.from(now))
+                .setExpiration(Date.from(now.plusSeconds(3600)))
+                .signWith(signKey, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    @Benchmark
+    public String signWithEngine() {
+        Instant now = Instant.now();
+        return engine.sign(1L, AppRole.USER, SUBJECT, "benchmarkTokenId", 0, now, now.plusSeconds(3600));
+    }
+
+    @Benchmark
+    public Claims verifyWithJjwt() {
+        return Jwts.parserBuilder()
+                .setSigningKey(signKey)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    @Benchmark
+    public Claims verifyWithPrebuiltJjwtParser() {
+        return engine.parseClaims(token);
+    }
+
+    @Benchmark
+    public VerifiedToken verifyWithEngine() {
+        return engine.verify(token);
+    }
+}
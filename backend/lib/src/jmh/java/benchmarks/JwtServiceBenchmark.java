@@ -0,0 +1,55 @@
+package benchmarks;
+
+import com.ahicode.enums.AppRole;
+import com.ahicode.services.JwtServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.core.Authentication;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JwtServiceBenchmark {
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private JwtServiceImpl jwtService;
+    private String accessToken;
+    private String refreshToken;
+
+    @Setup
+    public void setup() {
+        jwtService = BenchmarkJwtServices.jwtService(cached);
+        accessToken = jwtService.generateAccessToken(1L, "benchmark@example.com", AppRole.USER, 0);
+        refreshToken = jwtService.generateRefreshToken(1L, "benchmark@example.com", AppRole.USER, 0);
+    }
+
+    @Benchmark
+    public String generateAccessToken() {
+        return jwtService.generateAccessToken(1L, "benchmark@example.com", AppRole.USER, 0);
+    }
+
+    @Benchmark
+    public boolean isAccessTokenValid() {
+        return jwtService.isAccessTokenValid(accessToken);
+    }
+
+    @Benchmark
+    public boolean isRefreshTokenExpired() {
+        return jwtService.isRefreshTokenExpired(refreshToken);
+    }
+
+    @Benchmark
+    public Authentication authenticatedAccessValidation() {
+        return jwtService.authenticatedAccessValidation(accessToken);
+    }
+}
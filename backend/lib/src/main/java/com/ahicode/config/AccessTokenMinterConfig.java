@@ -0,0 +1,25 @@
+package com.ahicode.config;
+
+import com.ahicode.services.AccessTokenMinter;
+import com.ahicode.services.AccessTokenMinterImpl;
+import com.ahicode.services.JwtService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class AccessTokenMinterConfig {
+
+    @Value("${application.security.jwt.minting.window:5s}")
+    private Duration window;
+    @Value("${application.security.jwt.minting.max-size:10000}")
+    private long maximumSize;
+
+    @Bean
+    public AccessTokenMinter accessTokenMinter(JwtService jwtService, MeterRegistry meterRegistry) {
+        return new AccessTokenMinterImpl(jwtService, window, maximumSize, meterRegistry);
+    }
+}
@@ -0,0 +1,24 @@
+package com.ahicode.config;
+
+import com.ahicode.services.InvalidTokenDeduplicator;
+import com.ahicode.services.InvalidTokenDeduplicatorImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class InvalidTokenDeduplicatorConfig {
+
+    @Value("${application.security.jwt.invalid-tokens.dedup-window:10m}")
+    private Duration window;
+    @Value("${application.security.jwt.invalid-tokens.dedup-max-size:100000}")
+    private long maximumSize;
+
+    @Bean
+    public InvalidTokenDeduplicator invalidTokenDeduplicator(MeterRegistry meterRegistry) {
+        return new InvalidTokenDeduplicatorImpl(window, maximumSize, meterRegistry);
+    }
+}
@@ -1,6 +1,6 @@
 package com.ahicode.config;
 
-import com.ahicode.enums.AppRole;
+import com.ahicode.dtos.VerifiedToken;
 import com.ahicode.exceptions.AppException;
 import com.ahicode.services.MessageProducerService;
 import jakarta.servlet.FilterChain;
@@ -17,8 +17,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.util.WebUtils;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.Set;
+import java.util.Optional;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -28,24 +27,26 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     private final UserAuthenticationProvider provider;
     private final MessageProducerService messageService;
 
-    private static final Set<String> ALLOWED_PATHS = Set.of(
-            "/api/v1/auth/login",
-            "/api/v1/auth/register",
-            "/api/v1/auth/confirmRegister",
-            "/api/v1/auth/admin/confirmRegister",
-            "/webjars",
-            "/favicon.ico",
-            "/v3/api-docs",
-            "/swagger-resources",
-            "/swagger-ui/index.css",
-            "/swagger-ui/index.html",
-            "/swagger-ui/swagger-ui.css",
-            "/v3/api-docs/swagger-config",
-            "/swagger-ui/favicon-32x32.png",
-            "/swagger-ui/swagger-ui-bundle.js",
-            "/swagger-ui/swagger-initializer.js",
-            "/swagger-ui/swagger-ui-standalone-preset.js"
-    );
+    // the browser sends the CORS preflight of the auth forms without cookies, it must not need a token
+    private static final PathPolicyMatcher PUBLIC_ROUTES = PathPolicyMatcher.builder()
+            .permit("/api/v1/auth/login", "POST", "OPTIONS")
+            .permit("/api/v1/auth/register", "POST", "OPTIONS")
+            .permit("/api/v1/auth/confirmRegister", "POST", "OPTIONS")
+            .permit("/api/v1/auth/admin/confirmRegister", "POST", "OPTIONS")
+            .permit("/favicon.ico", "GET", "HEAD")
+            .permit("/webjars/**", "GET", "HEAD")
+            .permit("/v3/api-docs/**", "GET", "HEAD")
+            .permit("/swagger-resources/**", "GET", "HEAD")
+            .permit("/swagger-ui/**", "GET", "HEAD")
+            .build();
+
+    // public and static requests skip the token work entirely,
+    // requests authenticated by TrustedIdentityFilter don't need the tokens to be verified again
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return PUBLIC_ROUTES.matches(request.getMethod(), request.getRequestURI())
+                || request.getAttribute(TrustedIdentityFilter.TRUSTED_IDENTITY_ATTRIBUTE) != null;
+    }
 
     @Override
     protected void doFilterInternal(
@@ -53,14 +54,6 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             HttpServletResponse response,
             FilterChain filterChain
     ) throws ServletException, IOException {
-        // getting request path
-        String path = request.getRequestURI();
-
-        if (ALLOWED_PATHS.contains(path)) {
-            filterChain.doFilter(request, response);
-            return;
-        }
-
         // extract accessToken from headers or cookies
         String accessToken = extractAccessToken(request);
         // extract refreshToken from cookies
@@ -81,55 +74,72 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             String accessToken,
             String refreshToken
     ) {
-        if (isTokenInvalid(refreshToken)) {
+        Optional<VerifiedToken> verifiedRefreshToken = verifyRefreshToken(refreshToken);
+
+        if (verifiedRefreshToken.isEmpty()) {
             if (refreshToken != null) {
-                messageService.sendMessage(List.of(refreshToken));
-                log.info("An invalid refresh token was sent to the kafka topic");
+                messageService.sendInvalidToken(refreshToken);
             }
 
             log.error("An attempt was made to gain access with an invalid refresh token or missing refresh token");
             throw new AppException("The refresh token was lost or is not valid", HttpStatus.UNAUTHORIZED);
         }
 
-        if (accessToken == null || provider.isAccessTokenExpired(accessToken)) {
-            if (provider.isRefreshTokenExpired(refreshToken)) {
+        // the tokens of a revoked session are still valid, so they don't go to the blacklist
+        rejectRevokedSession(verifiedRefreshToken.get());
+
+        Optional<VerifiedToken> verifiedAccessToken = (accessToken != null)
+                ? provider.verifyAccessToken(accessToken)
+                : Optional.empty();
+
+        if (accessToken != null && verifiedAccessToken.isEmpty()) {
+            log.error("An attempt was made to gain access with an invalid access token");
+            throw new AppException("The access token is not valid", HttpStatus.UNAUTHORIZED);
+        }
+
+        if (verifiedAccessToken.isEmpty() || verifiedAccessToken.get().isExpired()) {
+            if (verifiedRefreshToken.get().isExpired()) {
                 log.error("An attempt was made to gain access with an expired refresh token");
                 throw new AppException("The refresh token is expired, please authorize again", HttpStatus.UNAUTHORIZED);
             }
 
-            handleRefreshToken(response, refreshToken);
+            handleRefreshToken(response, refreshToken, verifiedRefreshToken.get());
         } else {
-            if (!provider.isAccessTokenValid(accessToken)) {
-                log.error("An attempt was made to gain access with an invalid access token");
-                throw new AppException("The access token is not valid", HttpStatus.UNAUTHORIZED);
-            }
-            authenticateUser(accessToken);
+            rejectRevokedSession(verifiedAccessToken.get());
+            authenticateUser(verifiedAccessToken.get());
+        }
+    }
+
+    private void rejectRevokedSession(VerifiedToken token) {
+        if (provider.isSessionRevoked(token)) {
+            log.error("An attempt was made to gain access with a token of a revoked session");
+            throw new AppException("The session has been revoked, please authorize again", HttpStatus.UNAUTHORIZED);
         }
     }
 
     private void handleRefreshToken(
             HttpServletResponse response,
-            String token
+            String refreshToken,
+            VerifiedToken token
     ) {
-        Long userId = provider.extractUserId(token);
-        AppRole role = provider.extractRole(token);
-        String email = provider.extractEmail(token);
+        String email = token.getSubject();
 
-        String newAccessToken = provider.generateAccessToken(userId, email, role);
+        String newAccessToken = provider.generateAccessToken(refreshToken, token);
         log.info("Generated new access token for a user with email {}", email);
 
         updateTokenCookie(response, newAccessToken);
-        authenticateUser(newAccessToken);
+        // the new access token carries the same claims as the refresh token, so there is no need to parse it again
+        authenticateUser(token);
     }
 
-    private boolean isTokenInvalid(String token) {
-        return token == null || !provider.isRefreshTokenValid(token);
+    private Optional<VerifiedToken> verifyRefreshToken(String token) {
+        return (token != null) ? provider.verifyRefreshToken(token) : Optional.empty();
     }
 
-    private void authenticateUser(String token) {
+    private void authenticateUser(VerifiedToken token) {
         try {
             SecurityContextHolder.getContext()
-                    .setAuthentication(provider.authenticatedAccessValidation(token));
+                    .setAuthentication(provider.authenticate(token));
             log.info("Successful authentication occurred");
         } catch (RuntimeException exception) {
             SecurityContextHolder.clearContext();
@@ -1,9 +1,13 @@
 package com.ahicode.config;
 
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.config.TopicConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
@@ -14,13 +18,34 @@ import java.util.Map;
 @Configuration
 public class KafkaProducerConfig {
 
+    public static final String TOKEN_EPOCH_TOPIC = "token_epochs_topic";
+
+    @Value("${spring.kafka.bootstrap-servers:localhost:29092}")
+    private String bootstrapServers;
+    @Value("${application.kafka.producer.linger-ms:20}")
+    private int lingerMs;
+    @Value("${application.kafka.producer.batch-size:65536}")
+    private int batchSize;
+    @Value("${application.kafka.producer.compression-type:lz4}")
+    private String compressionType;
+
     @Bean
     public ProducerFactory<String, String> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:29092");
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
 
+        // a logout or revocation burst is collected into a few compressed batches instead of a request per token
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+
+        // retries can't duplicate or reorder records
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+
         return new DefaultKafkaProducerFactory<>(configProps);
     }
 
@@ -28,4 +53,14 @@ public class KafkaProducerConfig {
     public KafkaTemplate<String, String> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
+
+    // one record per user, keyed by the user id. Compaction keeps only the latest epoch of every user, so a service
+    // reads the whole table from the beginning on startup
+    @Bean
+    public NewTopic tokenEpochsTopic() {
+        return TopicBuilder.name(TOKEN_EPOCH_TOPIC)
+                .partitions(1)
+                .compact()
+                .build();
+    }
 }
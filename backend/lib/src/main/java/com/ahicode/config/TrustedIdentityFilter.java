@@ -0,0 +1,67 @@
+package com.ahicode.config;
+
+import com.ahicode.dtos.VerifiedToken;
+import com.ahicode.services.TrustedIdentityService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+
+// trusts the identity the gateway has already verified, requests without the headers go on to JwtAuthFilter
+@Slf4j
+@RequiredArgsConstructor
+public class TrustedIdentityFilter extends OncePerRequestFilter {
+
+    public static final String TRUSTED_IDENTITY_ATTRIBUTE = TrustedIdentityFilter.class.getName() + ".IDENTITY";
+
+    private final UserAuthenticationProvider provider;
+    private final TrustedIdentityService identityService;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !identityService.isEnabled() || request.getHeader(TrustedIdentityHeaders.SIGNATURE) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        Optional<VerifiedToken> identity = identityService.verify(
+                request.getHeader(TrustedIdentityHeaders.USER_ID),
+                request.getHeader(TrustedIdentityHeaders.USER_ROLE),
+                request.getHeader(TrustedIdentityHeaders.USER_SUBJECT),
+                request.getHeader(TrustedIdentityHeaders.TOKEN_ID),
+                request.getHeader(TrustedIdentityHeaders.TOKEN_EPOCH),
+                request.getHeader(TrustedIdentityHeaders.EXPIRATION),
+                request.getHeader(TrustedIdentityHeaders.SIGNATURE)
+        );
+
+        if (identity.isEmpty()) {
+            log.error("An attempt was made to gain access with invalid identity headers");
+            response.sendError(HttpStatus.UNAUTHORIZED.value(), "The identity headers are not valid");
+            return;
+        }
+
+        // the gateway may not have heard of the revocation yet, so the epoch is checked here as JwtAuthFilter does
+        if (provider.isSessionRevoked(identity.get())) {
+            log.error("An attempt was made to gain access with identity headers of a revoked session");
+            response.sendError(HttpStatus.UNAUTHORIZED.value(), "The session has been revoked, please authorize again");
+            return;
+        }
+
+        SecurityContextHolder.getContext().setAuthentication(provider.authenticate(identity.get()));
+        request.setAttribute(TRUSTED_IDENTITY_ATTRIBUTE, identity.get());
+
+        filterChain.doFilter(request, response);
+    }
+}
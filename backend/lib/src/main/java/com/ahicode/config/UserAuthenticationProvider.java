@@ -1,50 +1,40 @@
 package com.ahicode.config;
 
-import com.ahicode.enums.AppRole;
+import com.ahicode.dtos.VerifiedToken;
+import com.ahicode.services.AccessTokenMinter;
 import com.ahicode.services.JwtService;
+import com.ahicode.services.TokenEpochService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
+import java.util.Optional;
+
 @Component
 @RequiredArgsConstructor
 public class UserAuthenticationProvider {
 
     private final JwtService service;
+    private final AccessTokenMinter minter;
+    private final TokenEpochService tokenEpochService;
 
-    public Long extractUserId(String token) {
-        return service.extractUserIdFromRefreshToken(token);
-    }
-
-    public AppRole extractRole(String token) {
-        return service.extractRoleFromRefreshToken(token);
-    }
-
-    public String extractEmail(String token) {
-        return service.extractEmailFromRefreshToken(token);
-    }
-
-    public boolean isAccessTokenValid(String token) {
-        return service.isAccessTokenValid(token);
-    }
-
-    public boolean isRefreshTokenValid(String token) {
-        return service.isRefreshTokenValid(token);
+    public Optional<VerifiedToken> verifyAccessToken(String token) {
+        return service.verifyAccessToken(token);
     }
 
-    public boolean isAccessTokenExpired(String token) {
-        return service.isAccessTokenExpired(token);
+    public Optional<VerifiedToken> verifyRefreshToken(String token) {
+        return service.verifyRefreshToken(token);
     }
 
-    public boolean isRefreshTokenExpired(String token) {
-        return service.isRefreshTokenExpired(token);
+    public boolean isSessionRevoked(VerifiedToken token) {
+        return tokenEpochService.isRevoked(token);
     }
 
-    public Authentication authenticatedAccessValidation(String token) {
-        return service.authenticatedAccessValidation(token);
+    public Authentication authenticate(VerifiedToken token) {
+        return service.authenticate(token);
     }
 
-    public String generateAccessToken(Long id, String email, AppRole role) {
-        return service.generateAccessToken(id, email, role);
+    public String generateAccessToken(String refreshToken, VerifiedToken verifiedRefreshToken) {
+        return minter.mint(refreshToken, verifiedRefreshToken);
     }
 }
@@ -0,0 +1,27 @@
+package com.ahicode.config;
+
+import com.ahicode.services.VerifiedTokenCache;
+import com.ahicode.services.VerifiedTokenCacheImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "application.security.jwt.cache.enabled", havingValue = "true")
+public class VerifiedTokenCacheConfig {
+
+    @Value("${application.security.jwt.cache.max-size:10000}")
+    private long maximumSize;
+
+    @Bean
+    public VerifiedTokenCache accessTokenCache(MeterRegistry meterRegistry) {
+        return new VerifiedTokenCacheImpl("access", maximumSize, meterRegistry);
+    }
+
+    @Bean
+    public VerifiedTokenCache refreshTokenCache(MeterRegistry meterRegistry) {
+        return new VerifiedTokenCacheImpl("refresh", maximumSize, meterRegistry);
+    }
+}
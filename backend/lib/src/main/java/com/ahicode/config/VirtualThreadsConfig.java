@@ -0,0 +1,22 @@
+package com.ahicode.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+
+// Spring Boot silently ignores the property below JDK 21, the service would run on platform threads while claiming
+// otherwise, so it refuses to start instead
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    private static final int VIRTUAL_THREADS_JDK = 21;
+
+    public VirtualThreadsConfig() {
+        int feature = Runtime.version().feature();
+
+        if (feature < VIRTUAL_THREADS_JDK) {
+            throw new IllegalStateException("spring.threads.virtual.enabled needs JDK " + VIRTUAL_THREADS_JDK
+                    + " or newer, this service runs on JDK " + feature);
+        }
+    }
+}
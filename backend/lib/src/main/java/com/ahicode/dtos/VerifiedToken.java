@@ -0,0 +1,26 @@
+package com.ahicode.dtos;
+
+import com.ahicode.enums.AppRole;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+
+@Getter
+@Builder
+@AllArgsConstructor
+public final class VerifiedToken {
+    private final Long id;
+    private final AppRole role;
+    private final String subject;
+    private final String tokenId;
+    // the user's token epoch when the session started, 0 for tokens issued without the claim
+    private final int tokenEpoch;
+    private final Instant expiration;
+    private final Instant issuedAt;
+
+    public boolean isExpired() {
+        return expiration != null && expiration.isBefore(Instant.now());
+    }
+}
@@ -0,0 +1,7 @@
+package com.ahicode.services;
+
+import com.ahicode.dtos.VerifiedToken;
+
+public interface AccessTokenMinter {
+    String mint(String refreshToken, VerifiedToken verifiedRefreshToken);
+}
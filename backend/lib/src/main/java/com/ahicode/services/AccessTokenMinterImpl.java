@@ -0,0 +1,63 @@
+package com.ahicode.services;
+
+import com.ahicode.dtos.VerifiedToken;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+
+// parallel requests carrying the same expired access token share the access token minted by the first one
+public class AccessTokenMinterImpl implements AccessTokenMinter {
+
+    private static final String METRIC_NAME = "jwt.access.token.mints";
+
+    private final JwtService jwtService;
+    private final Cache<String, String> mintedTokens;
+    private final Counter mintedCounter;
+    private final Counter coalescedCounter;
+
+    public AccessTokenMinterImpl(JwtService jwtService, Duration window, long maximumSize, MeterRegistry meterRegistry) {
+        this.jwtService = jwtService;
+        this.mintedTokens = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maximumSize)
+                .build();
+
+        this.mintedCounter = Counter.builder(METRIC_NAME)
+                .tag("result", "minted")
+                .description("Access tokens signed for a refresh token")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder(METRIC_NAME)
+                .tag("result", "coalesced")
+                .description("Requests served with an access token another request has just minted")
+                .register(meterRegistry);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, mintedTokens, "jwt.access.token.mint.window");
+    }
+
+    @Override
+    public String mint(String refreshToken, VerifiedToken verifiedRefreshToken) {
+        boolean[] minted = new boolean[1];
+
+        // Cache.get runs the mapping function at most once per key, concurrent callers wait for its result
+        String accessToken = mintedTokens.get(TokenFingerprint.of(refreshToken), fingerprint -> {
+            minted[0] = true;
+            // the access token belongs to the refresh token's session, so it carries the same epoch
+            return jwtService.generateAccessToken(
+                    verifiedRefreshToken.getId(), verifiedRefreshToken.getSubject(), verifiedRefreshToken.getRole(),
+                    verifiedRefreshToken.getTokenEpoch()
+            );
+        });
+
+        if (minted[0]) {
+            mintedCounter.increment();
+        } else {
+            coalescedCounter.increment();
+        }
+
+        return accessToken;
+    }
+}
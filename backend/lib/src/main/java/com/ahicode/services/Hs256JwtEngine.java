@@ -0,0 +1,250 @@
+package com.ahicode.services;
+
+import com.ahicode.dtos.VerifiedToken;
+import com.ahicode.enums.AppRole;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureException;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+
+public class Hs256JwtEngine {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int SIGNATURE_BYTES = 32;
+    private static final int SIGNATURE_SEGMENT_LENGTH = 43;
+
+    private static final String HEADER_SEGMENT = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.US_ASCII));
+    private static final byte[] HEADER_PREFIX = (HEADER_SEGMENT + ".").getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] BASE64_URL_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+    private static final int[] BASE64_URL_VALUES = new int[128];
+
+    static {
+        Arrays.fill(BASE64_URL_VALUES, -1);
+        for (int i = 0; i < BASE64_URL_ALPHABET.length; i++) {
+            BASE64_URL_VALUES[BASE64_URL_ALPHABET[i]] = i;
+        }
+    }
+
+    private final Mac prototype;
+    private final JwtParser fallbackParser;
+    private final ThreadLocal<Scratch> scratch;
+
+    public Hs256JwtEngine(Key signKey) {
+        this.prototype = createMac(signKey);
+        this.fallbackParser = Jwts.parserBuilder().setSigningKey(signKey).build();
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(copyMac()));
+    }
+
+    public String sign(
+            Long id, AppRole role, String subject, String tokenId, int tokenEpoch, Instant issuedAt, Instant expiration
+    ) {
+        byte[] payload = JwtPayloadCodec.encode(
+                id, role.toString(), subject, tokenId, tokenEpoch, issuedAt.getEpochSecond(), expiration.getEpochSecond()
+        );
+
+        int signingInputLength = HEADER_PREFIX.length + encodedLength(payload.length);
+        int tokenLength = signingInputLength + 1 + SIGNATURE_SEGMENT_LENGTH;
+
+        Scratch current = scratch.get();
+        byte[] buffer = current.buffer(tokenLength);
+
+        System.arraycopy(HEADER_PREFIX, 0, buffer, 0, HEADER_PREFIX.length);
+        encode(payload, payload.length, buffer, HEADER_PREFIX.length);
+
+        sign(current, buffer, signingInputLength);
+        buffer[signingInputLength] = '.';
+        encode(current.digest, SIGNATURE_BYTES, buffer, signingInputLength + 1);
+
+        return new String(buffer, 0, tokenLength, StandardCharsets.ISO_8859_1);
+    }
+
+    // returns null for tokens in a shape the engine doesn't know, those go through parseClaims instead
+    public VerifiedToken verify(String token) {
+        int payloadStart = HEADER_PREFIX.length;
+        int signatureDot = token.lastIndexOf('.');
+
+        if (!token.startsWith(HEADER_SEGMENT) || token.length() <= payloadStart
+                || token.charAt(payloadStart - 1) != '.' || signatureDot < payloadStart
+                || token.length() - signatureDot - 1 != SIGNATURE_SEGMENT_LENGTH) {
+            return null;
+        }
+
+        Scratch current = scratch.get();
+        byte[] buffer = current.buffer(signatureDot);
+
+        for (int i = 0; i < signatureDot; i++) {
+            char c = token.charAt(i);
+
+            if (c >= 128) {
+                return null;
+            }
+            buffer[i] = (byte) c;
+        }
+
+        if (decode(token, signatureDot + 1, token.length(), current.signature) != SIGNATURE_BYTES) {
+            return null;
+        }
+
+        sign(current, buffer, signatureDot);
+
+        if (!isEqual(current.digest, current.signature)) {
+            throw new SignatureException("JWT signature does not match locally computed signature");
+        }
+
+        byte[] payload = current.payload(decodedLength(signatureDot - payloadStart));
+        int payloadLength = decode(token, payloadStart, signatureDot, payload);
+
+        if (payloadLength < 0) {
+            return null;
+        }
+
+        return JwtPayloadCodec.decode(payload, payloadLength);
+    }
+
+    // jjwt path for everything verify doesn't recognise, throws the usual jjwt exceptions
+    public Claims parseClaims(String token) {
+        return fallbackParser.parseClaimsJws(token).getBody();
+    }
+
+    private void sign(Scratch current, byte[] input, int length) {
+        current.mac.update(input, 0, length);
+
+        try {
+            current.mac.doFinal(current.digest, 0);
+        } catch (ShortBufferException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private Mac copyMac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException exception) {
+            throw new IllegalStateException("The " + ALGORITHM + " provider doesn't support cloning", exception);
+        }
+    }
+
+    private static Mac createMac(Key signKey) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(signKey.getEncoded(), ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException("Unable to initialize " + ALGORITHM, exception);
+        }
+    }
+
+    private static boolean isEqual(byte[] first, byte[] second) {
+        int difference = 0;
+
+        for (int i = 0; i < SIGNATURE_BYTES; i++) {
+            difference |= first[i] ^ second[i];
+        }
+
+        return difference == 0;
+    }
+
+    private static int encodedLength(int length) {
+        return (length * 4 + 2) / 3;
+    }
+
+    private static int decodedLength(int length) {
+        return length * 3 / 4;
+    }
+
+    private static void encode(byte[] source, int length, byte[] target, int offset) {
+        int position = offset;
+        int i = 0;
+
+        for (; i + 2 < length; i += 3) {
+            int bits = (source[i] & 0xFF) << 16 | (source[i + 1] & 0xFF) << 8 | (source[i + 2] & 0xFF);
+            target[position++] = BASE64_URL_ALPHABET[bits >>> 18];
+            target[position++] = BASE64_URL_ALPHABET[(bits >>> 12) & 0x3F];
+            target[position++] = BASE64_URL_ALPHABET[(bits >>> 6) & 0x3F];
+            target[position++] = BASE64_URL_ALPHABET[bits & 0x3F];
+        }
+
+        int remaining = length - i;
+
+        if (remaining == 1) {
+            int bits = (source[i] & 0xFF) << 16;
+            target[position++] = BASE64_URL_ALPHABET[bits >>> 18];
+            target[position] = BASE64_URL_ALPHABET[(bits >>> 12) & 0x3F];
+        } else if (remaining == 2) {
+            int bits = (source[i] & 0xFF) << 16 | (source[i + 1] & 0xFF) << 8;
+            target[position++] = BASE64_URL_ALPHABET[bits >>> 18];
+            target[position++] = BASE64_URL_ALPHABET[(bits >>> 12) & 0x3F];
+            target[position] = BASE64_URL_ALPHABET[(bits >>> 6) & 0x3F];
+        }
+    }
+
+    // unpadded base64url only, returns the number of decoded bytes or -1
+    private static int decode(String source, int from, int to, byte[] target) {
+        if ((to - from) % 4 == 1 || decodedLength(to - from) > target.length) {
+            return -1;
+        }
+
+        int bits = 0;
+        int bitCount = 0;
+        int position = 0;
+
+        for (int i = from; i < to; i++) {
+            char c = source.charAt(i);
+            int value = c < 128 ? BASE64_URL_VALUES[c] : -1;
+
+            if (value < 0) {
+                return -1;
+            }
+
+            bits = (bits << 6) | value;
+            bitCount += 6;
+
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                target[position++] = (byte) (bits >>> bitCount);
+                bits &= (1 << bitCount) - 1;
+            }
+        }
+
+        return position;
+    }
+
+    private static final class Scratch {
+        private final Mac mac;
+        private final byte[] digest = new byte[SIGNATURE_BYTES];
+        private final byte[] signature = new byte[SIGNATURE_BYTES];
+        private byte[] buffer = new byte[512];
+        private byte[] payload = new byte[256];
+
+        private Scratch(Mac mac) {
+            this.mac = mac;
+        }
+
+        private byte[] buffer(int length) {
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            return buffer;
+        }
+
+        private byte[] payload(int length) {
+            if (payload.length < length) {
+                payload = new byte[Math.max(length, payload.length * 2)];
+            }
+            return payload;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.ahicode.services;
+
+public interface InvalidTokenDeduplicator {
+    boolean shouldPublish(String token);
+}
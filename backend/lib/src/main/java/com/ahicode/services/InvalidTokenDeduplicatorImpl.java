@@ -0,0 +1,48 @@
+package com.ahicode.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+
+// a client retrying with a bad cookie publishes its token once per window instead of once per request
+public class InvalidTokenDeduplicatorImpl implements InvalidTokenDeduplicator {
+
+    private static final String METRIC_NAME = "jwt.invalid.token.publishes";
+
+    private final Cache<String, Boolean> seenTokens;
+    private final Counter publishedCounter;
+    private final Counter suppressedCounter;
+
+    public InvalidTokenDeduplicatorImpl(Duration window, long maximumSize, MeterRegistry meterRegistry) {
+        // least recently seen fingerprints are evicted first, so a flood of garbage only costs repeated publishes
+        this.seenTokens = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maximumSize)
+                .build();
+
+        this.publishedCounter = Counter.builder(METRIC_NAME)
+                .tag("result", "published")
+                .description("Invalid tokens sent to the blacklist topic")
+                .register(meterRegistry);
+        this.suppressedCounter = Counter.builder(METRIC_NAME)
+                .tag("result", "suppressed")
+                .description("Invalid tokens already sent within the deduplication window")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean shouldPublish(String token) {
+        boolean firstSeen = seenTokens.asMap().putIfAbsent(TokenFingerprint.of(token), Boolean.TRUE) == null;
+
+        if (firstSeen) {
+            publishedCounter.increment();
+        } else {
+            suppressedCounter.increment();
+        }
+
+        return firstSeen;
+    }
+}
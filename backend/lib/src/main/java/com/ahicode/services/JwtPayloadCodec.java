@@ -0,0 +1,289 @@
+package com.ahicode.services;
+
+import com.ahicode.dtos.VerifiedToken;
+import com.ahicode.enums.AppRole;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+public final class JwtPayloadCodec {
+
+    private static final byte[] ID_CLAIM = claimName("id");
+    private static final byte[] ROLE_CLAIM = claimName("role");
+    private static final byte[] SUBJECT_CLAIM = claimName("sub");
+    private static final byte[] TOKEN_ID_CLAIM = claimName("jti");
+    private static final byte[] TOKEN_EPOCH_CLAIM = claimName("tep");
+    private static final byte[] ISSUED_AT_CLAIM = claimName("iat");
+    private static final byte[] EXPIRATION_CLAIM = claimName("exp");
+
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    private JwtPayloadCodec() {
+    }
+
+    public static byte[] encode(
+            Long id, String role, String subject, String tokenId, int tokenEpoch, long issuedAt, long expiration
+    ) {
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+
+        builder.append('{');
+        if (id != null) {
+            builder.append("\"id\":").append(id.longValue()).append(',');
+        }
+        builder.append("\"role\":");
+        appendString(builder, role);
+        builder.append(",\"sub\":");
+        appendString(builder, subject);
+        if (tokenId != null) {
+            builder.append(",\"jti\":");
+            appendString(builder, tokenId);
+        }
+        // epoch 0 is the default, so the claim is left out until the user has revoked their sessions once
+        if (tokenEpoch > 0) {
+            builder.append(",\"tep\":").append(tokenEpoch);
+        }
+        builder.append(",\"iat\":").append(issuedAt);
+        builder.append(",\"exp\":").append(expiration);
+        builder.append('}');
+
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // returns null when the payload is not in the flat format written by encode, the caller then falls back to jjwt
+    public static VerifiedToken decode(byte[] json, int length) {
+        Scanner scanner = new Scanner(json, length);
+
+        Long id = null;
+        String role = null;
+        String subject = null;
+        String tokenId = null;
+        long tokenEpoch = 0;
+        long issuedAt = -1;
+        long expiration = -1;
+
+        if (!scanner.consume('{')) {
+            return null;
+        }
+
+        if (!scanner.consume('}')) {
+            do {
+                int keyStart = scanner.stringStart();
+                int keyEnd = scanner.stringEnd();
+
+                if (keyEnd < 0 || !scanner.consume(':')) {
+                    return null;
+                }
+
+                if (claimEquals(json, keyStart, keyEnd, ID_CLAIM)) {
+                    id = scanner.number();
+                    if (id == null) {
+                        return null;
+                    }
+                } else if (claimEquals(json, keyStart, keyEnd, ROLE_CLAIM)) {
+                    role = scanner.string();
+                    if (role == null) {
+                        return null;
+                    }
+                } else if (claimEquals(json, keyStart, keyEnd, SUBJECT_CLAIM)) {
+                    subject = scanner.string();
+                    if (subject == null) {
+                        return null;
+                    }
+                } else if (claimEquals(json, keyStart, keyEnd, TOKEN_ID_CLAIM)) {
+                    tokenId = scanner.string();
+                    if (tokenId == null) {
+                        return null;
+                    }
+                } else if (claimEquals(json, keyStart, keyEnd, TOKEN_EPOCH_CLAIM)) {
+                    Long value = scanner.number();
+                    if (value == null || value < 0 || value > Integer.MAX_VALUE) {
+                        return null;
+                    }
+                    tokenEpoch = value;
+                } else if (claimEquals(json, keyStart, keyEnd, ISSUED_AT_CLAIM)) {
+                    Long value = scanner.number();
+                    if (value == null) {
+                        return null;
+                    }
+                    issuedAt = value;
+                } else if (claimEquals(json, keyStart, keyEnd, EXPIRATION_CLAIM)) {
+                    Long value = scanner.number();
+                    if (value == null) {
+                        return null;
+                    }
+                    expiration = value;
+                } else {
+                    return null;
+                }
+            } while (scanner.consume(','));
+
+            if (!scanner.consume('}')) {
+                return null;
+            }
+        }
+
+        if (!scanner.isAtEnd() || expiration < 0) {
+            return null;
+        }
+
+        return VerifiedToken.builder()
+                .id(id)
+                .role(role != null ? AppRole.valueOf(role) : null)
+                .subject(subject)
+                .tokenId(tokenId)
+                .tokenEpoch((int) tokenEpoch)
+                .issuedAt(issuedAt >= 0 ? Instant.ofEpochSecond(issuedAt) : null)
+                .expiration(Instant.ofEpochSecond(expiration))
+                .build();
+    }
+
+    static void appendString(StringBuilder builder, String value) {
+        builder.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append("\\u00");
+                builder.append(Character.forDigit(c >> 4, 16));
+                builder.append(Character.forDigit(c & 0x0F, 16));
+            } else {
+                builder.append(c);
+            }
+        }
+
+        builder.append('"');
+    }
+
+    private static boolean claimEquals(byte[] json, int start, int end, byte[] claim) {
+        if (end - start != claim.length) {
+            return false;
+        }
+
+        for (int i = 0; i < claim.length; i++) {
+            if (json[start + i] != claim[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static byte[] claimName(String name) {
+        return name.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static final class Scanner {
+        private final byte[] json;
+        private final int length;
+        private int position;
+        private int stringStart;
+
+        private Scanner(byte[] json, int length) {
+            this.json = json;
+            this.length = length;
+        }
+
+        private boolean consume(char expected) {
+            skipWhitespace();
+
+            if (position < length && json[position] == expected) {
+                position++;
+                return true;
+            }
+
+            return false;
+        }
+
+        private boolean isAtEnd() {
+            skipWhitespace();
+            return position == length;
+        }
+
+        // strings with escape sequences are left to jjwt
+        private int stringStart() {
+            if (!consume('"')) {
+                return -1;
+            }
+
+            stringStart = position;
+            return position;
+        }
+
+        private int stringEnd() {
+            if (stringStart < 0 || position != stringStart) {
+                return -1;
+            }
+
+            while (position < length) {
+                byte current = json[position];
+
+                if (current == '"') {
+                    return position++;
+                }
+                if (current == '\\') {
+                    return -1;
+                }
+
+                position++;
+            }
+
+            return -1;
+        }
+
+        private String string() {
+            stringStart = -1;
+            int start = stringStart();
+            int end = stringEnd();
+
+            if (start < 0 || end < 0) {
+                return null;
+            }
+
+            return new String(json, start, end - start, StandardCharsets.UTF_8);
+        }
+
+        private Long number() {
+            skipWhitespace();
+
+            boolean negative = position < length && json[position] == '-';
+            if (negative) {
+                position++;
+            }
+
+            int start = position;
+            long value = 0;
+
+            // 18 digits always fit in a long
+            while (position < length && position - start < 18 && json[position] >= '0' && json[position] <= '9') {
+                value = value * 10 + (json[position] - '0');
+                position++;
+            }
+
+            if (position == start || (position < length && isNumberContinuation(json[position]))) {
+                return null;
+            }
+
+            return negative ? -value : value;
+        }
+
+        private boolean isNumberContinuation(byte current) {
+            return (current >= '0' && current <= '9') || current == '.' || current == 'e' || current == 'E';
+        }
+
+        private void skipWhitespace() {
+            while (position < length) {
+                byte current = json[position];
+
+                if (current != ' ' && current != '\t' && current != '\n' && current != '\r') {
+                    return;
+                }
+
+                position++;
+            }
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.ahicode.services;
 
+import com.ahicode.dtos.VerifiedToken;
 import com.ahicode.enums.AppRole;
 import org.springframework.security.core.Authentication;
 
 import java.util.Date;
+import java.util.Optional;
 
 public interface JwtService {
     Long extractUserIdFromAccessToken(String token);
@@ -18,6 +20,9 @@ public interface JwtService {
     boolean isRefreshTokenExpired(String token);
     Date extractRefreshTokenExpirationTime(String token);
     Authentication authenticatedAccessValidation(String token);
-    String generateAccessToken(Long id, String email, AppRole role);
-    String generateRefreshToken(Long id, String email, AppRole role);
+    Optional<VerifiedToken> verifyAccessToken(String token);
+    Optional<VerifiedToken> verifyRefreshToken(String token);
+    Authentication authenticate(VerifiedToken token);
+    String generateAccessToken(Long id, String email, AppRole role, int tokenEpoch);
+    String generateRefreshToken(Long id, String email, AppRole role, int tokenEpoch);
 }
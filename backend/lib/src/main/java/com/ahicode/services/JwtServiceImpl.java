@@ -1,29 +1,39 @@
 package com.ahicode.services;
 
+import com.ahicode.dtos.VerifiedToken;
 import com.ahicode.enums.AppRole;
+import com.ahicode.exceptions.AppException;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.security.SecureRandom;
 import java.time.Instant;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Optional;
 
 @Slf4j
 @Service
 public class JwtServiceImpl implements JwtService {
 
+    private static final int TOKEN_ID_BYTES = 12;
+    private static final Base64.Encoder TOKEN_ID_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    // token ids key revocations, so they must not be predictable from ones seen before
+    private static final SecureRandom TOKEN_ID_RANDOM = new SecureRandom();
+
     @Value("${application.security.jwt.access-token.secret-key}")
     private String accessTokenSecretKey;
     @Value("${application.security.jwt.access-token.expiration}")
@@ -33,97 +43,112 @@ public class JwtServiceImpl implements JwtService {
     @Value("${application.security.jwt.refresh-token.expiration}")
     private Long refreshTokenExpirationTime;
 
-    private Key accessSignKey;
-    private Key refreshSignKey;
+    // caches are optional, without them every call verifies the signature again
+    @Autowired(required = false)
+    @Qualifier("accessTokenCache")
+    private VerifiedTokenCache accessTokenCache;
+    @Autowired(required = false)
+    @Qualifier("refreshTokenCache")
+    private VerifiedTokenCache refreshTokenCache;
+
+    private Hs256JwtEngine accessTokenEngine;
+    private Hs256JwtEngine refreshTokenEngine;
 
     @PostConstruct
     private void init() {
-        accessSignKey = getAccessSignKey();
-        refreshSignKey = getRefreshSignKey();
+        accessTokenEngine = new Hs256JwtEngine(getAccessSignKey());
+        refreshTokenEngine = new Hs256JwtEngine(getRefreshSignKey());
     }
 
     @Override
     public Long extractUserIdFromAccessToken(String token) {
-        Claims claims = extractAllClaims(token, accessSignKey);
-
-        return claims.get("id", Long.class);
+        return extractVerifiedToken(token, accessTokenEngine, accessTokenCache).getId();
     }
 
     @Override
     public Long extractUserIdFromRefreshToken(String token) {
-        Claims claims = extractAllClaims(token, refreshSignKey);
-
-        return claims.get("id", Long.class);
+        return extractVerifiedToken(token, refreshTokenEngine, refreshTokenCache).getId();
     }
 
     @Override
     public AppRole extractRoleFromAccessToken(String token) {
-        Claims claims = extractAllClaims(token, accessSignKey);
-        String role = claims.get("role", String.class);
-
-        return AppRole.valueOf(role);
+        return extractVerifiedToken(token, accessTokenEngine, accessTokenCache).getRole();
     }
 
     @Override
     public AppRole extractRoleFromRefreshToken(String token) {
-        Claims claims = extractAllClaims(token, refreshSignKey);
-        String role = claims.get("role", String.class);
-
-        return AppRole.valueOf(role);
+        return extractVerifiedToken(token, refreshTokenEngine, refreshTokenCache).getRole();
     }
 
     @Override
     public String extractEmailFromAccessToken(String token) {
-        Claims claims = extractAllClaims(token, accessSignKey);
-
-        return claims.getSubject();
+        return extractVerifiedToken(token, accessTokenEngine, accessTokenCache).getSubject();
     }
 
     @Override
     public String extractEmailFromRefreshToken(String token) {
-        Claims claims = extractAllClaims(token, refreshSignKey);
-
-        return claims.getSubject();
+        return extractVerifiedToken(token, refreshTokenEngine, refreshTokenCache).getSubject();
     }
 
     @Override
     public boolean isAccessTokenValid(String token) {
-        return validateToken(token, accessSignKey);
+        return validateToken(token, accessTokenEngine, accessTokenCache);
     }
 
     @Override
     public boolean isRefreshTokenValid(String token) {
-        return validateToken(token, refreshSignKey);
+        return validateToken(token, refreshTokenEngine, refreshTokenCache);
     }
 
     @Override
     public boolean isAccessTokenExpired(String token) {
-        return expirationValidate(token, accessSignKey);
+        return expirationValidate(token, accessTokenEngine, accessTokenCache);
     }
 
     @Override
     public boolean isRefreshTokenExpired(String token) {
-        return expirationValidate(token, refreshSignKey);
+        return expirationValidate(token, refreshTokenEngine, refreshTokenCache);
     }
 
     @Override
     public Date extractRefreshTokenExpirationTime(String token) {
-        return extractTokenExpiration(token, refreshSignKey);
+        return Date.from(extractVerifiedToken(token, refreshTokenEngine, refreshTokenCache).getExpiration());
     }
 
     @Override
     public Authentication authenticatedAccessValidation(String token) {
-        return authValidateToken(token, accessSignKey);
+        return authenticate(extractVerifiedToken(token, accessTokenEngine, accessTokenCache));
     }
 
     @Override
-    public String generateAccessToken(Long id, String email, AppRole role) {
-        return generateToken(email, id, role, accessSignKey, accessTokenExpirationTime);
+    public Optional<VerifiedToken> verifyAccessToken(String token) {
+        return verifyToken(token, accessTokenEngine, accessTokenCache);
     }
 
     @Override
-    public String generateRefreshToken(Long id, String email, AppRole role) {
-        return generateToken(email, id, role, refreshSignKey, refreshTokenExpirationTime);
+    public Optional<VerifiedToken> verifyRefreshToken(String token) {
+        return verifyToken(token, refreshTokenEngine, refreshTokenCache);
+    }
+
+    @Override
+    public Authentication authenticate(VerifiedToken token) {
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                token.getSubject(), null, Collections.emptyList()
+        );
+        // controllers read the user id and role from the details instead of parsing the token again
+        authentication.setDetails(token);
+
+        return authentication;
+    }
+
+    @Override
+    public String generateAccessToken(Long id, String email, AppRole role, int tokenEpoch) {
+        return generateToken(email, id, role, tokenEpoch, accessTokenEngine, accessTokenExpirationTime);
+    }
+
+    @Override
+    public String generateRefreshToken(Long id, String email, AppRole role, int tokenEpoch) {
+        return generateToken(email, id, role, tokenEpoch, refreshTokenEngine, refreshTokenExpirationTime);
     }
 
     private Key getAccessSignKey() {
@@ -136,62 +161,101 @@ public class JwtServiceImpl implements JwtService {
         return Keys.hmacShaKeyFor(keyBytes);
     }
 
-    private boolean validateToken(String token, Key signKey) {
-        try {
-            Jwts.parserBuilder()
-                    .setSigningKey(signKey)
-                    .build()
-                    .parseClaimsJws(token);
+    private boolean validateToken(String token, Hs256JwtEngine engine, VerifiedTokenCache cache) {
+        return verifyToken(token, engine, cache)
+                .map(verifiedToken -> !verifiedToken.isExpired())
+                .orElse(false);
+    }
 
-            return true;
-        } catch (RuntimeException exception) {
-            log.error("Attempt to validate token with wrong signed token {} with exception: {}", token, exception.getMessage());
-            return false;
+    private boolean expirationValidate(String token, Hs256JwtEngine engine, VerifiedTokenCache cache) {
+        VerifiedToken verifiedToken = verifyToken(token, engine, cache).orElseThrow(
+                () -> new AppException("The token is not valid", HttpStatus.UNAUTHORIZED)
+        );
+
+        return verifiedToken.isExpired();
+    }
+
+    private VerifiedToken extractVerifiedToken(String token, Hs256JwtEngine engine, VerifiedTokenCache cache) {
+        // invalid and expired tokens throw, as callers of the extract methods expect
+        VerifiedToken verifiedToken = lookupToken(token, engine, cache);
+
+        if (verifiedToken.isExpired()) {
+            throw new ExpiredJwtException(null, null, "JWT expired at " + verifiedToken.getExpiration());
         }
+
+        return verifiedToken;
     }
 
-    private Claims extractAllClaims(String token, Key signKey) {
-        return Jwts.parserBuilder()
-                .setSigningKey(signKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private Optional<VerifiedToken> verifyToken(String token, Hs256JwtEngine engine, VerifiedTokenCache cache) {
+        try {
+            return Optional.of(lookupToken(token, engine, cache));
+        } catch (RuntimeException exception) {
+            log.error("Attempt to verify token with wrong signed token {} with exception: {}", token, exception.getMessage());
+            return Optional.empty();
+        }
     }
 
-    private boolean expirationValidate(String token, Key signKey) {
-        Date expirationDate = extractTokenExpiration(token, signKey);
+    private VerifiedToken lookupToken(String token, Hs256JwtEngine engine, VerifiedTokenCache cache) {
+        if (cache == null) {
+            return parseToken(token, engine);
+        }
 
-        return expirationDate.before(new Date());
-    }
+        String fingerprint = TokenFingerprint.of(token);
+        VerifiedToken cachedToken = cache.get(fingerprint);
 
-    private Date extractTokenExpiration(String token, Key signKey) {
-        Claims claims = extractAllClaims(token, signKey);
+        if (cachedToken != null) {
+            return cachedToken;
+        }
+
+        VerifiedToken verifiedToken = parseToken(token, engine);
+        cache.put(fingerprint, verifiedToken);
 
-        return claims.getExpiration();
+        return verifiedToken;
     }
 
-    private Authentication authValidateToken(String token, Key signKey) {
-        Claims claims = extractAllClaims(token, signKey);
+    private VerifiedToken parseToken(String token, Hs256JwtEngine engine) {
+        VerifiedToken verifiedToken = engine.verify(token);
 
-        String email = claims.getSubject();
+        if (verifiedToken != null) {
+            return verifiedToken;
+        }
+
+        try {
+            return makeVerifiedToken(engine.parseClaims(token));
+        } catch (ExpiredJwtException exception) {
+            // jjwt checks the signature before the expiration, so the claims of an expired token are still trusted
+            return makeVerifiedToken(exception.getClaims());
+        }
+    }
 
-        return new UsernamePasswordAuthenticationToken(email, null, Collections.emptyList());
+    private VerifiedToken makeVerifiedToken(Claims claims) {
+        String role = claims.get("role", String.class);
+        Integer tokenEpoch = claims.get("tep", Integer.class);
+        Date expiration = claims.getExpiration();
+        Date issuedAt = claims.getIssuedAt();
+
+        return VerifiedToken.builder()
+                .id(claims.get("id", Long.class))
+                .role(role != null ? AppRole.valueOf(role) : null)
+                .subject(claims.getSubject())
+                .tokenId(claims.getId())
+                .tokenEpoch(tokenEpoch != null ? tokenEpoch : 0)
+                .expiration(expiration != null ? expiration.toInstant() : null)
+                .issuedAt(issuedAt != null ? issuedAt.toInstant() : null)
+                .build();
     }
 
-    private String generateToken(String email, Long userId, AppRole role, Key signKey, Long expirationTime) {
+    private String generateToken(
+            String email, Long userId, AppRole role, int tokenEpoch, Hs256JwtEngine engine, Long expirationTime
+    ) {
         Instant now = Instant.now();
-        long currentTimeMillis = now.toEpochMilli();
-
-        Map<String, Object> claims = new HashMap<>();
-        claims.put("id", userId);
-        claims.put("role", role.toString());
-
-        return Jwts.builder()
-                .setClaims(claims)
-                .setSubject(email)
-                .setIssuedAt(Date.from(now))
-                .setExpiration(new Date(currentTimeMillis + expirationTime))
-                .signWith(signKey, SignatureAlgorithm.HS256)
-                .compact();
+        return engine.sign(userId, role, email, newTokenId(), tokenEpoch, now, now.plusMillis(expirationTime));
+    }
+
+    // 96 random bits, 16 base64url characters, enough to key the blacklist without storing the whole token
+    private static String newTokenId() {
+        byte[] tokenId = new byte[TOKEN_ID_BYTES];
+        TOKEN_ID_RANDOM.nextBytes(tokenId);
+        return TOKEN_ID_ENCODER.encodeToString(tokenId);
     }
 }
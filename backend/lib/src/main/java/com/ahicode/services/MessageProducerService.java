@@ -1,7 +1,9 @@
 package com.ahicode.services;
 
-import java.util.List;
+import com.ahicode.enums.RevocationReason;
 
 public interface MessageProducerService {
-    void sendMessage(List<String> message);
+    void revokeSession(String accessToken, String refreshToken, RevocationReason reason);
+    void sendInvalidToken(String token);
+    void sendTokenEpoch(Long userId, int minimumEpoch);
 }
@@ -1,26 +1,115 @@
 package com.ahicode.services;
 
+import com.ahicode.config.KafkaProducerConfig;
+import com.ahicode.dtos.RevocationEvent;
+import com.ahicode.dtos.VerifiedToken;
+import com.ahicode.enums.RevocationReason;
+import com.ahicode.exceptions.AppException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+@Slf4j
 @Service
 public class MessageProducerServiceImpl implements MessageProducerService {
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
     private static final String TOPIC = "blacklist_tokens_topic";
+    private static final String METRIC_NAME = "kafka.blacklist.tokens.sent";
+    private static final Duration TOKEN_EPOCH_SEND_TIMEOUT = Duration.ofSeconds(10);
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final InvalidTokenDeduplicator deduplicator;
+    private final JwtService jwtService;
+    private final String issuer;
+    private final Counter successCounter;
+    private final Counter failureCounter;
+    private final Counter skippedCounter;
 
     @Autowired
-    public MessageProducerServiceImpl(KafkaTemplate<String, String> kafkaTemplate) {
+    public MessageProducerServiceImpl(
+            KafkaTemplate<String, String> kafkaTemplate,
+            InvalidTokenDeduplicator deduplicator,
+            JwtService jwtService,
+            MeterRegistry meterRegistry,
+            @Value("${spring.application.name:unknown}") String issuer
+    ) {
         this.kafkaTemplate = kafkaTemplate;
+        this.deduplicator = deduplicator;
+        this.jwtService = jwtService;
+        this.issuer = issuer;
+        this.successCounter = Counter.builder(METRIC_NAME).tag("result", "success").register(meterRegistry);
+        this.failureCounter = Counter.builder(METRIC_NAME).tag("result", "failure").register(meterRegistry);
+        this.skippedCounter = Counter.builder(METRIC_NAME).tag("result", "skipped").register(meterRegistry);
+    }
+
+    // only a verified token is keyed by its jti, one that doesn't verify is blacklisted by its fingerprint if it has no jti
+    @Override
+    public void revokeSession(String accessToken, String refreshToken, RevocationReason reason) {
+        send(event(accessToken, jwtService.verifyAccessToken(accessToken), reason));
+        send(event(refreshToken, jwtService.verifyRefreshToken(refreshToken), reason));
+    }
+
+    @Override
+    public void sendInvalidToken(String token) {
+        if (deduplicator.shouldPublish(token)) {
+            send(RevocationEventFactory.fromUnverifiedToken(token, RevocationReason.INVALID_TOKEN, issuer));
+        }
     }
 
+    // called once the new epoch is committed, and waits for the broker: a caller told that logging out everywhere
+    // worked must be able to rely on it. On failure the call can simply be repeated, the epoch only goes up
     @Override
-    public void sendMessage(List<String> message) {
-        for (String token : message) {
-            kafkaTemplate.send(TOPIC, token);
+    public void sendTokenEpoch(Long userId, int minimumEpoch) {
+        try {
+            kafkaTemplate.send(KafkaProducerConfig.TOKEN_EPOCH_TOPIC, String.valueOf(userId), String.valueOf(minimumEpoch))
+                    .get(TOKEN_EPOCH_SEND_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw tokenEpochNotSent(userId, exception);
+        } catch (ExecutionException | TimeoutException exception) {
+            throw tokenEpochNotSent(userId, exception);
         }
     }
+
+    private AppException tokenEpochNotSent(Long userId, Exception exception) {
+        log.error("Failed to send the token epoch of the user with id {} to the kafka topic with exception: {}",
+                userId, exception.toString());
+        return new AppException("The sessions could not be revoked everywhere, please try again later",
+                HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private RevocationEvent event(String token, Optional<VerifiedToken> verifiedToken, RevocationReason reason) {
+        return verifiedToken
+                .map(verified -> RevocationEventFactory.fromVerifiedToken(token, verified, reason, issuer))
+                .orElseGet(() -> RevocationEventFactory.fromUnverifiedToken(token, reason, issuer));
+    }
+
+    private void send(RevocationEvent event) {
+        if (event == null) {
+            skippedCounter.increment();
+            log.warn("A token without a readable expiration, or claiming a jti it can't be trusted with, was not sent to the kafka topic");
+            return;
+        }
+
+        // keyed by the blacklist key, so the same token always lands on the same partition
+        kafkaTemplate.send(TOPIC, event.getKey(), RevocationEventCodec.encode(event)).whenComplete((result, exception) -> {
+            if (exception == null) {
+                successCounter.increment();
+            } else {
+                failureCounter.increment();
+                log.error("Failed to send a token to the kafka topic with exception: {}", exception.getMessage());
+            }
+        });
+    }
 }
@@ -0,0 +1,53 @@
+package com.ahicode.services;
+
+import com.ahicode.dtos.RevocationEvent;
+import com.ahicode.dtos.VerifiedToken;
+import com.ahicode.enums.RevocationReason;
+
+import java.util.Base64;
+
+// turns the tokens of a session into the events RevocationEventCodec writes to the blacklist topic
+public final class RevocationEventFactory {
+
+    private RevocationEventFactory() {
+    }
+
+    // a token that passed verification, keyed by its jti when it has one
+    public static RevocationEvent fromVerifiedToken(String token, VerifiedToken verifiedToken, RevocationReason reason, String issuer) {
+        if (verifiedToken.getExpiration() == null) {
+            return null;
+        }
+
+        return RevocationEvent.forToken(token, verifiedToken.getTokenId(), verifiedToken.getExpiration(), reason, issuer);
+    }
+
+    // the signature isn't checked, so the payload may claim the jti of someone else's token and must not be keyed by
+    // it. The gateway looks such a token up by that jti all the same, so it can't be blacklisted at all, only a token
+    // without a jti is, by its fingerprint. Returns null for those and when the payload has no readable exp
+    public static RevocationEvent fromUnverifiedToken(String token, RevocationReason reason, String issuer) {
+        VerifiedToken claims = readClaims(token);
+
+        if (claims == null || claims.getTokenId() != null) {
+            return null;
+        }
+
+        return RevocationEvent.forToken(token, null, claims.getExpiration(), reason, issuer);
+    }
+
+    private static VerifiedToken readClaims(String token) {
+        int payloadStart = token.indexOf('.') + 1;
+        int payloadEnd = payloadStart > 0 ? token.indexOf('.', payloadStart) : -1;
+
+        if (payloadEnd < 0) {
+            return null;
+        }
+
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(token.substring(payloadStart, payloadEnd));
+            return JwtPayloadCodec.decode(payload, payload.length);
+        } catch (IllegalArgumentException exception) {
+            // not base64url, or a role the services don't know
+            return null;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.ahicode.services;
+
+import com.ahicode.dtos.VerifiedToken;
+
+public interface TokenEpochService {
+    boolean isRevoked(VerifiedToken token);
+    void update(Long userId, int minimumEpoch);
+}
@@ -0,0 +1,23 @@
+package com.ahicode.services;
+
+import com.ahicode.dtos.VerifiedToken;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+public class TokenEpochServiceImpl implements TokenEpochService {
+
+    // fed by the TokenEpochTableReader of TokenEpochConfig, which reads the whole topic on every instance
+    private final TokenEpochTable table;
+
+    @Override
+    public boolean isRevoked(VerifiedToken token) {
+        return table.isRevoked(token.getId(), token.getTokenEpoch());
+    }
+
+    @Override
+    public void update(Long userId, int minimumEpoch) {
+        table.update(userId, minimumEpoch);
+    }
+}
@@ -0,0 +1,18 @@
+package com.ahicode.services;
+
+import com.ahicode.dtos.VerifiedToken;
+
+import java.util.Optional;
+
+public interface TrustedIdentityService {
+    boolean isEnabled();
+    Optional<VerifiedToken> verify(
+            String userId,
+            String role,
+            String subject,
+            String tokenId,
+            String tokenEpoch,
+            String expiration,
+            String signature
+    );
+}
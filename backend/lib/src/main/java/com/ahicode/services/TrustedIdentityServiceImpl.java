@@ -0,0 +1,105 @@
+package com.ahicode.services;
+
+import com.ahicode.config.TrustedIdentityHeaders;
+import com.ahicode.dtos.VerifiedToken;
+import com.ahicode.enums.AppRole;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+@Slf4j
+@Service
+public class TrustedIdentityServiceImpl implements TrustedIdentityService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    @Value("${application.security.trusted-identity.enabled:false}")
+    private boolean enabled;
+    @Value("${application.security.trusted-identity.secret-key:}")
+    private String secretKey;
+
+    private ThreadLocal<Mac> mac;
+
+    @PostConstruct
+    private void init() {
+        if (!enabled) {
+            return;
+        }
+
+        if (secretKey == null || secretKey.isBlank()) {
+            throw new IllegalStateException("Trusted identity headers are enabled without a secret key");
+        }
+
+        SecretKeySpec key = new SecretKeySpec(Base64.getDecoder().decode(secretKey), ALGORITHM);
+        mac = ThreadLocal.withInitial(() -> createMac(key));
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Optional<VerifiedToken> verify(
+            String userId,
+            String role,
+            String subject,
+            String tokenId,
+            String tokenEpoch,
+            String expiration,
+            String signature
+    ) {
+        // the jti is optional, tokens issued without one are signed with an empty token id
+        if (!enabled || userId == null || role == null || subject == null || tokenEpoch == null || expiration == null
+                || signature == null) {
+            return Optional.empty();
+        }
+
+        try {
+            byte[] expectedSignature = mac.get().doFinal(
+                    TrustedIdentityHeaders.canonical(userId, role, subject, tokenId, tokenEpoch, expiration)
+                            .getBytes(StandardCharsets.UTF_8)
+            );
+
+            if (!MessageDigest.isEqual(expectedSignature, Base64.getUrlDecoder().decode(signature))) {
+                log.error("Identity headers with a wrong signature for user with id {}", userId);
+                return Optional.empty();
+            }
+
+            VerifiedToken token = VerifiedToken.builder()
+                    .id(Long.valueOf(userId))
+                    .role(AppRole.valueOf(role))
+                    .subject(URLDecoder.decode(subject, StandardCharsets.UTF_8))
+                    .tokenId(tokenId == null || tokenId.isEmpty() ? null : tokenId)
+                    .tokenEpoch(Integer.parseInt(tokenEpoch))
+                    .expiration(Instant.ofEpochSecond(Long.parseLong(expiration)))
+                    .build();
+
+            return token.isExpired() ? Optional.empty() : Optional.of(token);
+        } catch (IllegalArgumentException exception) {
+            log.error("Malformed identity headers with exception: {}", exception.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static Mac createMac(SecretKeySpec key) {
+        try {
+            Mac instance = Mac.getInstance(ALGORITHM);
+            instance.init(key);
+            return instance;
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException("Unable to initialize " + ALGORITHM, exception);
+        }
+    }
+}
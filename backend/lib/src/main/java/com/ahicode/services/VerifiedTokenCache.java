@@ -0,0 +1,8 @@
+package com.ahicode.services;
+
+import com.ahicode.dtos.VerifiedToken;
+
+public interface VerifiedTokenCache {
+    VerifiedToken get(String fingerprint);
+    void put(String fingerprint, VerifiedToken token);
+}
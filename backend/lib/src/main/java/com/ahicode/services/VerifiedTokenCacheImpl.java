@@ -0,0 +1,67 @@
+package com.ahicode.services;
+
+import com.ahicode.dtos.VerifiedToken;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.time.Instant;
+
+public class VerifiedTokenCacheImpl implements VerifiedTokenCache {
+
+    private static final String METRIC_NAME = "jwt.verified.tokens";
+
+    private final Cache<String, VerifiedToken> cache;
+
+    public VerifiedTokenCacheImpl(String tokenType, long maximumSize, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+
+        // exposes cache.gets{result=hit|miss}, cache.evictions and cache.size
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, METRIC_NAME, "token", tokenType);
+    }
+
+    @Override
+    public VerifiedToken get(String fingerprint) {
+        return cache.getIfPresent(fingerprint);
+    }
+
+    @Override
+    public void put(String fingerprint, VerifiedToken token) {
+        // an expired token is never worth caching, and an entry must not outlive the token's exp
+        if (token.getExpiration() != null && !token.isExpired()) {
+            cache.put(fingerprint, token);
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static class TokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String fingerprint, VerifiedToken token, long currentTime) {
+            long nanosUntilExpiration = Duration.between(Instant.now(), token.getExpiration()).toNanos();
+
+            return Math.max(nanosUntilExpiration, 0L);
+        }
+
+        @Override
+        public long expireAfterUpdate(String fingerprint, VerifiedToken token, long currentTime, long currentDuration) {
+            return expireAfterCreate(fingerprint, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String fingerprint, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
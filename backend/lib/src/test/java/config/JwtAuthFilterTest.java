@@ -1,7 +1,9 @@
 package config;
 
 import com.ahicode.config.JwtAuthFilter;
+import com.ahicode.config.TrustedIdentityFilter;
 import com.ahicode.config.UserAuthenticationProvider;
+import com.ahicode.dtos.VerifiedToken;
 import com.ahicode.enums.AppRole;
 import com.ahicode.services.MessageProducerServiceImpl;
 import jakarta.servlet.FilterChain;
@@ -17,6 +19,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.util.WebUtils;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.util.Optional;
 
 import static org.mockito.Mockito.*;
 
@@ -39,6 +43,7 @@ public class JwtAuthFilterTest {
         HttpServletResponse response = mock(HttpServletResponse.class);
 
         // setup request URI for allowed path
+        when(request.getMethod()).thenReturn("POST");
         when(request.getRequestURI()).thenReturn("/api/v1/auth/login");
 
         jwtAuthFilter.doFilter(request, response, filterChain);
@@ -46,6 +51,36 @@ public class JwtAuthFilterTest {
         verify(filterChain, times(1)).doFilter(request, response);
     }
 
+    @Test
+    void shouldLetPreflightOfPublicRoutesThrough() throws Exception {
+        FilterChain filterChain = mock(FilterChain.class);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        when(request.getMethod()).thenReturn("OPTIONS");
+        when(request.getRequestURI()).thenReturn("/api/v1/auth/login");
+
+        jwtAuthFilter.doFilter(request, response, filterChain);
+
+        verifyNoInteractions(provider);
+        verify(filterChain, times(1)).doFilter(request, response);
+    }
+
+    @Test
+    void shouldSkipStaticResources() throws Exception {
+        FilterChain filterChain = mock(FilterChain.class);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getRequestURI()).thenReturn("/swagger-ui/swagger-ui-bundle.js");
+
+        jwtAuthFilter.doFilter(request, response, filterChain);
+
+        verifyNoInteractions(provider);
+        verify(filterChain, times(1)).doFilter(request, response);
+    }
+
     @Test
     void shouldSendAuthenticationErrorWhenTokensAreExpired() throws Exception {
         FilterChain filterChain = mock(FilterChain.class);
@@ -55,8 +90,8 @@ public class JwtAuthFilterTest {
         when(request.getRequestURI()).thenReturn("/api/v1/protected");
         // setup http header like null
         when(request.getHeader(HttpHeaders.AUTHORIZATION)).thenReturn(null);
-        when(provider.isAccessTokenExpired(any())).thenReturn(true);
-        when(provider.isRefreshTokenExpired(any())).thenReturn(true);
+        when(provider.verifyAccessToken(any())).thenReturn(Optional.of(expiredToken()));
+        when(provider.verifyRefreshToken(any())).thenReturn(Optional.of(expiredToken()));
 
         jwtAuthFilter.doFilter(request, response, filterChain);
 
@@ -77,14 +112,13 @@ public class JwtAuthFilterTest {
         when(request.getRequestURI()).thenReturn("/auth/v1/protected");
         when(request.getHeader(HttpHeaders.AUTHORIZATION)).thenReturn("Bearer " + validAccessToken);
         when(request.getCookies()).thenReturn(new Cookie[]{refreshTokenCookie});
-        when(provider.isRefreshTokenValid(validRefreshToken)).thenReturn(true);
-        when(provider.isRefreshTokenExpired(validRefreshToken)).thenReturn(false);
-        when(provider.isAccessTokenExpired(validAccessToken)).thenReturn(false);
-        when(provider.isAccessTokenValid(validAccessToken)).thenReturn(true);
+        VerifiedToken verifiedAccessToken = freshToken();
+        when(provider.verifyRefreshToken(validRefreshToken)).thenReturn(Optional.of(freshToken()));
+        when(provider.verifyAccessToken(validAccessToken)).thenReturn(Optional.of(verifiedAccessToken));
 
         jwtAuthFilter.doFilter(request, response, filterChain);
 
-        verify(provider, times(1)).authenticatedAccessValidation(validAccessToken);
+        verify(provider, times(1)).authenticate(verifiedAccessToken);
         verify(filterChain, times(1)).doFilter(request, response);
     }
 
@@ -101,21 +135,43 @@ public class JwtAuthFilterTest {
         when(request.getRequestURI()).thenReturn("/auth/v1/protected");
         when(request.getHeader(HttpHeaders.AUTHORIZATION)).thenReturn(null);
         when(request.getCookies()).thenReturn(new Cookie[]{refreshTokenCookie});
-        when(provider.isAccessTokenExpired(null)).thenReturn(true);
-        when(provider.isRefreshTokenValid(validRefreshToken)).thenReturn(true);
-        when(provider.isRefreshTokenExpired(validRefreshToken)).thenReturn(false);
-        when(provider.extractUserId(validRefreshToken)).thenReturn(1L);
-        when(provider.extractRole(validRefreshToken)).thenReturn(AppRole.USER);
-        when(provider.extractEmail(validRefreshToken)).thenReturn("mock@example.com");
-        when(provider.generateAccessToken(1L, "mock@example.com", AppRole.USER)).thenReturn(newAccessToken);
+        VerifiedToken verifiedRefreshToken = freshToken();
+        when(provider.verifyRefreshToken(validRefreshToken)).thenReturn(Optional.of(verifiedRefreshToken));
+        when(provider.generateAccessToken(validRefreshToken, verifiedRefreshToken)).thenReturn(newAccessToken);
 
         jwtAuthFilter.doFilter(request, response, filterChain);
 
         verify(response, times(1)).addCookie(any(Cookie.class));
-        verify(provider, times(1)).authenticatedAccessValidation(newAccessToken);
+        verify(provider, times(1)).generateAccessToken(validRefreshToken, verifiedRefreshToken);
+        verify(provider, times(1)).authenticate(verifiedRefreshToken);
         verify(filterChain, times(1)).doFilter(request, response);
     }
 
+    @Test
+    void shouldRejectTokensOfRevokedSession() throws ServletException, IOException {
+        String validRefreshToken = "validRefresherToken";
+        FilterChain filterChain = mock(FilterChain.class);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        Cookie refreshTokenCookie = new Cookie("refreshToken", validRefreshToken);
+
+        when(request.getRequestURI()).thenReturn("/auth/v1/protected");
+        when(request.getHeader(HttpHeaders.AUTHORIZATION)).thenReturn(null);
+        when(request.getCookies()).thenReturn(new Cookie[]{refreshTokenCookie});
+        VerifiedToken verifiedRefreshToken = freshToken();
+        when(provider.verifyRefreshToken(validRefreshToken)).thenReturn(Optional.of(verifiedRefreshToken));
+        when(provider.isSessionRevoked(verifiedRefreshToken)).thenReturn(true);
+
+        jwtAuthFilter.doFilter(request, response, filterChain);
+
+        verify(response, times(1))
+                .sendError(HttpStatus.UNAUTHORIZED.value(), "The session has been revoked, please authorize again");
+        verify(provider, never()).generateAccessToken(any(), any());
+        verifyNoInteractions(messageProducerService);
+        verify(filterChain, never()).doFilter(request, response);
+    }
+
     @Test
     void shouldThrowErrorForInvalidAccessToken() throws ServletException, IOException {
         String invalidAccessToken = "invalidAccessToken";
@@ -129,10 +185,8 @@ public class JwtAuthFilterTest {
         when(request.getRequestURI()).thenReturn("/auth/v1/protected");
         when(request.getHeader(HttpHeaders.AUTHORIZATION)).thenReturn("Bearer " + invalidAccessToken);
         when(request.getCookies()).thenReturn(new Cookie[]{refreshTokenCookie});
-        when(provider.isRefreshTokenExpired(validRefreshToken)).thenReturn(false);
-        when(provider.isRefreshTokenValid(validRefreshToken)).thenReturn(true);
-        when(provider.isAccessTokenExpired(invalidAccessToken)).thenReturn(false);
-        when(provider.isAccessTokenValid(invalidAccessToken)).thenReturn(false);
+        when(provider.verifyRefreshToken(validRefreshToken)).thenReturn(Optional.of(freshToken()));
+        when(provider.verifyAccessToken(invalidAccessToken)).thenReturn(Optional.empty());
 
         jwtAuthFilter.doFilter(request, response, filterChain);
 
@@ -169,13 +223,13 @@ public class JwtAuthFilterTest {
 
         when(request.getRequestURI()).thenReturn("/api/v1/protected");
         when(request.getCookies()).thenReturn(new Cookie[]{refreshTokenCookie});
-        when(provider.isAccessTokenExpired(any())).thenReturn(true);
-        when(provider.isRefreshTokenValid(refreshToken)).thenReturn(false);
+        when(provider.verifyRefreshToken(refreshToken)).thenReturn(Optional.empty());
 
         jwtAuthFilter.doFilter(request, response, filterChain);
 
         verify(response, times(1))
                 .sendError(HttpStatus.UNAUTHORIZED.value(), "The refresh token was lost or is not valid");
+        verify(messageProducerService, times(1)).sendInvalidToken(refreshToken);
         verify(filterChain, never()).doFilter(request, response);
     }
 
@@ -191,9 +245,7 @@ public class JwtAuthFilterTest {
         when(request.getRequestURI()).thenReturn("/auth/v1/protected");
         when(request.getHeader(HttpHeaders.AUTHORIZATION)).thenReturn(null);
         when(request.getCookies()).thenReturn(new Cookie[]{refreshTokenCookie});
-        when(provider.isAccessTokenExpired(null)).thenReturn(true);
-        when(provider.isRefreshTokenValid(refreshToken)).thenReturn(true);
-        when(provider.isRefreshTokenExpired(refreshToken)).thenReturn(true);
+        when(provider.verifyRefreshToken(refreshToken)).thenReturn(Optional.of(expiredToken()));
 
         jwtAuthFilter.doFilter(request, response, filterChain);
 
@@ -201,4 +253,37 @@ public class JwtAuthFilterTest {
                 .sendError(HttpStatus.UNAUTHORIZED.value(), "The refresh token is expired, please authorize again");
         verify(filterChain, never()).doFilter(request, response);
     }
+
+    @Test
+    void shouldSkipRequestAuthenticatedByTrustedIdentity() throws ServletException, IOException {
+        FilterChain filterChain = mock(FilterChain.class);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        when(request.getRequestURI()).thenReturn("/api/v1/project/projects");
+        when(request.getAttribute(TrustedIdentityFilter.TRUSTED_IDENTITY_ATTRIBUTE)).thenReturn(freshToken());
+
+        jwtAuthFilter.doFilter(request, response, filterChain);
+
+        verifyNoInteractions(provider);
+        verify(filterChain, times(1)).doFilter(request, response);
+    }
+
+    private VerifiedToken freshToken() {
+        return makeToken(Instant.now().plusSeconds(3600));
+    }
+
+    private VerifiedToken expiredToken() {
+        return makeToken(Instant.now().minusSeconds(60));
+    }
+
+    private VerifiedToken makeToken(Instant expiration) {
+        return VerifiedToken.builder()
+                .id(1L)
+                .role(AppRole.USER)
+                .subject("mock@example.com")
+                .issuedAt(expiration.minusSeconds(3600))
+                .expiration(expiration)
+                .build();
+    }
 }
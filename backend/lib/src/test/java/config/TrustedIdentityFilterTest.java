@@ -0,0 +1,99 @@
+package config;
+
+import com.ahicode.config.TrustedIdentityFilter;
+import com.ahicode.config.TrustedIdentityHeaders;
+import com.ahicode.config.UserAuthenticationProvider;
+import com.ahicode.dtos.VerifiedToken;
+import com.ahicode.enums.AppRole;
+import com.ahicode.services.TrustedIdentityService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class TrustedIdentityFilterTest {
+    private TrustedIdentityFilter trustedIdentityFilter;
+    private UserAuthenticationProvider provider;
+    private TrustedIdentityService identityService;
+
+    @BeforeEach
+    void setup() {
+        provider = Mockito.mock(UserAuthenticationProvider.class);
+        identityService = Mockito.mock(TrustedIdentityService.class);
+        trustedIdentityFilter = new TrustedIdentityFilter(provider, identityService);
+    }
+
+    @Test
+    void shouldAuthenticateSignedIdentity() throws ServletException, IOException {
+        FilterChain filterChain = mock(FilterChain.class);
+        HttpServletRequest request = signedRequest();
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        VerifiedToken identity = identity();
+
+        when(identityService.verify("1", "USER", "mock", "mock-jti", "2", "1700000000", "signature"))
+                .thenReturn(Optional.of(identity));
+
+        trustedIdentityFilter.doFilter(request, response, filterChain);
+
+        verify(provider, times(1)).authenticate(identity);
+        verify(request, times(1)).setAttribute(TrustedIdentityFilter.TRUSTED_IDENTITY_ATTRIBUTE, identity);
+        verify(filterChain, times(1)).doFilter(request, response);
+    }
+
+    @Test
+    void shouldRejectIdentityOfRevokedSession() throws ServletException, IOException {
+        FilterChain filterChain = mock(FilterChain.class);
+        HttpServletRequest request = signedRequest();
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        VerifiedToken identity = identity();
+
+        when(identityService.verify("1", "USER", "mock", "mock-jti", "2", "1700000000", "signature"))
+                .thenReturn(Optional.of(identity));
+        when(provider.isSessionRevoked(identity)).thenReturn(true);
+
+        trustedIdentityFilter.doFilter(request, response, filterChain);
+
+        verify(response, times(1)).sendError(
+                HttpStatus.UNAUTHORIZED.value(), "The session has been revoked, please authorize again"
+        );
+        verify(provider, never()).authenticate(any());
+        verify(filterChain, never()).doFilter(request, response);
+    }
+
+    private HttpServletRequest signedRequest() {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+
+        when(identityService.isEnabled()).thenReturn(true);
+        when(request.getHeader(TrustedIdentityHeaders.USER_ID)).thenReturn("1");
+        when(request.getHeader(TrustedIdentityHeaders.USER_ROLE)).thenReturn("USER");
+        when(request.getHeader(TrustedIdentityHeaders.USER_SUBJECT)).thenReturn("mock");
+        when(request.getHeader(TrustedIdentityHeaders.TOKEN_ID)).thenReturn("mock-jti");
+        when(request.getHeader(TrustedIdentityHeaders.TOKEN_EPOCH)).thenReturn("2");
+        when(request.getHeader(TrustedIdentityHeaders.EXPIRATION)).thenReturn("1700000000");
+        when(request.getHeader(TrustedIdentityHeaders.SIGNATURE)).thenReturn("signature");
+
+        return request;
+    }
+
+    private VerifiedToken identity() {
+        return VerifiedToken.builder()
+                .id(1L)
+                .role(AppRole.USER)
+                .subject("mock")
+                .tokenId("mock-jti")
+                .tokenEpoch(2)
+                .expiration(Instant.now().plusSeconds(3600))
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package services;
+
+import com.ahicode.dtos.VerifiedToken;
+import com.ahicode.enums.AppRole;
+import com.ahicode.services.AccessTokenMinterImpl;
+import com.ahicode.services.JwtService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class AccessTokenMinterImplTest {
+
+    private JwtService jwtService;
+    private SimpleMeterRegistry meterRegistry;
+    private AccessTokenMinterImpl minter;
+
+    @BeforeEach
+    void setup() {
+        jwtService = Mockito.mock(JwtService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        minter = new AccessTokenMinterImpl(jwtService, Duration.ofSeconds(5), 100, meterRegistry);
+    }
+
+    @Test
+    void shouldShareMintedTokenWithinWindow() {
+        VerifiedToken refreshToken = makeToken(1L);
+        when(jwtService.generateAccessToken(1L, "mock@example.com", AppRole.USER, 0)).thenReturn("newAccessToken");
+
+        assertEquals("newAccessToken", minter.mint("refreshToken", refreshToken));
+        assertEquals("newAccessToken", minter.mint("refreshToken", refreshToken));
+        assertEquals("newAccessToken", minter.mint("refreshToken", refreshToken));
+
+        verify(jwtService, times(1)).generateAccessToken(1L, "mock@example.com", AppRole.USER, 0);
+        assertEquals(1.0, meterRegistry.get("jwt.access.token.mints").tag("result", "minted").counter().count());
+        assertEquals(2.0, meterRegistry.get("jwt.access.token.mints").tag("result", "coalesced").counter().count());
+    }
+
+    @Test
+    void shouldMintSeparatelyForDifferentRefreshTokens() {
+        when(jwtService.generateAccessToken(anyLong(), anyString(), any(), anyInt())).thenReturn("first", "second");
+
+        assertEquals("first", minter.mint("firstRefreshToken", makeToken(1L)));
+        assertEquals("second", minter.mint("secondRefreshToken", makeToken(2L)));
+
+        verify(jwtService, times(2)).generateAccessToken(anyLong(), anyString(), any(), anyInt());
+    }
+
+    @Test
+    void shouldMintOnceForConcurrentRequests() throws Exception {
+        VerifiedToken refreshToken = makeToken(1L);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        when(jwtService.generateAccessToken(1L, "mock@example.com", AppRole.USER, 0)).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return "newAccessToken";
+        });
+
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return minter.mint("refreshToken", refreshToken);
+                }));
+            }
+
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals("newAccessToken", result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(jwtService, times(1)).generateAccessToken(1L, "mock@example.com", AppRole.USER, 0);
+    }
+
+    private VerifiedToken makeToken(Long id) {
+        return VerifiedToken.builder()
+                .id(id)
+                .role(AppRole.USER)
+                .subject("mock@example.com")
+                .issuedAt(Instant.now())
+                .expiration(Instant.now().plusSeconds(3600))
+                .build();
+    }
+}
@@ -0,0 +1,43 @@
+package services;
+
+import com.ahicode.services.InvalidTokenDeduplicatorImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InvalidTokenDeduplicatorImplTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void shouldPublishRepeatedTokenOnce() {
+        InvalidTokenDeduplicatorImpl deduplicator = new InvalidTokenDeduplicatorImpl(Duration.ofMinutes(10), 100, meterRegistry);
+
+        assertTrue(deduplicator.shouldPublish("invalidToken"));
+        assertFalse(deduplicator.shouldPublish("invalidToken"));
+        assertFalse(deduplicator.shouldPublish("invalidToken"));
+        assertTrue(deduplicator.shouldPublish("anotherInvalidToken"));
+
+        assertEquals(2.0, meterRegistry.get("jwt.invalid.token.publishes").tag("result", "published").counter().count());
+        assertEquals(2.0, meterRegistry.get("jwt.invalid.token.publishes").tag("result", "suppressed").counter().count());
+    }
+
+    @Test
+    void shouldPublishAgainAfterWindow() throws InterruptedException {
+        InvalidTokenDeduplicatorImpl deduplicator = new InvalidTokenDeduplicatorImpl(Duration.ofMillis(50), 100, meterRegistry);
+
+        assertTrue(deduplicator.shouldPublish("invalidToken"));
+        Thread.sleep(100);
+
+        assertTrue(deduplicator.shouldPublish("invalidToken"));
+    }
+}
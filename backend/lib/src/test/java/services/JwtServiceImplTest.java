@@ -1,7 +1,10 @@
 package services;
 
+import com.ahicode.dtos.VerifiedToken;
 import com.ahicode.enums.AppRole;
 import com.ahicode.services.JwtServiceImpl;
+import com.ahicode.services.VerifiedTokenCacheImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
@@ -14,8 +17,10 @@ import org.springframework.security.core.Authentication;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.security.Key;
+import java.util.Base64;
 import java.util.Date;
 import java.util.Map;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -39,8 +44,15 @@ public class JwtServiceImplTest {
         ReflectionTestUtils.setField(jwtService, "accessTokenExpirationTime", mockAccessTokenExpirationTime);
         ReflectionTestUtils.setField(jwtService, "refreshTokenExpirationTime", mockRefreshTokenExpirationTime);
 
-        ReflectionTestUtils.setField(jwtService, "accessSignKey", mockAccessSignKey);
-        ReflectionTestUtils.setField(jwtService, "refreshSignKey", mockRefreshSignKey);
+        ReflectionTestUtils.setField(
+                jwtService, "accessTokenSecretKey",
+                Base64.getEncoder().encodeToString(mockAccessTokenSecretKey.getBytes())
+        );
+        ReflectionTestUtils.setField(
+                jwtService, "refreshTokenSecretKey",
+                Base64.getEncoder().encodeToString(mockRefreshTokenSecretKey.getBytes())
+        );
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
     }
 
     @Test
@@ -168,13 +180,139 @@ public class JwtServiceImplTest {
         assertTrue(authentication.getAuthorities().isEmpty());
     }
 
+    @Test
+    void shouldVerifyAccessToken() {
+        String token = buildToken(
+                mockAccessSignKey, Map.of("id", 1L, "role", AppRole.USER),
+                "mock@example.com", mockAccessTokenExpirationTime
+        );
+
+        Optional<VerifiedToken> verifiedToken = jwtService.verifyAccessToken(token);
+
+        assertTrue(verifiedToken.isPresent());
+        assertEquals(1L, verifiedToken.get().getId());
+        assertEquals(AppRole.USER, verifiedToken.get().getRole());
+        assertEquals("mock@example.com", verifiedToken.get().getSubject());
+        assertNotNull(verifiedToken.get().getIssuedAt());
+        assertFalse(verifiedToken.get().isExpired());
+    }
+
+    @Test
+    void shouldVerifyExpiredRefreshToken() {
+        String token = buildToken(mockRefreshSignKey, Map.of("id", 1L), "mock@example.com", -60000L);
+
+        Optional<VerifiedToken> verifiedToken = jwtService.verifyRefreshToken(token);
+
+        assertTrue(verifiedToken.isPresent());
+        assertTrue(verifiedToken.get().isExpired());
+    }
+
+    @Test
+    void shouldNotVerifyTokenSignedWithAnotherKey() {
+        String token = buildToken(mockRefreshSignKey, Map.of(), "mock@example.com", mockRefreshTokenExpirationTime);
+
+        assertTrue(jwtService.verifyAccessToken(token).isEmpty());
+        assertTrue(jwtService.verifyAccessToken("malformed.token").isEmpty());
+    }
+
+    @Test
+    void shouldServeRepeatedVerificationFromCache() {
+        VerifiedTokenCacheImpl cache = new VerifiedTokenCacheImpl("access", 100, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtService, "accessTokenCache", cache);
+
+        String token = buildToken(mockAccessSignKey, Map.of("id", 1L), "mock@example.com", mockAccessTokenExpirationTime);
+
+        assertTrue(jwtService.isAccessTokenValid(token));
+        assertTrue(jwtService.isAccessTokenValid(token));
+        assertEquals(1L, jwtService.extractUserIdFromAccessToken(token));
+
+        assertEquals(1, cache.stats().missCount());
+        assertEquals(2, cache.stats().hitCount());
+    }
+
+    @Test
+    void shouldVerifyGeneratedAccessToken() {
+        String token = jwtService.generateAccessToken(1L, "mock@example.com", AppRole.ADMIN, 0);
+
+        VerifiedToken verifiedToken = jwtService.verifyAccessToken(token).orElseThrow();
+
+        assertEquals(1L, verifiedToken.getId());
+        assertEquals(AppRole.ADMIN, verifiedToken.getRole());
+        assertEquals("mock@example.com", verifiedToken.getSubject());
+        assertEquals(16, verifiedToken.getTokenId().length());
+        assertFalse(verifiedToken.isExpired());
+        assertTrue(jwtService.verifyRefreshToken(token).isEmpty());
+    }
+
+    @Test
+    void shouldCarryTokenEpochThroughBothVerifiers() {
+        String token = jwtService.generateRefreshToken(1L, "mock@example.com", AppRole.USER, 3);
+
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(mockRefreshSignKey)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+
+        assertEquals(3, claims.get("tep", Integer.class));
+        assertEquals(3, jwtService.verifyRefreshToken(token).orElseThrow().getTokenEpoch());
+        assertEquals(0, jwtService.verifyRefreshToken(
+                jwtService.generateRefreshToken(1L, "mock@example.com", AppRole.USER, 0)
+        ).orElseThrow().getTokenEpoch());
+
+        String jjwtToken = buildToken(
+                mockAccessSignKey, Map.of("id", 1L, "role", AppRole.USER, "tep", 2, "nbf", 0),
+                "mock@example.com", mockAccessTokenExpirationTime
+        );
+        assertEquals(2, jwtService.verifyAccessToken(jjwtToken).orElseThrow().getTokenEpoch());
+    }
+
+    @Test
+    void shouldGenerateUniqueTokenIds() {
+        String first = jwtService.generateRefreshToken(1L, "mock@example.com", AppRole.USER, 0);
+        String second = jwtService.generateRefreshToken(1L, "mock@example.com", AppRole.USER, 0);
+
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(mockRefreshSignKey)
+                .build()
+                .parseClaimsJws(first)
+                .getBody();
+
+        assertEquals(jwtService.verifyRefreshToken(first).orElseThrow().getTokenId(), claims.getId());
+        assertNotEquals(claims.getId(), jwtService.verifyRefreshToken(second).orElseThrow().getTokenId());
+    }
+
+    @Test
+    void shouldFallBackToJjwtForUnknownClaims() {
+        String token = buildToken(
+                mockAccessSignKey, Map.of("id", 1L, "role", AppRole.USER, "nbf", 0),
+                "mock \"quoted\" user", mockAccessTokenExpirationTime
+        );
+
+        VerifiedToken verifiedToken = jwtService.verifyAccessToken(token).orElseThrow();
+
+        assertEquals(1L, verifiedToken.getId());
+        assertEquals("mock \"quoted\" user", verifiedToken.getSubject());
+    }
+
+    @Test
+    void shouldNotVerifyTamperedToken() {
+        String token = jwtService.generateAccessToken(1L, "mock@example.com", AppRole.USER, 0);
+        String[] parts = token.split("\\.");
+        String forgedPayload = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                "{\"id\":2,\"role\":\"ADMIN\",\"sub\":\"mock@example.com\",\"iat\":0,\"exp\":9999999999}".getBytes()
+        );
+
+        assertTrue(jwtService.verifyAccessToken(parts[0] + "." + forgedPayload + "." + parts[2]).isEmpty());
+    }
+
     @Test
     void shouldGenerateAccessToken() {
         Long expectedUserId = 1L;
         AppRole expectedUserRole = AppRole.USER;
         String expectedUserEmail = "mock@example.com";
 
-        String token = jwtService.generateAccessToken(expectedUserId, expectedUserEmail, expectedUserRole);
+        String token = jwtService.generateAccessToken(expectedUserId, expectedUserEmail, expectedUserRole, 0);
 
         assertNotNull(token);
         assertEquals(3, token.split("\\.").length);
@@ -200,7 +338,7 @@ public class JwtServiceImplTest {
         AppRole expectedUserRole = AppRole.USER;
         String expectedUserEmail = "mock@example.com";
 
-        String token = jwtService.generateRefreshToken(expectedUserId, expectedUserEmail, expectedUserRole);
+        String token = jwtService.generateRefreshToken(expectedUserId, expectedUserEmail, expectedUserRole, 0);
 
         assertNotNull(token);
         assertEquals(3, token.split("\\.").length);
@@ -1,36 +1,176 @@
 package services;
 
+import com.ahicode.dtos.VerifiedToken;
+import com.ahicode.enums.AppRole;
+import com.ahicode.enums.RevocationReason;
+import com.ahicode.exceptions.AppException;
+import com.ahicode.services.Hs256JwtEngine;
+import com.ahicode.services.InvalidTokenDeduplicator;
+import com.ahicode.services.JwtService;
 import com.ahicode.services.MessageProducerServiceImpl;
+import com.ahicode.services.TokenFingerprint;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 
-import java.util.Arrays;
-import java.util.List;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 public class MessageProducerServiceImplTest {
     @Mock
     private KafkaTemplate<String, String> kafkaTemplate;
+    @Mock
+    private InvalidTokenDeduplicator deduplicator;
+    @Mock
+    private JwtService jwtService;
 
-    @InjectMocks
+    private SimpleMeterRegistry meterRegistry;
     private MessageProducerServiceImpl messageProducerService;
+    private Hs256JwtEngine engine;
+    private Instant expiration;
 
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        messageProducerService = new MessageProducerServiceImpl(kafkaTemplate, deduplicator, jwtService, meterRegistry, "AUTH-SERVICE");
+        engine = new Hs256JwtEngine(Keys.hmacShaKeyFor("testSecretKey1234567890ABCDEFGHIJKL".getBytes()));
+        expiration = Instant.ofEpochSecond(Instant.now().getEpochSecond() + 3600);
+    }
+
+    @Test
+    void shouldKeyVerifiedTokensByTokenId() {
+        String accessToken = makeToken("token1");
+        String refreshToken = makeToken("token2");
+        when(jwtService.verifyAccessToken(accessToken)).thenReturn(Optional.of(verified("token1")));
+        when(jwtService.verifyRefreshToken(refreshToken)).thenReturn(Optional.of(verified("token2")));
+        when(kafkaTemplate.send(anyString(), anyString(), anyString()))
+                .thenReturn(sent());
+
+        messageProducerService.revokeSession(accessToken, refreshToken, RevocationReason.LOGOUT);
+
+        verify(kafkaTemplate).send("blacklist_tokens_topic", "jti:token1",
+                "{\"jti\":\"token1\",\"exp\":" + expiration.getEpochSecond() + ",\"rsn\":\"LOGOUT\",\"iss\":\"AUTH-SERVICE\"}");
+        verify(kafkaTemplate).send(eq("blacklist_tokens_topic"), eq("jti:token2"), anyString());
+        assertEquals(2.0, meterRegistry.get("kafka.blacklist.tokens.sent").tag("result", "success").counter().count());
+    }
+
+    @Test
+    void shouldKeyTokensThatDontVerifyByFingerprint() {
+        String accessToken = makeToken(null);
+        String refreshToken = engine.sign(2L, AppRole.USER, "other@example.com", null, 0, Instant.now(), expiration);
+        when(jwtService.verifyAccessToken(anyString())).thenReturn(Optional.empty());
+        when(jwtService.verifyRefreshToken(anyString())).thenReturn(Optional.empty());
+        when(kafkaTemplate.send(anyString(), anyString(), anyString()))
+                .thenReturn(sent());
+
+        messageProducerService.revokeSession(accessToken, refreshToken, RevocationReason.LOGOUT);
+
+        verify(kafkaTemplate).send(eq("blacklist_tokens_topic"), eq("fp:" + TokenFingerprint.of(accessToken)), anyString());
+        verify(kafkaTemplate).send(eq("blacklist_tokens_topic"), eq("fp:" + TokenFingerprint.of(refreshToken)), anyString());
+        verify(kafkaTemplate, never()).send(anyString(), startsWith("jti:"), anyString());
+    }
+
+    @Test
+    void shouldCountFailedSends() {
+        String accessToken = makeToken("token1");
+        String refreshToken = makeToken("token2");
+        when(jwtService.verifyAccessToken(accessToken)).thenReturn(Optional.of(verified("token1")));
+        when(jwtService.verifyRefreshToken(refreshToken)).thenReturn(Optional.of(verified("token2")));
+        when(kafkaTemplate.send(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker is down")));
+
+        messageProducerService.revokeSession(accessToken, refreshToken, RevocationReason.LOGOUT);
+
+        assertEquals(2.0, meterRegistry.get("kafka.blacklist.tokens.sent").tag("result", "failure").counter().count());
+    }
+
+    @Test
+    void shouldSkipTokenWithoutReadableExpiration() {
+        when(jwtService.verifyAccessToken(anyString())).thenReturn(Optional.empty());
+        when(jwtService.verifyRefreshToken(anyString())).thenReturn(Optional.empty());
+
+        messageProducerService.revokeSession("malformed", "malformed", RevocationReason.LOGOUT);
+
+        verifyNoInteractions(kafkaTemplate);
+        assertEquals(2.0, meterRegistry.get("kafka.blacklist.tokens.sent").tag("result", "skipped").counter().count());
     }
 
     @Test
-    void shouldSendMessage() {
-        List<String> messages = Arrays.asList("token1", "token2", "token3");
+    void shouldNotPublishInvalidTokenClaimingTokenId() {
+        // a forged token claiming the jti of a real session must not revoke it, and a fingerprint is never looked up
+        String invalidToken = makeToken("victimTokenId");
+        when(deduplicator.shouldPublish(invalidToken)).thenReturn(true);
 
-        messageProducerService.sendMessage(messages);
+        messageProducerService.sendInvalidToken(invalidToken);
+
+        verifyNoInteractions(kafkaTemplate);
+        assertEquals(1.0, meterRegistry.get("kafka.blacklist.tokens.sent").tag("result", "skipped").counter().count());
+    }
+
+    @Test
+    void shouldKeyInvalidTokenByFingerprintOncePerWindow() {
+        String invalidToken = makeToken(null);
+        when(deduplicator.shouldPublish(invalidToken)).thenReturn(true, false);
+        when(kafkaTemplate.send(anyString(), anyString(), anyString()))
+                .thenReturn(sent());
+
+        messageProducerService.sendInvalidToken(invalidToken);
+        messageProducerService.sendInvalidToken(invalidToken);
+
+        verify(kafkaTemplate, times(1)).send(eq("blacklist_tokens_topic"), eq("fp:" + TokenFingerprint.of(invalidToken)),
+                contains("\"rsn\":\"INVALID_TOKEN\""));
+        verify(kafkaTemplate, never()).send(anyString(), startsWith("jti:"), anyString());
+        verifyNoInteractions(jwtService);
+    }
+
+    @Test
+    void shouldWaitForTokenEpochToBeSent() {
+        when(kafkaTemplate.send(anyString(), anyString(), anyString()))
+                .thenReturn(sent());
+
+        messageProducerService.sendTokenEpoch(7L, 3);
+
+        verify(kafkaTemplate).send("token_epochs_topic", "7", "3");
+    }
+
+    @Test
+    void shouldReportTokenEpochThatWasNotSent() {
+        when(kafkaTemplate.send(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker is down")));
+
+        AppException exception = assertThrows(AppException.class, () -> messageProducerService.sendTokenEpoch(7L, 3));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getHttpStatus());
+    }
+
+    private VerifiedToken verified(String tokenId) {
+        return VerifiedToken.builder()
+                .id(1L)
+                .role(AppRole.USER)
+                .subject("mock@example.com")
+                .tokenId(tokenId)
+                .expiration(expiration)
+                .issuedAt(Instant.now())
+                .build();
+    }
+
+    private String makeToken(String tokenId) {
+        return engine.sign(1L, AppRole.USER, "mock@example.com", tokenId, 0, Instant.now(), expiration);
+    }
 
-        verify(kafkaTemplate, times(messages.size())).send(eq("blacklist_tokens_topic"), anyString());
+    private CompletableFuture<SendResult<String, String>> sent() {
+        return CompletableFuture.completedFuture(new SendResult<>(null, null));
     }
 }
@@ -0,0 +1,69 @@
+package services;
+
+import com.ahicode.dtos.RevocationEvent;
+import com.ahicode.enums.AppRole;
+import com.ahicode.enums.RevocationReason;
+import com.ahicode.services.Hs256JwtEngine;
+import com.ahicode.services.RevocationEventCodec;
+import com.ahicode.services.RevocationEventFactory;
+import com.ahicode.services.TokenFingerprint;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RevocationEventFactoryTest {
+
+    private final Hs256JwtEngine engine = new Hs256JwtEngine(Keys.hmacShaKeyFor("testSecretKey1234567890ABCDEFGHIJKL".getBytes()));
+
+    @Test
+    void shouldKeyEventByTokenId() {
+        Instant expiration = Instant.ofEpochSecond(1700000000);
+        String token = engine.sign(1L, AppRole.USER, "mock@example.com", "AAECAwQFBgcICQoL", 0, Instant.now(), expiration);
+
+        RevocationEvent event = RevocationEventFactory.fromVerifiedToken(
+                token, engine.verify(token), RevocationReason.LOGOUT, "AUTH-SERVICE"
+        );
+
+        assertEquals("jti:AAECAwQFBgcICQoL", event.getKey());
+        assertNull(event.getFingerprint());
+        assertEquals("{\"jti\":\"AAECAwQFBgcICQoL\",\"exp\":1700000000,\"rsn\":\"LOGOUT\",\"iss\":\"AUTH-SERVICE\"}",
+                RevocationEventCodec.encode(event));
+    }
+
+    @Test
+    void shouldSkipUnverifiedTokenClaimingTokenId() {
+        // the gateway looks it up by the claimed jti, which a token that doesn't verify must not be keyed by
+        String token = makeToken("{\"sub\":\"mock@example.com\",\"jti\":\"AAECAwQFBgcICQoL\",\"exp\":1700000000}");
+
+        assertNull(RevocationEventFactory.fromUnverifiedToken(token, RevocationReason.INVALID_TOKEN, null));
+    }
+
+    @Test
+    void shouldFingerprintUnverifiedTokenWithoutTokenId() {
+        String token = makeToken("{\"sub\":\"mock@example.com\",\"exp\":1700000000}");
+
+        RevocationEvent event = RevocationEventFactory.fromUnverifiedToken(token, RevocationReason.INVALID_TOKEN, null);
+
+        assertEquals("fp:" + TokenFingerprint.of(token), event.getKey());
+        assertEquals("{\"fp\":\"" + TokenFingerprint.of(token) + "\",\"exp\":1700000000,\"rsn\":\"INVALID_TOKEN\"}",
+                RevocationEventCodec.encode(event));
+    }
+
+    @Test
+    void shouldReturnNullWithoutReadableExpiration() {
+        assertNull(RevocationEventFactory.fromUnverifiedToken("malformed", RevocationReason.LOGOUT, null));
+        assertNull(RevocationEventFactory.fromUnverifiedToken(makeToken("{\"sub\":\"mock@example.com\"}"), RevocationReason.LOGOUT, null));
+        assertNull(RevocationEventFactory.fromUnverifiedToken("header.%%%.signature", RevocationReason.LOGOUT, null));
+    }
+
+    private String makeToken(String payload) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+}
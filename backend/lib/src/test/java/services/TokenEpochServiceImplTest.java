@@ -0,0 +1,63 @@
+package services;
+
+import com.ahicode.dtos.VerifiedToken;
+import com.ahicode.enums.AppRole;
+import com.ahicode.services.TokenEpochServiceImpl;
+import com.ahicode.services.TokenEpochTable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenEpochServiceImplTest {
+
+    private TokenEpochServiceImpl tokenEpochService;
+
+    @BeforeEach
+    void setup() {
+        tokenEpochService = new TokenEpochServiceImpl(new TokenEpochTable());
+    }
+
+    @Test
+    void shouldAcceptTokensOfUsersWithoutEpoch() {
+        assertFalse(tokenEpochService.isRevoked(token(1L, 0)));
+    }
+
+    @Test
+    void shouldRevokeTokensBelowMinimumEpoch() {
+        tokenEpochService.update(1L, 2);
+
+        assertTrue(tokenEpochService.isRevoked(token(1L, 0)));
+        assertTrue(tokenEpochService.isRevoked(token(1L, 1)));
+        assertFalse(tokenEpochService.isRevoked(token(1L, 2)));
+        assertFalse(tokenEpochService.isRevoked(token(2L, 0)));
+    }
+
+    @Test
+    void shouldNotLowerEpochOnReplayedRecord() {
+        tokenEpochService.update(1L, 3);
+        tokenEpochService.update(1L, 2);
+
+        assertTrue(tokenEpochService.isRevoked(token(1L, 2)));
+    }
+
+    @Test
+    void shouldAcceptTokenWithoutUserId() {
+        tokenEpochService.update(1L, 2);
+
+        assertFalse(tokenEpochService.isRevoked(token(null, 0)));
+    }
+
+    private VerifiedToken token(Long id, int tokenEpoch) {
+        return VerifiedToken.builder()
+                .id(id)
+                .role(AppRole.USER)
+                .subject("mock@example.com")
+                .tokenEpoch(tokenEpoch)
+                .issuedAt(Instant.now())
+                .expiration(Instant.now().plusSeconds(3600))
+                .build();
+    }
+}
@@ -0,0 +1,119 @@
+package services;
+
+import com.ahicode.config.TrustedIdentityHeaders;
+import com.ahicode.dtos.VerifiedToken;
+import com.ahicode.enums.AppRole;
+import com.ahicode.services.TrustedIdentityServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrustedIdentityServiceImplTest {
+
+    private static final byte[] SECRET = "mockIdentitySecretKey1234567890ABCDEF".getBytes();
+
+    private TrustedIdentityServiceImpl identityService;
+
+    @BeforeEach
+    void setup() {
+        identityService = new TrustedIdentityServiceImpl();
+        ReflectionTestUtils.setField(identityService, "enabled", true);
+        ReflectionTestUtils.setField(identityService, "secretKey", Base64.getEncoder().encodeToString(SECRET));
+        ReflectionTestUtils.invokeMethod(identityService, "init");
+    }
+
+    @Test
+    void shouldVerifySignedIdentity() throws Exception {
+        String subject = URLEncoder.encode("mock subject", StandardCharsets.UTF_8);
+        String expiration = String.valueOf(Instant.now().plusSeconds(3600).getEpochSecond());
+
+        Optional<VerifiedToken> identity = identityService.verify(
+                "1", "USER", subject, "mock-jti", "3", expiration, sign("1", "USER", subject, "mock-jti", "3", expiration)
+        );
+
+        assertTrue(identity.isPresent());
+        assertEquals(1L, identity.get().getId());
+        assertEquals(AppRole.USER, identity.get().getRole());
+        assertEquals("mock subject", identity.get().getSubject());
+        assertEquals("mock-jti", identity.get().getTokenId());
+        assertEquals(3, identity.get().getTokenEpoch());
+    }
+
+    @Test
+    void shouldVerifySignedIdentityWithoutTokenId() throws Exception {
+        String expiration = String.valueOf(Instant.now().plusSeconds(3600).getEpochSecond());
+
+        Optional<VerifiedToken> identity = identityService.verify(
+                "1", "USER", "mock", null, "0", expiration, sign("1", "USER", "mock", null, "0", expiration)
+        );
+
+        assertTrue(identity.isPresent());
+        assertNull(identity.get().getTokenId());
+        assertEquals(0, identity.get().getTokenEpoch());
+    }
+
+    @Test
+    void shouldNotVerifyTamperedIdentity() throws Exception {
+        String expiration = String.valueOf(Instant.now().plusSeconds(3600).getEpochSecond());
+        String signature = sign("1", "USER", "mock", "mock-jti", "1", expiration);
+
+        assertTrue(identityService.verify("2", "USER", "mock", "mock-jti", "1", expiration, signature).isEmpty());
+        assertTrue(identityService.verify("1", "ADMIN", "mock", "mock-jti", "1", expiration, signature).isEmpty());
+        assertTrue(identityService.verify("1", "USER", "mock", "other-jti", "1", expiration, signature).isEmpty());
+        assertTrue(identityService.verify("1", "USER", "mock", "mock-jti", "2", expiration, signature).isEmpty());
+        assertTrue(identityService.verify("1", "USER", "mock", "mock-jti", "1", expiration, "not-a-signature").isEmpty());
+    }
+
+    @Test
+    void shouldNotVerifyIdentityWithoutTokenEpoch() throws Exception {
+        String expiration = String.valueOf(Instant.now().plusSeconds(3600).getEpochSecond());
+
+        assertTrue(identityService.verify(
+                "1", "USER", "mock", null, null, expiration, sign("1", "USER", "mock", null, "0", expiration)
+        ).isEmpty());
+    }
+
+    @Test
+    void shouldNotVerifyExpiredIdentity() throws Exception {
+        String expiration = String.valueOf(Instant.now().minusSeconds(1).getEpochSecond());
+
+        assertTrue(identityService.verify(
+                "1", "USER", "mock", null, "0", expiration, sign("1", "USER", "mock", null, "0", expiration)
+        ).isEmpty());
+    }
+
+    @Test
+    void shouldNotVerifyWhenDisabled() throws Exception {
+        String expiration = String.valueOf(Instant.now().plusSeconds(3600).getEpochSecond());
+        ReflectionTestUtils.setField(identityService, "enabled", false);
+
+        assertFalse(identityService.isEnabled());
+        assertTrue(identityService.verify(
+                "1", "USER", "mock", null, "0", expiration, sign("1", "USER", "mock", null, "0", expiration)
+        ).isEmpty());
+    }
+
+    private String sign(
+            String userId, String role, String subject, String tokenId, String tokenEpoch, String expiration
+    ) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET, "HmacSHA256"));
+
+        byte[] signature = mac.doFinal(
+                TrustedIdentityHeaders.canonical(userId, role, subject, tokenId, tokenEpoch, expiration)
+                        .getBytes(StandardCharsets.UTF_8)
+        );
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+}
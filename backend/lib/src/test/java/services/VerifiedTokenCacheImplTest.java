@@ -0,0 +1,77 @@
+package services;
+
+import com.ahicode.dtos.VerifiedToken;
+import com.ahicode.enums.AppRole;
+import com.ahicode.services.TokenFingerprint;
+import com.ahicode.services.VerifiedTokenCacheImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VerifiedTokenCacheImplTest {
+
+    private VerifiedTokenCacheImpl cache;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new VerifiedTokenCacheImpl("access", 100, meterRegistry);
+    }
+
+    @Test
+    void shouldReturnCachedToken() {
+        String fingerprint = TokenFingerprint.of("header.payload.signature");
+        VerifiedToken token = makeToken(Instant.now().plusSeconds(3600));
+
+        assertNull(cache.get(fingerprint));
+        cache.put(fingerprint, token);
+
+        assertSame(token, cache.get(fingerprint));
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void shouldNotCacheExpiredToken() {
+        String fingerprint = TokenFingerprint.of("header.payload.signature");
+
+        cache.put(fingerprint, makeToken(Instant.now().minusSeconds(1)));
+
+        assertNull(cache.get(fingerprint));
+    }
+
+    @Test
+    void shouldNotKeepEntryPastTokenExpiration() throws InterruptedException {
+        String fingerprint = TokenFingerprint.of("header.payload.signature");
+
+        cache.put(fingerprint, makeToken(Instant.now().plusMillis(50)));
+        Thread.sleep(100);
+
+        assertNull(cache.get(fingerprint));
+    }
+
+    @Test
+    void shouldProduceFixedSizeFingerprint() {
+        String fingerprint = TokenFingerprint.of("header.payload.signature");
+
+        assertEquals(32, fingerprint.length());
+        assertEquals(fingerprint, TokenFingerprint.of("header.payload.signature"));
+        assertNotEquals(fingerprint, TokenFingerprint.of("header.payload.signaturf"));
+    }
+
+    private VerifiedToken makeToken(Instant expiration) {
+        return VerifiedToken.builder()
+                .id(1L)
+                .role(AppRole.USER)
+                .subject("mock@example.com")
+                .issuedAt(Instant.now())
+                .expiration(expiration)
+                .build();
+    }
+}
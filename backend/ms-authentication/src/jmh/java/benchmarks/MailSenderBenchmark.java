@@ -0,0 +1,95 @@
+package benchmarks;
+
+import com.ahicode.config.PooledJavaMailSender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import unitTests.services.FakeSmtpServer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// messages per second to a local SMTP stand-in whose greeting is delayed the way the TLS handshake and login delay
+// a new connection to the real server. JavaMailSenderImpl pays that on every send call, the pool once per connection
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MailSenderBenchmark {
+
+    private static final int BATCH_SIZE = 20;
+
+    @Param({"per-send", "pooled"})
+    private String sender;
+
+    @Param({"0", "20"})
+    private int connectDelayMillis;
+
+    private FakeSmtpServer smtpServer;
+    private JavaMailSenderImpl mailSender;
+    private SimpleMailMessage[] batch;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        smtpServer = new FakeSmtpServer();
+        smtpServer.setGreetingDelay(Duration.ofMillis(connectDelayMillis));
+
+        mailSender = sender.equals("pooled")
+                ? new PooledJavaMailSender(4, 100, Duration.ofSeconds(30), Duration.ofSeconds(5), Duration.ofSeconds(30), new SimpleMeterRegistry())
+                : new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtpServer.getPort());
+        mailSender.setProtocol("smtp");
+
+        batch = new SimpleMailMessage[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch[i] = message(i);
+        }
+    }
+
+    // the stand-in keeps every message, without a reset it grows for the whole trial
+    @Setup(Level.Iteration)
+    public void clearMessages() {
+        smtpServer.getMessages().clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (mailSender instanceof PooledJavaMailSender pooledSender) {
+            pooledSender.destroy();
+        }
+        smtpServer.close();
+    }
+
+    // one email per call, the way registration sent them before the outbox
+    @Benchmark
+    public void sendOne() {
+        mailSender.send(batch[0]);
+    }
+
+    // a sender's share of an outbox batch
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void sendBatch() {
+        mailSender.send(batch);
+    }
+
+    private static SimpleMailMessage message(int number) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@tasktrack.local");
+        message.setTo("benchmark" + number + "@mail.com");
+        message.setSubject("Account confirmation code");
+        message.setText("Here is your confirmation code for your registration on our website. Confirmation code: 123456");
+        return message;
+    }
+}
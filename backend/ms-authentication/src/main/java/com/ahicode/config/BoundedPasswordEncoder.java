@@ -0,0 +1,109 @@
+package com.ahicode.config;
+
+import com.ahicode.exceptions.AppException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// BCrypt is pure CPU, so hashing runs on a pool no larger than the number of cores with a short queue in front of it.
+// A login burst beyond that is turned away with a 503 right away instead of holding every request thread,
+// the endpoints that don't hash keep their threads
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private static final String METRIC_PREFIX = "auth.password.hashing";
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedCounter;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        this.delegate = delegate;
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        this.encodeTimer = hashTimer(meterRegistry, "encode");
+        this.matchesTimer = hashTimer(meterRegistry, "matches");
+        this.rejectedCounter = Counter.builder(METRIC_PREFIX + ".rejected")
+                .description("Password hashes refused because the hashing queue was full")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".queue", executor, pool -> pool.getQueue().size())
+                .description("Password hashes waiting for a hashing thread")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashes being computed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> encodeTimer.recordCallable(() -> delegate.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> matchesTimer.recordCallable(() -> delegate.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> result;
+
+        try {
+            result = executor.submit(task);
+        } catch (RejectedExecutionException exception) {
+            rejectedCounter.increment();
+            throw new AppException("The server is busy, please try again later", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        try {
+            return result.get();
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            throw new AppException("The server is busy, please try again later", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private static Timer hashTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder(METRIC_PREFIX + ".duration")
+                .description("Time spent computing a password hash, without the wait in the queue")
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+}
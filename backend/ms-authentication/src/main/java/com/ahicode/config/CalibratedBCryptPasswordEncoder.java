@@ -0,0 +1,84 @@
+package com.ahicode.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+// the cost is measured on the host at startup instead of being fixed, every step up doubles the time of a hash.
+// BCrypt keeps the cost inside each hash ($2a$NN$...), so hashes of a lower cost are found on login and rehashed
+@Slf4j
+public class CalibratedBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final int PROBE_COST = 8;
+    private static final int PROBE_ROUNDS = 3;
+
+    private final int cost;
+
+    public CalibratedBCryptPasswordEncoder(int cost) {
+        super(cost);
+        this.cost = cost;
+    }
+
+    // the highest cost whose hash still fits into the target latency, within the given bounds
+    public static CalibratedBCryptPasswordEncoder calibrate(Duration targetLatency, int minCost, int maxCost) {
+        long probeNanos = measure(PROBE_COST);
+        int cost = maxCost;
+
+        while (cost > minCost && estimate(probeNanos, cost) > targetLatency.toNanos()) {
+            cost--;
+        }
+
+        log.info("BCrypt cost {} calibrated for a target latency of {} ms, a cost {} hash took {} ms",
+                cost, targetLatency.toMillis(), PROBE_COST, probeNanos / 1_000_000);
+        return new CalibratedBCryptPasswordEncoder(cost);
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    // only ever upwards, a calibration that came out low on a slow or busy host must not weaken stored hashes
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        int encodedCost = costOf(encodedPassword);
+        return encodedCost > 0 && encodedCost < cost;
+    }
+
+    // -1 when the value isn't a BCrypt hash
+    private static int costOf(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$'
+                || encodedPassword.charAt(3) != '$' || encodedPassword.charAt(6) != '$') {
+            return -1;
+        }
+
+        char tens = encodedPassword.charAt(4);
+        char units = encodedPassword.charAt(5);
+
+        if (tens < '0' || tens > '9' || units < '0' || units > '9') {
+            return -1;
+        }
+
+        return (tens - '0') * 10 + (units - '0');
+    }
+
+    // every step of the cost doubles the rounds, so one measurement is enough for all of them
+    private static long estimate(long probeNanos, int cost) {
+        return cost >= PROBE_COST ? probeNanos << (cost - PROBE_COST) : probeNanos >> (PROBE_COST - cost);
+    }
+
+    private static long measure(int cost) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(cost);
+        // the first hash warms up the JIT and isn't counted
+        probe.encode("calibration");
+
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < PROBE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration");
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+
+        return fastest;
+    }
+}
@@ -1,11 +1,13 @@
 package com.ahicode.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
+import java.time.Duration;
 import java.util.Properties;
 
 @Configuration
@@ -26,9 +28,43 @@ public class MailConfig {
     @Value("${spring.mail.protocol}")
     private String protocol;
 
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${application.mail.sender-threads:4}")
+    private int senderThreads;
+
+    @Value("${application.mail.pool.enabled:true}")
+    private boolean pooled;
+
+    @Value("${application.mail.pool.size:4}")
+    private int poolSize;
+
+    @Value("${application.mail.pool.max-messages-per-connection:100}")
+    private int maxMessagesPerConnection;
+
+    @Value("${application.mail.pool.idle-timeout:30s}")
+    private Duration idleTimeout;
+
+    @Value("${application.mail.pool.validate-after:5s}")
+    private Duration validateAfter;
+
+    @Value("${application.mail.pool.borrow-timeout:30s}")
+    private Duration borrowTimeout;
+
     @Bean
-    public JavaMailSender getMailSender() {
-        JavaMailSenderImpl javaMailSender = new JavaMailSenderImpl();
+    public JavaMailSender getMailSender(MeterRegistry meterRegistry) {
+        JavaMailSenderImpl javaMailSender;
+        if (pooled) {
+            // the outbox sends from its own platform threads, so the pool doesn't need the virtual thread workaround
+            javaMailSender = new PooledJavaMailSender(
+                    poolSize, maxMessagesPerConnection, idleTimeout, validateAfter, borrowTimeout, meterRegistry
+            );
+        } else if (virtualThreads) {
+            javaMailSender = new PlatformThreadMailSender(senderThreads);
+        } else {
+            javaMailSender = new JavaMailSenderImpl();
+        }
         javaMailSender.setHost(host);
         javaMailSender.setPort(port);
         javaMailSender.setUsername(username);
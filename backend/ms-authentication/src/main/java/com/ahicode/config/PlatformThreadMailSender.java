@@ -0,0 +1,46 @@
+package com.ahicode.config;
+
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// SMTPTransport holds monitors around socket I/O, which pins the carrier of a virtual thread,
+// so the send itself runs on a small platform pool while the calling virtual thread parks on the result
+public class PlatformThreadMailSender extends JavaMailSenderImpl implements DisposableBean {
+
+    private final ExecutorService executor;
+
+    public PlatformThreadMailSender(int threads) {
+        this.executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("mail-sender-"));
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) {
+        Future<?> result = executor.submit(() -> super.doSend(mimeMessages, originalMessages));
+
+        try {
+            result.get();
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new MailSendException("Failed to send mail", exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            throw new MailSendException("Interrupted while sending mail", exception);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,220 @@
+package com.ahicode.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// JavaMailSenderImpl opens, authenticates and closes a connection for every send call. Here a few authenticated
+// connections stay open and carry many messages each: a connection idle for a while is checked with a NOOP before it
+// is reused, one idle past the timeout or at the message limit is closed, and a sweeper closes the idle ones in the
+// background so the server doesn't have to drop them
+public class PooledJavaMailSender extends JavaMailSenderImpl implements DisposableBean {
+
+    private static final String METRIC_PREFIX = "auth.mail.pool";
+
+    private final int maxMessagesPerConnection;
+    private final long idleTimeoutNanos;
+    private final long validateAfterNanos;
+    private final long borrowTimeoutNanos;
+
+    private final Semaphore permits;
+    // most recently used first, so a quiet period lets the connections at the tail time out
+    private final LinkedBlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService sweeper;
+    private final Counter openedConnections;
+
+    public PooledJavaMailSender(
+            int size,
+            int maxMessagesPerConnection,
+            Duration idleTimeout,
+            Duration validateAfter,
+            Duration borrowTimeout,
+            MeterRegistry meterRegistry
+    ) {
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.validateAfterNanos = validateAfter.toNanos();
+        this.borrowTimeoutNanos = borrowTimeout.toNanos();
+        this.permits = new Semaphore(size, true);
+
+        this.openedConnections = Counter.builder(METRIC_PREFIX + ".connections.opened")
+                .description("SMTP connections opened by the pool")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".connections.idle", idle, LinkedBlockingDeque::size)
+                .description("Open SMTP connections waiting for the next message")
+                .register(meterRegistry);
+
+        long sweepInterval = Math.max(1, idleTimeout.toMillis() / 2);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("mail-pool-sweeper-"));
+        this.sweeper.scheduleWithFixedDelay(this::evictIdle, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+    }
+
+    // the same steps as JavaMailSenderImpl, only the connection is borrowed instead of opened and closed
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        PooledTransport pooled = null;
+
+        acquire();
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                try {
+                    pooled = ready(pooled);
+                } catch (AuthenticationFailedException exception) {
+                    throw new MailAuthenticationException(exception);
+                } catch (MessagingException exception) {
+                    // the server can't be reached, the rest of the batch would wait for the same failure
+                    pooled = null;
+                    for (int j = i; j < mimeMessages.length; j++) {
+                        failedMessages.put(originalMessages != null ? originalMessages[j] : mimeMessages[j], exception);
+                    }
+                    break;
+                }
+
+                try {
+                    send(pooled, mimeMessages[i]);
+                } catch (Exception exception) {
+                    failedMessages.put(originalMessages != null ? originalMessages[i] : mimeMessages[i], exception);
+
+                    // a dropped connection is replaced for the rest of the batch, a refused message doesn't need it
+                    if (!pooled.transport.isConnected()) {
+                        close(pooled);
+                        pooled = null;
+                    }
+                }
+            }
+        } finally {
+            release(pooled);
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        sweeper.shutdown();
+
+        PooledTransport pooled;
+        while ((pooled = idle.pollLast()) != null) {
+            close(pooled);
+        }
+    }
+
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new MailSendException("No SMTP connection became available in time");
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while waiting for an SMTP connection", exception);
+        }
+    }
+
+    // the connection to send the next message on, the current one while it is usable, otherwise an idle or a new one
+    private PooledTransport ready(PooledTransport current) throws MessagingException {
+        if (current != null) {
+            if (current.sent < maxMessagesPerConnection) {
+                return current;
+            }
+            close(current);
+        }
+
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            long idleNanos = System.nanoTime() - pooled.lastUsed;
+
+            if (idleNanos < idleTimeoutNanos && (idleNanos < validateAfterNanos || pooled.transport.isConnected())) {
+                return pooled;
+            }
+
+            close(pooled);
+        }
+
+        openedConnections.increment();
+        return new PooledTransport(connectTransport());
+    }
+
+    private void send(PooledTransport pooled, MimeMessage mimeMessage) throws MessagingException {
+        if (mimeMessage.getSentDate() == null) {
+            mimeMessage.setSentDate(new Date());
+        }
+
+        String messageId = mimeMessage.getMessageID();
+        mimeMessage.saveChanges();
+        if (messageId != null) {
+            // preserve explicitly specified message id
+            mimeMessage.setHeader("Message-ID", messageId);
+        }
+
+        Address[] addresses = mimeMessage.getAllRecipients();
+        pooled.transport.sendMessage(mimeMessage, addresses != null ? addresses : new Address[0]);
+        pooled.sent++;
+    }
+
+    private void release(PooledTransport pooled) {
+        try {
+            if (pooled != null) {
+                if (pooled.sent < maxMessagesPerConnection) {
+                    pooled.lastUsed = System.nanoTime();
+                    idle.offerFirst(pooled);
+                } else {
+                    close(pooled);
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+
+        for (PooledTransport pooled : idle) {
+            // remove fails when a sender took the connection in the meantime
+            if (now - pooled.lastUsed >= idleTimeoutNanos && idle.remove(pooled)) {
+                close(pooled);
+            }
+        }
+    }
+
+    private void close(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (MessagingException exception) {
+            // the connection is gone either way
+        }
+    }
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private int sent;
+        private long lastUsed = System.nanoTime();
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+}
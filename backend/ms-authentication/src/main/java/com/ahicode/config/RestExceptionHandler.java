@@ -3,6 +3,7 @@ package com.ahicode.config;
 import com.ahicode.dtos.ErrorDto;
 import com.ahicode.dtos.ValidationErrorDto;
 import com.ahicode.exceptions.AppException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -20,8 +21,14 @@ public class RestExceptionHandler {
     @ResponseBody
     @ExceptionHandler(value = {AppException.class})
     public ResponseEntity<ErrorDto> exceptionHandling(AppException exception) {
-        return ResponseEntity
-                .status(exception.getHttpStatus())
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(exception.getHttpStatus());
+
+        // the service sheds load with a 503, a well behaved client backs off before the next attempt
+        if (exception.getHttpStatus() == HttpStatus.SERVICE_UNAVAILABLE) {
+            response.header(HttpHeaders.RETRY_AFTER, "1");
+        }
+
+        return response
                 .body(
                         ErrorDto.builder()
                                 .message(exception.getMessage())
@@ -1,7 +1,11 @@
 package com.ahicode.config;
 
 import com.ahicode.services.MessageProducerService;
+import com.ahicode.services.TrustedIdentityService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -9,11 +13,12 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
+import java.time.Duration;
+
 @Configuration
 @EnableWebSecurity
 @RequiredArgsConstructor
@@ -21,14 +26,29 @@ public class SecurityConfig {
 
     private final UserAuthenticationProvider provider;
     private final MessageProducerService messageService;
+    private final TrustedIdentityService identityService;
     private final UserAuthenticationEntryPoint entryPoint;
 
+    @Value("${application.security.password-hashing.threads:0}")
+    private int hashingThreads;
+    @Value("${application.security.password-hashing.queue-capacity:32}")
+    private int hashingQueueCapacity;
+    @Value("${application.security.password-hashing.cost:0}")
+    private int hashingCost;
+    @Value("${application.security.password-hashing.target-latency:250ms}")
+    private Duration hashingTargetLatency;
+    @Value("${application.security.password-hashing.min-cost:8}")
+    private int hashingMinCost;
+    @Value("${application.security.password-hashing.max-cost:14}")
+    private int hashingMaxCost;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
 
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .addFilterBefore(new JwtAuthFilter(provider, messageService), BasicAuthenticationFilter.class)
+                .addFilterBefore(new TrustedIdentityFilter(provider, identityService), JwtAuthFilter.class)
                 .exceptionHandling(exceptionHandling -> exceptionHandling
                         .authenticationEntryPoint(entryPoint)
                 )
@@ -61,7 +81,15 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(8);
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        // a fixed cost skips the calibration, 0 measures the host
+        CalibratedBCryptPasswordEncoder bcrypt = hashingCost > 0
+                ? new CalibratedBCryptPasswordEncoder(hashingCost)
+                : CalibratedBCryptPasswordEncoder.calibrate(hashingTargetLatency, hashingMinCost, hashingMaxCost);
+
+        Gauge.builder("auth.password.hashing.cost", bcrypt, CalibratedBCryptPasswordEncoder::getCost)
+                .description("BCrypt cost of new password hashes")
+                .register(meterRegistry);
+        return new BoundedPasswordEncoder(bcrypt, hashingThreads, hashingQueueCapacity, meterRegistry);
     }
 }
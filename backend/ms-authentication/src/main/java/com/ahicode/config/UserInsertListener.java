@@ -0,0 +1,44 @@
+package com.ahicode.config;
+
+import com.ahicode.services.IdentifierFilterService;
+import com.ahicode.storage.entities.UserEntity;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+// every user saved through this instance goes into the identifier filter, not only the ones created on confirm.
+// It runs before the commit, a rolled back insert only leaves a false positive behind
+@Component
+@RequiredArgsConstructor
+public class UserInsertListener implements PostInsertEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final IdentifierFilterService identifierFilterService;
+
+    @PostConstruct
+    private void register() {
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_INSERT, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof UserEntity user) {
+            identifierFilterService.add(user.getEmail(), user.getNickname());
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+}
@@ -1,6 +1,7 @@
 package com.ahicode.controllers;
 
 import com.ahicode.dtos.*;
+import com.ahicode.enums.RevocationReason;
 import com.ahicode.services.AuthService;
 import com.ahicode.services.MessageProducerService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -13,6 +14,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -20,8 +22,6 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.util.WebUtils;
 
-import java.util.List;
-
 @Slf4j
 @Validated
 @RestController
@@ -56,6 +56,7 @@ public class AuthController {
             responses = {
                     @ApiResponse(responseCode = "201", description = "Successful registration"),
                     @ApiResponse(responseCode = "401", description = "Confirm code doesn't match with generated"),
+                    @ApiResponse(responseCode = "409", description = "Email or nickname was taken in the meantime"),
                     @ApiResponse(responseCode = "500", description = "Error while serializing message")
             }
     )
@@ -110,7 +111,7 @@ public class AuthController {
         String refreshToken = extractCookieValue(REFRESH_TOKEN_COOKIE_NAME, request);
 
         if (accessToken != null && refreshToken != null) {
-            messageService.sendMessage(List.of(accessToken, refreshToken));
+            messageService.revokeSession(accessToken, refreshToken, RevocationReason.LOGOUT);
         } else {
             log.error("Access token or refresh token not found in cookies");
         }
@@ -121,6 +122,28 @@ public class AuthController {
         return ResponseEntity.noContent().build();
     }
 
+    @PostMapping("/logout-all")
+    @Operation(
+            summary = "Logout from all sessions",
+            description = "Revoke every session of the user at once and clear all cookies",
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "All sessions were revoked"),
+                    @ApiResponse(responseCode = "404", description = "User doesn't exists"),
+                    @ApiResponse(responseCode = "503", description = "The revocation didn't reach the other services, retry")
+            }
+    )
+    public ResponseEntity<Void> logoutAll(Authentication authentication, HttpServletResponse response) {
+        Long userId = ((VerifiedToken) authentication.getDetails()).getId();
+
+        int tokenEpoch = authService.revokeAllSessions(userId);
+        messageService.sendTokenEpoch(userId, tokenEpoch);
+
+        deleteCookie(ACCESS_TOKEN_COOKIE_NAME, response);
+        deleteCookie(REFRESH_TOKEN_COOKIE_NAME, response);
+
+        return ResponseEntity.noContent().build();
+    }
+
     private void deleteCookie(String cookieName, HttpServletResponse response) {
         Cookie cookie = new Cookie(cookieName, null);
         cookie.setMaxAge(0);
@@ -0,0 +1,12 @@
+package com.ahicode.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// compared by identity, a batch may hold two codes for the same address
+@Getter
+@AllArgsConstructor
+public class ConfirmationEmail {
+    private String recipient;
+    private String confirmationCode;
+}
@@ -6,4 +6,5 @@ public interface AuthService {
     String register(SignUpRequest signUpRequest);
     UserDto confirm(ConfirmationRegisterRequest confirmRegisterRequest);
     AuthResponse login(SignInRequest signInRequest);
+    int revokeAllSessions(Long userId);
 }
@@ -0,0 +1,77 @@
+package com.ahicode.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// a fixed size Bloom filter of strings, safe to add to and query from several threads. A value that was added is
+// always reported, one that wasn't is reported with about the false positive rate it was sized for
+public final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long capacity;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long insertions = Math.max(1, expectedInsertions);
+        long optimalBits = (long) Math.ceil(-insertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+
+        this.bits = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64));
+        this.bitCount = bits.length() * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / insertions * Math.log(2)));
+        this.capacity = insertions;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public void put(String value) {
+        long hash = hash(value);
+        long step = mix(hash) | 1;
+
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash + i * step, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+
+            long current;
+            while (((current = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                // another bit of the same word was set meanwhile, try again
+            }
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        long step = mix(hash) | 1;
+
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash + i * step, bitCount);
+
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a over the chars, spread by a 64 bit finalizer, the second index hash is derived from the first
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
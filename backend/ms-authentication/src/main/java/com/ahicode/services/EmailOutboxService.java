@@ -0,0 +1,6 @@
+package com.ahicode.services;
+
+public interface EmailOutboxService {
+    void enqueueConfirmationCode(String to, String confirmationCode);
+    int dispatch();
+}
@@ -1,5 +1,11 @@
 package com.ahicode.services;
 
+import com.ahicode.dtos.ConfirmationEmail;
+
+import java.util.List;
+import java.util.Map;
+
 public interface EmailService {
     void sendConfirmationCode(String to, String confirmationCode);
+    Map<ConfirmationEmail, Exception> sendConfirmationCodes(List<ConfirmationEmail> emails);
 }
@@ -0,0 +1,6 @@
+package com.ahicode.services;
+
+public interface IdentifierFilterService {
+    boolean mightBeTaken(String email, String nickname);
+    void add(String email, String nickname);
+}
@@ -8,7 +8,8 @@ import com.ahicode.factories.TemporaryUserDtoFactory;
 import com.ahicode.factories.UserDtoFactory;
 import com.ahicode.factories.UserEntityFactory;
 import com.ahicode.services.AuthService;
-import com.ahicode.services.EmailService;
+import com.ahicode.services.EmailOutboxService;
+import com.ahicode.services.IdentifierFilterService;
 import com.ahicode.services.JwtService;
 import com.ahicode.services.TokenService;
 import com.ahicode.storage.entities.UserEntity;
@@ -16,6 +17,7 @@ import com.ahicode.storage.repositories.UserRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.HttpStatus;
 
@@ -23,10 +25,9 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -38,7 +39,8 @@ public class AuthServiceImpl implements AuthService {
     private final UserDtoFactory dtoFactory;
     private final UserRepository repository;
     private final TokenService tokenService;
-    private final EmailService emailService;
+    private final EmailOutboxService emailOutboxService;
+    private final IdentifierFilterService identifierFilterService;
     private final UserEntityFactory entityFactory;
     private final PasswordEncoder passwordEncoder;
     private final AuthResponseFactory authResponseFactory;
@@ -57,7 +59,8 @@ public class AuthServiceImpl implements AuthService {
             UserDtoFactory dtoFactory,
             UserRepository repository,
             TokenService tokenService,
-            EmailService emailService,
+            EmailOutboxService emailOutboxService,
+            IdentifierFilterService identifierFilterService,
             UserEntityFactory entityFactory,
             PasswordEncoder passwordEncoder,
             AuthResponseFactory authResponseFactory,
@@ -69,7 +72,8 @@ public class AuthServiceImpl implements AuthService {
         this.dtoFactory = dtoFactory;
         this.repository = repository;
         this.tokenService = tokenService;
-        this.emailService = emailService;
+        this.emailOutboxService = emailOutboxService;
+        this.identifierFilterService = identifierFilterService;
         this.entityFactory = entityFactory;
         this.passwordEncoder = passwordEncoder;
         this.authResponseFactory = authResponseFactory;
@@ -88,8 +92,7 @@ public class AuthServiceImpl implements AuthService {
             throw new AppException("Email is invalid", HttpStatus.BAD_REQUEST);
         }
 
-        isEmailUniqueness(email);
-        isNicknameUniqueness(nickname);
+        checkUniqueness(email, nickname);
 
         String confirmationCode = generateCode();
 
@@ -97,11 +100,12 @@ public class AuthServiceImpl implements AuthService {
         redisTemplate.opsForValue().set(email, temporaryUserDto, 20, TimeUnit.MINUTES);
         log.info("User information with email {} is temporarily saved", email);
 
+        // the email itself goes out in the background, the request only waits for the outbox row
         try {
-            emailService.sendConfirmationCode(email, confirmationCode);
-            log.info("Message with activation code was send to email {}", email);
+            emailOutboxService.enqueueConfirmationCode(email, confirmationCode);
+            log.info("Message with activation code for email {} was queued", email);
         } catch (RuntimeException exception) {
-            log.error("Attempt to send message was unsuccessful", exception);
+            log.error("Attempt to queue message was unsuccessful", exception);
             throw new AppException("There was an error sending the message", HttpStatus.INTERNAL_SERVER_ERROR);
         }
 
@@ -139,13 +143,14 @@ public class AuthServiceImpl implements AuthService {
 
         if (passwordEncoder.matches(signInRequest.getPassword(), user.getPassword())) {
             integerRedisTemplate.delete(failedLoginKey);
+            rehashIfNeeded(user, signInRequest.getPassword());
 
             Long userId = user.getId();
             AppRole role = user.getRole();
             UserDto userDto = dtoFactory.makeUserDto(user);
 
-            String accessToken = jwtService.generateAccessToken(userId, nickname, role);
-            String refreshToken = jwtService.generateRefreshToken(userId, nickname, role);
+            String accessToken = jwtService.generateAccessToken(userId, nickname, role, user.getTokenEpoch());
+            String refreshToken = jwtService.generateRefreshToken(userId, nickname, role, user.getTokenEpoch());
 
             AuthResponse response = authResponseFactory.makeAuthResponse(userDto, accessToken, refreshToken);
 
@@ -161,6 +166,36 @@ public class AuthServiceImpl implements AuthService {
         }
     }
 
+    @Override
+    @Transactional
+    public int revokeAllSessions(Long userId) {
+        // a single row update, the tokens minted before it fall below the new epoch
+        if (repository.incrementTokenEpoch(userId) == 0) {
+            log.error("Attempt to revoke the sessions of a non-existent user with id {}", userId);
+            throw new AppException(String.format("User with id %d doesn't exists", userId), HttpStatus.NOT_FOUND);
+        }
+
+        int tokenEpoch = repository.findById(userId).map(UserEntity::getTokenEpoch).orElseThrow();
+        log.info("All sessions of the user with id {} were revoked, the token epoch is now {}", userId, tokenEpoch);
+
+        return tokenEpoch;
+    }
+
+    // the password is only known right after a match, so hashes of an outdated cost are replaced here
+    private void rehashIfNeeded(UserEntity user, String rawPassword) {
+        if (!passwordEncoder.upgradeEncoding(user.getPassword())) {
+            return;
+        }
+
+        try {
+            repository.updatePassword(user.getId(), passwordEncoder.encode(rawPassword));
+            log.info("Password of the user with id {} was rehashed with the current cost", user.getId());
+        } catch (RuntimeException exception) {
+            // the login itself succeeded, the rehash is tried again on the next one
+            log.warn("Failed to rehash the password of the user with id {}: {}", user.getId(), exception.getMessage());
+        }
+    }
+
     private String generateCode() {
         Random random = new Random();
 
@@ -178,25 +213,12 @@ public class AuthServiceImpl implements AuthService {
         return matcher.matches();
     }
 
-    private void isEmailUniqueness(String email) {
-        checkUniqueness(
-                "email", email, repository::findByEmail, "User with email %s is already exists"
-        );
-    }
-
     private boolean isLockedLogin(String lockKey) {
         Boolean isLocked = integerRedisTemplate.hasKey(lockKey);
 
         return isLocked != null && isLocked;
     }
 
-    private void isNicknameUniqueness(String nickname) {
-        checkUniqueness(
-                "nickname", nickname,
-                repository::findByNickname, "User with nickname %s is already exists"
-        );
-    }
-
     private UserEntity isUserExistsByEmail(String email) {
         return repository.findByEmail(email).orElseThrow(
                 () -> {
@@ -230,7 +252,15 @@ public class AuthServiceImpl implements AuthService {
 
         user.setPassword(passwordEncoder.encode(temporaryUserDto.getPassword()));
 
-        UserEntity savedUser = repository.saveAndFlush(user);
+        UserEntity savedUser;
+        try {
+            savedUser = repository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException exception) {
+            // a concurrent registration, here or on another instance, took the value after the check. The unique
+            // indexes compare case-insensitively, so differently cased duplicates end up here too
+            log.error("Attempt to confirm an account whose email {} or nickname is already taken", email);
+            throw new AppException("User with this email or nickname is already exists", HttpStatus.CONFLICT);
+        }
         log.info("User with email {} was successfully saved", email);
 
         tokenService.createAndSaveToken(user);
@@ -239,15 +269,23 @@ public class AuthServiceImpl implements AuthService {
         return dtoFactory.makeUserDto(savedUser);
     }
 
-    private void checkUniqueness(
-            String varName, String value, Function<String, Optional<UserEntity>> findFunction, String errorMessage
-    ) {
-        findFunction.apply(value)
-                .ifPresent(
-                        user -> {
-                            log.error("Attempt to register with an existing {} {}", varName, value);
-                            throw new AppException(String.format(errorMessage, value), HttpStatus.BAD_REQUEST);
-                        }
-                );
+    // most sign-ups bring new values, the filter answers those without the database. Otherwise one query finds the
+    // users holding either value, the email is reported first
+    private void checkUniqueness(String email, String nickname) {
+        if (!identifierFilterService.mightBeTaken(email, nickname)) {
+            return;
+        }
+
+        List<UserRepository.Identifiers> taken = repository.findTakenIdentifiers(email, nickname);
+
+        if (taken.stream().anyMatch(identifiers -> identifiers.getEmail().equalsIgnoreCase(email))) {
+            log.error("Attempt to register with an existing email {}", email);
+            throw new AppException(String.format("User with email %s is already exists", email), HttpStatus.BAD_REQUEST);
+        }
+
+        if (taken.stream().anyMatch(identifiers -> identifiers.getNickname().equalsIgnoreCase(nickname))) {
+            log.error("Attempt to register with an existing nickname {}", nickname);
+            throw new AppException(String.format("User with nickname %s is already exists", nickname), HttpStatus.BAD_REQUEST);
+        }
     }
 }
@@ -0,0 +1,234 @@
+package com.ahicode.services.impl;
+
+import com.ahicode.dtos.ConfirmationEmail;
+import com.ahicode.services.EmailOutboxService;
+import com.ahicode.services.EmailService;
+import com.ahicode.storage.entities.EmailOutboxEntity;
+import com.ahicode.storage.repositories.EmailOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// registration only writes a row, the confirmation emails go out from here. A poll claims a batch of due rows and
+// pushes their next attempt past the lease, so a crashed instance's rows are picked up again later. The batch is split
+// between a small pool of senders, each sending its share in one go over a pooled connection. A failed email is
+// retried with exponential backoff until it succeeds, runs out of attempts or the confirmation code expires
+@Slf4j
+@Service
+public class EmailOutboxServiceImpl implements EmailOutboxService, DisposableBean {
+
+    private static final String METRIC_NAME = "auth.mail.outbox.dispatched";
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private final EmailService emailService;
+    private final EmailOutboxRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${application.mail.outbox.enabled:true}")
+    private boolean enabled;
+    @Value("${application.mail.outbox.poll-interval:500ms}")
+    private Duration pollInterval;
+    @Value("${application.mail.outbox.batch-size:50}")
+    private int batchSize;
+    @Value("${application.mail.outbox.concurrency:4}")
+    private int concurrency;
+    @Value("${application.mail.outbox.max-attempts:6}")
+    private int maxAttempts;
+    @Value("${application.mail.outbox.backoff:5s}")
+    private Duration backoff;
+    @Value("${application.mail.outbox.max-backoff:5m}")
+    private Duration maxBackoff;
+    @Value("${application.mail.outbox.lease:2m}")
+    private Duration lease;
+    @Value("${application.mail.outbox.code-ttl:20m}")
+    private Duration codeTtl;
+
+    private ScheduledExecutorService poller;
+    private ExecutorService senders;
+
+    @Autowired
+    public EmailOutboxServiceImpl(
+            EmailService emailService,
+            EmailOutboxRepository repository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.emailService = emailService;
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    private void init() {
+        senders = Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory("mail-outbox-sender-"));
+
+        if (!enabled) {
+            return;
+        }
+
+        poller = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("mail-outbox-poller-"));
+        poller.scheduleWithFixedDelay(this::dispatchSafely, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void enqueueConfirmationCode(String to, String confirmationCode) {
+        Instant now = Instant.now();
+
+        repository.save(EmailOutboxEntity.builder()
+                .recipient(to)
+                .confirmationCode(confirmationCode)
+                .nextAttemptAt(now)
+                .expiresAt(now.plus(codeTtl))
+                .createAt(now)
+                .build());
+    }
+
+    // returns the number of rows handled, the poller keeps going without a pause while whole batches come back
+    @Override
+    public int dispatch() {
+        Instant now = Instant.now();
+        List<EmailOutboxEntity> claimed = transactionTemplate.execute(status -> claim(now));
+
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+
+        List<EmailOutboxEntity> live = new ArrayList<>(claimed.size());
+        for (EmailOutboxEntity entry : claimed) {
+            if (entry.getExpiresAt().isBefore(now)) {
+                expire(entry);
+            } else {
+                live.add(entry);
+            }
+        }
+
+        int chunkSize = Math.max(1, (live.size() + concurrency - 1) / concurrency);
+        List<CompletableFuture<?>> sends = new ArrayList<>();
+        for (int from = 0; from < live.size(); from += chunkSize) {
+            List<EmailOutboxEntity> chunk = live.subList(from, Math.min(from + chunkSize, live.size()));
+            sends.add(CompletableFuture.runAsync(() -> deliver(chunk), senders));
+        }
+
+        CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0])).join();
+        return claimed.size();
+    }
+
+    @Override
+    public void destroy() {
+        if (poller != null) {
+            poller.shutdown();
+        }
+        senders.shutdown();
+    }
+
+    private void dispatchSafely() {
+        try {
+            // a backlog is drained batch by batch before the next pause
+            int handled;
+            do {
+                handled = dispatch();
+            } while (handled == batchSize);
+        } catch (RuntimeException exception) {
+            // the rows stay in the outbox, the next poll tries again
+            log.error("Failed to dispatch the email outbox: {}", exception.getMessage());
+        }
+    }
+
+    private List<EmailOutboxEntity> claim(Instant now) {
+        List<EmailOutboxEntity> due = repository.findDueForUpdate(now, batchSize);
+
+        // written on commit, before any of the emails is sent
+        for (EmailOutboxEntity entry : due) {
+            entry.setAttempts(entry.getAttempts() + 1);
+            entry.setNextAttemptAt(now.plus(lease));
+        }
+
+        return due;
+    }
+
+    private void expire(EmailOutboxEntity entry) {
+        repository.deleteById(entry.getId());
+        count("expired");
+        log.warn("The confirmation code for {} expired before it could be sent", entry.getRecipient());
+    }
+
+    private void deliver(List<EmailOutboxEntity> entries) {
+        List<ConfirmationEmail> emails = new ArrayList<>(entries.size());
+        for (EmailOutboxEntity entry : entries) {
+            emails.add(new ConfirmationEmail(entry.getRecipient(), entry.getConfirmationCode()));
+        }
+
+        Map<ConfirmationEmail, Exception> failed;
+        try {
+            failed = emailService.sendConfirmationCodes(emails);
+        } catch (RuntimeException exception) {
+            entries.forEach(entry -> handleFailure(entry, exception));
+            return;
+        }
+
+        for (int i = 0; i < entries.size(); i++) {
+            EmailOutboxEntity entry = entries.get(i);
+            Exception exception = failed.get(emails.get(i));
+
+            if (exception != null) {
+                handleFailure(entry, exception);
+                continue;
+            }
+
+            repository.deleteById(entry.getId());
+            count("sent");
+            log.info("Message with activation code was sent to email {}", entry.getRecipient());
+        }
+    }
+
+    private void handleFailure(EmailOutboxEntity entry, Exception exception) {
+        if (entry.getAttempts() >= maxAttempts) {
+            repository.deleteById(entry.getId());
+            count("failed");
+            log.error("Gave up sending the activation code to {} after {} attempts: {}",
+                    entry.getRecipient(), entry.getAttempts(), exception.getMessage());
+            return;
+        }
+
+        repository.reschedule(entry.getId(), Instant.now().plus(backoffFor(entry.getAttempts())), truncate(exception.getMessage()));
+        count("retried");
+        log.warn("Attempt {} to send the activation code to {} failed, retrying later: {}",
+                entry.getAttempts(), entry.getRecipient(), exception.getMessage());
+    }
+
+    private Duration backoffFor(int attempts) {
+        Duration delay = backoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private void count(String result) {
+        meterRegistry.counter(METRIC_NAME, "result", result).increment();
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
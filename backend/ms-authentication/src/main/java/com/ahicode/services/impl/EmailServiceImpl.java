@@ -1,12 +1,19 @@
 package com.ahicode.services.impl;
 
+import com.ahicode.dtos.ConfirmationEmail;
 import com.ahicode.services.EmailService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Service
 @RequiredArgsConstructor
 public class EmailServiceImpl implements EmailService {
@@ -17,6 +24,45 @@ public class EmailServiceImpl implements EmailService {
 
     @Override
     public void sendConfirmationCode(String sendTo, String confirmationCode) {
+        mailSender.send(confirmationMessage(sendTo, confirmationCode));
+    }
+
+    // one send call for the whole batch, so the messages share a connection. Returns the emails that failed with
+    // their cause, empty when all of them were sent
+    @Override
+    public Map<ConfirmationEmail, Exception> sendConfirmationCodes(List<ConfirmationEmail> emails) {
+        SimpleMailMessage[] messages = new SimpleMailMessage[emails.size()];
+        Map<SimpleMailMessage, ConfirmationEmail> emailsByMessage = new IdentityHashMap<>();
+        for (int i = 0; i < messages.length; i++) {
+            ConfirmationEmail email = emails.get(i);
+            messages[i] = confirmationMessage(email.getRecipient(), email.getConfirmationCode());
+            emailsByMessage.put(messages[i], email);
+        }
+
+        Map<ConfirmationEmail, Exception> failed = new IdentityHashMap<>();
+        try {
+            mailSender.send(messages);
+        } catch (MailSendException exception) {
+            // keyed by the messages passed in, a failed connection lists every message it took down
+            exception.getFailedMessages().forEach((message, cause) -> {
+                ConfirmationEmail email = emailsByMessage.get(message);
+                if (email != null) {
+                    failed.put(email, cause);
+                }
+            });
+
+            if (failed.isEmpty()) {
+                emails.forEach(email -> failed.put(email, exception));
+            }
+        } catch (MailException exception) {
+            // authentication or preparation failed before anything was sent
+            emails.forEach(email -> failed.put(email, exception));
+        }
+
+        return failed;
+    }
+
+    private SimpleMailMessage confirmationMessage(String sendTo, String confirmationCode) {
         SimpleMailMessage message = new SimpleMailMessage();
         message.setFrom(username);
         message.setTo(sendTo);
@@ -27,6 +73,6 @@ public class EmailServiceImpl implements EmailService {
                         confirmationCode
                 )
         );
-        mailSender.send(message);
+        return message;
     }
 }
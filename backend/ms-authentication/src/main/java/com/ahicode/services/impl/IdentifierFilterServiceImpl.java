@@ -0,0 +1,168 @@
+package com.ahicode.services.impl;
+
+import com.ahicode.services.BloomFilter;
+import com.ahicode.services.IdentifierFilterService;
+import com.ahicode.storage.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// a Bloom filter of the emails and nicknames in use, so a sign-up with new values skips the uniqueness query. It is
+// built from the table at startup and fed by this instance's inserts, the refresher catches up on the rows other
+// instances inserted and rebuilds it bigger once it holds more users than it was sized for. Until the first build
+// finishes everything is checked in the database. The unique constraints still decide on confirm
+@Slf4j
+@Service
+public class IdentifierFilterServiceImpl implements IdentifierFilterService, DisposableBean {
+
+    private static final String METRIC_NAME = "auth.registration.uniqueness.checks";
+    private static final int PAGE_SIZE = 10000;
+
+    private final UserRepository repository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${application.registration.identifier-filter.enabled:true}")
+    private boolean enabled;
+    @Value("${application.registration.identifier-filter.expected-users:100000}")
+    private long expectedUsers;
+    @Value("${application.registration.identifier-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+    @Value("${application.registration.identifier-filter.refresh-interval:10s}")
+    private Duration refreshInterval;
+
+    private volatile BloomFilter filter;
+    // the filter being built, inserts go into both until it replaces the current one
+    private volatile BloomFilter building;
+    // only touched by the refresher
+    private long lastSeenId;
+    private long users;
+    private ScheduledExecutorService refresher;
+
+    @Autowired
+    public IdentifierFilterServiceImpl(UserRepository repository, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    private void init() {
+        if (!enabled) {
+            return;
+        }
+
+        // the first build runs in the background, it doesn't hold up the startup
+        refresher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("identifier-filter-refresher-"));
+        refresher.execute(this::refreshSafely);
+        refresher.scheduleWithFixedDelay(
+                this::refreshSafely, refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS
+        );
+    }
+
+    @Override
+    public boolean mightBeTaken(String email, String nickname) {
+        BloomFilter current = filter;
+
+        boolean mightBeTaken = current == null
+                || current.mightContain(emailKey(email))
+                || current.mightContain(nicknameKey(nickname));
+
+        meterRegistry.counter(METRIC_NAME, "result", mightBeTaken ? "database" : "filtered").increment();
+        return mightBeTaken;
+    }
+
+    // building is read first, once it is cleared the filter already points to the new one
+    @Override
+    public void add(String email, String nickname) {
+        BloomFilter next = building;
+        if (next != null) {
+            put(next, email, nickname);
+        }
+
+        BloomFilter current = filter;
+        if (current != null) {
+            put(current, email, nickname);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (refresher != null) {
+            refresher.shutdown();
+        }
+    }
+
+    private void refreshSafely() {
+        try {
+            if (filter == null || users > filter.getCapacity() / 2) {
+                rebuild();
+            } else {
+                users += load(filter);
+            }
+        } catch (RuntimeException exception) {
+            // the filter stays as it is, the next refresh tries again
+            log.error("Failed to refresh the identifier filter: {}", exception.getMessage());
+        }
+    }
+
+    private void rebuild() {
+        long capacity = Math.max(expectedUsers, repository.count() * 2);
+        // an email and a nickname per user
+        BloomFilter next = new BloomFilter(capacity * 2, falsePositiveRate);
+
+        building = next;
+        try {
+            lastSeenId = 0;
+            users = load(next);
+            filter = next;
+        } finally {
+            building = null;
+        }
+
+        log.info("Identifier filter was built from {} users, sized for {}", users, capacity);
+    }
+
+    // adds the users inserted since the last load, page by page in the order of the primary key
+    private long load(BloomFilter target) {
+        long loaded = 0;
+        List<UserRepository.Identifiers> page;
+
+        do {
+            page = repository.findIdentifiersAfter(lastSeenId, PageRequest.of(0, PAGE_SIZE));
+
+            for (UserRepository.Identifiers identifiers : page) {
+                put(target, identifiers.getEmail(), identifiers.getNickname());
+                lastSeenId = identifiers.getId();
+            }
+            loaded += page.size();
+        } while (page.size() == PAGE_SIZE);
+
+        return loaded;
+    }
+
+    private static void put(BloomFilter target, String email, String nickname) {
+        target.put(emailKey(email));
+        target.put(nicknameKey(nickname));
+    }
+
+    // the same values in another case are taken too
+    private static String emailKey(String email) {
+        return "email:" + email.toLowerCase(Locale.ROOT);
+    }
+
+    private static String nicknameKey(String nickname) {
+        return "nickname:" + nickname.toLowerCase(Locale.ROOT);
+    }
+}
@@ -40,7 +40,7 @@ public class TokenServiceImpl implements TokenService {
         AppRole userRole = user.getRole();
         String userNickname = user.getNickname();
 
-        String refreshToken = jwtService.generateRefreshToken(userId, userNickname, userRole);
+        String refreshToken = jwtService.generateRefreshToken(userId, userNickname, userRole, user.getTokenEpoch());
         Date expirationTime = new Date(System.currentTimeMillis() + refreshTokenExpiration);
 
         String encryptedToken = encryptionService.encrypt(refreshToken);
@@ -67,7 +67,8 @@ public class TokenServiceImpl implements TokenService {
                 String newRefreshToken = jwtService.generateRefreshToken(
                         jwtService.extractUserIdFromAccessToken(decryptedToken),
                         nickname,
-                        jwtService.extractRoleFromAccessToken(decryptedToken)
+                        jwtService.extractRoleFromAccessToken(decryptedToken),
+                        refreshTokenEntity.getUser().getTokenEpoch()
                 );
                 String encryptedNewToken = encryptionService.encrypt(newRefreshToken);
                 refreshTokenEntity.setToken(encryptedNewToken);
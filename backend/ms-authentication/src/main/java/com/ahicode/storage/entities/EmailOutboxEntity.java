@@ -0,0 +1,40 @@
+package com.ahicode.storage.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "email_outbox")
+public class EmailOutboxEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 50, nullable = false)
+    private String recipient;
+
+    @Column(name = "confirmation_code", length = 16, nullable = false)
+    private String confirmationCode;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @Column(name = "create_at", nullable = false)
+    private Instant createAt;
+}
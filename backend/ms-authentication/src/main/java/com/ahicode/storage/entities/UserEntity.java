@@ -57,6 +57,10 @@ public class UserEntity implements UserDetails {
     @Column(name = "create_at")
     private Instant createAt;
 
+    // minted into every token, revoking all sessions of the user raises it
+    @Column(name = "token_epoch", nullable = false)
+    private int tokenEpoch;
+
     @OneToOne(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     private RefreshTokenEntity token;
 
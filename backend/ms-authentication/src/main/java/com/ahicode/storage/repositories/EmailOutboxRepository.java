@@ -0,0 +1,27 @@
+package com.ahicode.storage.repositories;
+
+import com.ahicode.storage.entities.EmailOutboxEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxEntity, Long> {
+
+    // rows locked by another instance are skipped, so several instances can dispatch the same outbox
+    @Query(
+            value = "SELECT * FROM email_outbox WHERE next_attempt_at <= :now " +
+                    "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true
+    )
+    List<EmailOutboxEntity> findDueForUpdate(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutboxEntity e SET e.nextAttemptAt = :nextAttemptAt, e.lastError = :lastError WHERE e.id = :id")
+    int reschedule(@Param("id") Long id, @Param("nextAttemptAt") Instant nextAttemptAt, @Param("lastError") String lastError);
+}
@@ -2,12 +2,41 @@ package com.ahicode.storage.repositories;
 
 import com.ahicode.storage.entities.UserEntity;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
     @NotNull Optional<UserEntity> findById(@NotNull Long id);
     Optional<UserEntity> findByEmail(String email);
     Optional<UserEntity> findByNickname(String nickname);
+
+    // the users holding either value, compared case-insensitively on the LOWER indexes
+    @Query("SELECT u.id AS id, u.email AS email, u.nickname AS nickname FROM UserEntity u " +
+            "WHERE LOWER(u.email) = LOWER(:email) OR LOWER(u.nickname) = LOWER(:nickname)")
+    List<Identifiers> findTakenIdentifiers(@Param("email") String email, @Param("nickname") String nickname);
+
+    @Query("SELECT u.id AS id, u.email AS email, u.nickname AS nickname FROM UserEntity u WHERE u.id > :id ORDER BY u.id")
+    List<Identifiers> findIdentifiersAfter(@Param("id") Long id, Pageable pageable);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE UserEntity u SET u.tokenEpoch = u.tokenEpoch + 1 WHERE u.id = :id")
+    int incrementTokenEpoch(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE UserEntity u SET u.password = :password WHERE u.id = :id")
+    int updatePassword(@Param("id") Long id, @Param("password") String password);
+
+    interface Identifiers {
+        Long getId();
+        String getEmail();
+        String getNickname();
+    }
 }
@@ -0,0 +1 @@
+ALTER TABLE app_user ADD COLUMN token_epoch INTEGER NOT NULL DEFAULT 0;
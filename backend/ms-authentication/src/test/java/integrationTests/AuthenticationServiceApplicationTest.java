@@ -7,6 +7,7 @@ import com.ahicode.dtos.SignUpRequest;
 import com.ahicode.dtos.TemporaryUserDto;
 import com.ahicode.enums.AppRole;
 import com.ahicode.exceptions.AppException;
+import com.ahicode.services.EmailOutboxService;
 import com.ahicode.services.EmailService;
 import com.ahicode.services.EncryptionService;
 import com.ahicode.services.JwtService;
@@ -38,7 +39,11 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doThrow;
 
 @ContextConfiguration(classes = AuthenticationServiceRunner.class)
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+// there is no Kafka here, the token epoch table is not read
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "application.kafka.token-epochs.enabled=false"
+)
 public class AuthenticationServiceApplicationTest {
     @LocalServerPort
     private Integer port;
@@ -51,6 +56,8 @@ public class AuthenticationServiceApplicationTest {
     private EmailService emailService;
     @SpyBean
     private EncryptionService encryptionService;
+    @SpyBean
+    private EmailOutboxService emailOutboxService;
 
     @Autowired
     private JwtService jwtService;
@@ -183,11 +190,11 @@ public class AuthenticationServiceApplicationTest {
         }
 
         @Test
-        void should_Return_500_For_Email_Sending_Error() {
+        void should_Return_500_For_Email_Queueing_Error() {
             SignUpRequest requestBody = getSignUpRequest();
 
-            doThrow(new RuntimeException("Email sending failed"))
-                    .when(emailService).sendConfirmationCode(anyString(), anyString());
+            doThrow(new RuntimeException("Email queueing failed"))
+                    .when(emailOutboxService).enqueueConfirmationCode(anyString(), anyString());
 
             RestAssured.given()
                     .contentType("application/json")
@@ -424,8 +431,8 @@ public class AuthenticationServiceApplicationTest {
             Long userId = 1L;
             String email = "test@mail.com";
             AppRole userRole = AppRole.USER;
-            String accessToken = jwtService.generateAccessToken(userId, email, userRole);
-            String refreshToken = jwtService.generateRefreshToken(userId, email, userRole);
+            String accessToken = jwtService.generateAccessToken(userId, email, userRole, 0);
+            String refreshToken = jwtService.generateRefreshToken(userId, email, userRole, 0);
 
             Cookie accessTokenCookie = new Cookie.Builder("accessToken", accessToken)
                     .setHttpOnly(true)
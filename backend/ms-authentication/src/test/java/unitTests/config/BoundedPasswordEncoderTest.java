@@ -0,0 +1,104 @@
+package unitTests.config;
+
+import com.ahicode.config.BoundedPasswordEncoder;
+import com.ahicode.exceptions.AppException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedPasswordEncoderTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private BoundedPasswordEncoder encoder;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        encoder.destroy();
+    }
+
+    @Test
+    void shouldHashOnPoolAndRecordLatency() {
+        encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 4, meterRegistry);
+
+        String encoded = encoder.encode("password");
+
+        assertTrue(encoder.matches("password", encoded));
+        assertFalse(encoder.matches("wrong", encoded));
+        assertEquals(1, meterRegistry.get("auth.password.hashing.duration").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("auth.password.hashing.duration").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    void shouldRejectRightAwayWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(started, release), 1, 1, meterRegistry);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("second"));
+        waitForQueueDepth(1);
+
+        AppException exception = assertThrows(AppException.class, () -> encoder.encode("third"));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getHttpStatus());
+        assertEquals(1.0, meterRegistry.get("auth.password.hashing.rejected").counter().count());
+
+        release.countDown();
+        assertEquals("first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("second", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private void waitForQueueDepth(int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (meterRegistry.get("auth.password.hashing.queue").gauge().value() < depth) {
+            assertTrue(System.nanoTime() < deadline, "the hash was not queued in time");
+            Thread.sleep(5);
+        }
+    }
+
+    private static class BlockingEncoder implements PasswordEncoder {
+
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+
+        private BlockingEncoder(CountDownLatch started, CountDownLatch release) {
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+
+            try {
+                release.await();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package unitTests.config;
+
+import com.ahicode.config.CalibratedBCryptPasswordEncoder;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CalibratedBCryptPasswordEncoderTest {
+
+    @Test
+    void shouldStayWithinCostBounds() {
+        assertEquals(4, CalibratedBCryptPasswordEncoder.calibrate(Duration.ofNanos(1), 4, 6).getCost());
+        assertEquals(6, CalibratedBCryptPasswordEncoder.calibrate(Duration.ofMinutes(1), 4, 6).getCost());
+    }
+
+    @Test
+    void shouldRequestRehashOnlyForLowerCost() {
+        CalibratedBCryptPasswordEncoder encoder = new CalibratedBCryptPasswordEncoder(5);
+
+        assertFalse(encoder.upgradeEncoding(encoder.encode("password")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password")));
+        // a slower host or a busy startup must not weaken stored hashes
+        assertFalse(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("password")));
+    }
+
+    @Test
+    void shouldIgnoreValuesThatAreNotBCryptHashes() {
+        CalibratedBCryptPasswordEncoder encoder = new CalibratedBCryptPasswordEncoder(5);
+
+        assertFalse(encoder.upgradeEncoding(null));
+        assertFalse(encoder.upgradeEncoding("plain"));
+        assertFalse(encoder.upgradeEncoding("$2a$xx$abcdefghijklmnopqrstuv"));
+    }
+
+    @Test
+    void shouldMatchHashesOfOtherCost() {
+        CalibratedBCryptPasswordEncoder encoder = new CalibratedBCryptPasswordEncoder(5);
+
+        assertTrue(encoder.matches("password", new BCryptPasswordEncoder(4).encode("password")));
+    }
+}
@@ -0,0 +1,120 @@
+package unitTests.config;
+
+import com.ahicode.config.PooledJavaMailSender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import unitTests.services.FakeSmtpServer;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PooledJavaMailSenderTest {
+
+    private FakeSmtpServer smtpServer;
+    private SimpleMeterRegistry meterRegistry;
+    private PooledJavaMailSender mailSender;
+
+    @BeforeEach
+    void setup() throws Exception {
+        smtpServer = new FakeSmtpServer();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mailSender.destroy();
+        smtpServer.close();
+    }
+
+    @Test
+    void shouldSendSeparateCallsOverOneConnection() {
+        mailSender = sender(100, Duration.ofSeconds(30), Duration.ofSeconds(5));
+
+        mailSender.send(message(1));
+        mailSender.send(message(2));
+        mailSender.send(message(3));
+
+        assertEquals(3, smtpServer.getMessages().size());
+        assertEquals(1, smtpServer.getAcceptedConnections());
+        assertEquals(1.0, meterRegistry.get("auth.mail.pool.connections.opened").counter().count());
+        assertEquals(1.0, meterRegistry.get("auth.mail.pool.connections.idle").gauge().value());
+    }
+
+    @Test
+    void shouldOpenNewConnectionAfterMessageLimit() {
+        mailSender = sender(2, Duration.ofSeconds(30), Duration.ofSeconds(5));
+
+        mailSender.send(message(1), message(2), message(3), message(4), message(5));
+
+        assertEquals(5, smtpServer.getMessages().size());
+        assertEquals(3, smtpServer.getAcceptedConnections());
+    }
+
+    @Test
+    void shouldReplaceConnectionDroppedByServer() throws Exception {
+        // validated on every reuse
+        mailSender = sender(100, Duration.ofSeconds(30), Duration.ZERO);
+        mailSender.send(message(1));
+
+        smtpServer.dropConnections();
+        mailSender.send(message(2));
+
+        assertEquals(2, smtpServer.getMessages().size());
+        assertEquals(2, smtpServer.getAcceptedConnections());
+    }
+
+    @Test
+    void shouldCloseConnectionsIdlePastTimeout() throws Exception {
+        mailSender = sender(100, Duration.ofMillis(100), Duration.ofSeconds(5));
+        mailSender.send(message(1));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.get("auth.mail.pool.connections.idle").gauge().value() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(0.0, meterRegistry.get("auth.mail.pool.connections.idle").gauge().value());
+        mailSender.send(message(2));
+        assertEquals(2, smtpServer.getAcceptedConnections());
+    }
+
+    @Test
+    void shouldKeepConnectionWhenMessageIsRefused() {
+        mailSender = sender(100, Duration.ofSeconds(30), Duration.ofSeconds(5));
+        SimpleMailMessage refused = message(1);
+
+        smtpServer.setRefusing(true);
+        MailSendException exception = assertThrows(MailSendException.class, () -> mailSender.send(refused));
+        assertTrue(exception.getFailedMessages().containsKey(refused));
+
+        smtpServer.setRefusing(false);
+        mailSender.send(message(2));
+
+        assertEquals(1, smtpServer.getMessages().size());
+        assertEquals(1, smtpServer.getAcceptedConnections());
+    }
+
+    private PooledJavaMailSender sender(int maxMessagesPerConnection, Duration idleTimeout, Duration validateAfter) {
+        PooledJavaMailSender sender = new PooledJavaMailSender(
+                2, maxMessagesPerConnection, idleTimeout, validateAfter, Duration.ofSeconds(5), meterRegistry
+        );
+        sender.setHost("localhost");
+        sender.setPort(smtpServer.getPort());
+        sender.setProtocol("smtp");
+        return sender;
+    }
+
+    private SimpleMailMessage message(int number) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@tasktrack.local");
+        message.setTo("test" + number + "@mail.com");
+        message.setSubject("Account confirmation code");
+        message.setText("Confirmation code: " + number);
+        return message;
+    }
+}
@@ -12,9 +12,11 @@ import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ContextConfiguration;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -115,6 +117,60 @@ public class UserRepositoryTest {
         assertThat(foundUser).isEmpty();
     }
 
+    @Test
+    void UserRepository_FindTakenIdentifiers_ShouldMatchEitherValueIgnoringCase() {
+        repository.save(user);
+
+        List<UserRepository.Identifiers> byEmail = repository.findTakenIdentifiers("USER@mail.com", "new_nickname");
+        List<UserRepository.Identifiers> byNickname = repository.findTakenIdentifiers("new@mail.com", "User_Test");
+
+        assertThat(byEmail).extracting(UserRepository.Identifiers::getEmail).containsExactly("user@mail.com");
+        assertThat(byNickname).extracting(UserRepository.Identifiers::getNickname).containsExactly("user_test");
+    }
+
+    @Test
+    void UserRepository_FindTakenIdentifiers_ShouldReturnsEmptyForNewValues() {
+        repository.save(user);
+
+        assertThat(repository.findTakenIdentifiers("new@mail.com", "new_nickname")).isEmpty();
+    }
+
+    @Test
+    void UserRepository_FindIdentifiersAfter_ShouldPageInIdOrder() {
+        UserEntity first = repository.saveAndFlush(user);
+        UserEntity second = repository.saveAndFlush(UserEntity.builder()
+                .email("second@mail.com")
+                .nickname("second_test")
+                .firstname("firstname")
+                .lastname("lastname")
+                .role(AppRole.USER)
+                .password("1")
+                .createAt(Instant.now())
+                .build());
+
+        List<UserRepository.Identifiers> firstPage = repository.findIdentifiersAfter(0L, PageRequest.of(0, 1));
+        List<UserRepository.Identifiers> secondPage = repository.findIdentifiersAfter(first.getId(), PageRequest.of(0, 1));
+
+        assertThat(firstPage).extracting(UserRepository.Identifiers::getId).containsExactly(first.getId());
+        assertThat(secondPage).extracting(UserRepository.Identifiers::getId).containsExactly(second.getId());
+        assertThat(repository.findIdentifiersAfter(second.getId(), PageRequest.of(0, 1))).isEmpty();
+    }
+
+    @Test
+    void UserRepository_IncrementTokenEpoch_ShouldRaiseEpoch() {
+        UserEntity savedUser = repository.saveAndFlush(user);
+
+        assertThat(repository.incrementTokenEpoch(savedUser.getId())).isEqualTo(1);
+        assertThat(repository.incrementTokenEpoch(savedUser.getId())).isEqualTo(1);
+
+        assertThat(repository.findById(savedUser.getId()).orElseThrow().getTokenEpoch()).isEqualTo(2);
+    }
+
+    @Test
+    void UserRepository_IncrementTokenEpoch_ShouldUpdateNothingForNonExistentUser() {
+        assertThat(repository.incrementTokenEpoch(228L)).isZero();
+    }
+
     @Test
     void UserRepository_Save_ShouldGetUniquenessError() {
         repository.save(user);
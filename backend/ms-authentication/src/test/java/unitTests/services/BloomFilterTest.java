@@ -0,0 +1,41 @@
+package unitTests.services;
+
+import com.ahicode.services.BloomFilter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterTest {
+
+    @Test
+    void shouldAlwaysReportAddedValues() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+
+        for (int i = 0; i < 10000; i++) {
+            filter.put("email:user" + i + "@mail.com");
+        }
+
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain("email:user" + i + "@mail.com"));
+        }
+    }
+
+    @Test
+    void shouldKeepFalsePositivesNearConfiguredRate() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+
+        for (int i = 0; i < 10000; i++) {
+            filter.put("email:user" + i + "@mail.com");
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain("email:other" + i + "@mail.com")) {
+                falsePositives++;
+            }
+        }
+
+        // 1% expected, the margin keeps the check stable
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+}
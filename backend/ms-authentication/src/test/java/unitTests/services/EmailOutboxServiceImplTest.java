@@ -0,0 +1,154 @@
+package unitTests.services;
+
+import com.ahicode.services.impl.EmailOutboxServiceImpl;
+import com.ahicode.services.impl.EmailServiceImpl;
+import com.ahicode.storage.entities.EmailOutboxEntity;
+import com.ahicode.storage.repositories.EmailOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class EmailOutboxServiceImplTest {
+
+    private FakeSmtpServer smtpServer;
+    private EmailOutboxRepository repository;
+    private SimpleMeterRegistry meterRegistry;
+    private EmailOutboxServiceImpl outboxService;
+
+    @BeforeEach
+    void setup() throws Exception {
+        smtpServer = new FakeSmtpServer();
+        repository = mock(EmailOutboxRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtpServer.getPort());
+        mailSender.setProtocol("smtp");
+
+        EmailServiceImpl emailService = new EmailServiceImpl(mailSender);
+        ReflectionTestUtils.setField(emailService, "username", "noreply@tasktrack.local");
+
+        outboxService = new EmailOutboxServiceImpl(emailService, repository, mock(PlatformTransactionManager.class), meterRegistry);
+        ReflectionTestUtils.setField(outboxService, "enabled", false);
+        ReflectionTestUtils.setField(outboxService, "batchSize", 50);
+        ReflectionTestUtils.setField(outboxService, "concurrency", 2);
+        ReflectionTestUtils.setField(outboxService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(outboxService, "backoff", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(outboxService, "maxBackoff", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(outboxService, "lease", Duration.ofMinutes(2));
+        ReflectionTestUtils.setField(outboxService, "codeTtl", Duration.ofMinutes(20));
+        ReflectionTestUtils.invokeMethod(outboxService, "init");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        outboxService.destroy();
+        smtpServer.close();
+    }
+
+    @Test
+    void shouldOnlyWriteOutboxRowOnEnqueue() {
+        outboxService.enqueueConfirmationCode("test@mail.com", "123456");
+
+        ArgumentCaptor<EmailOutboxEntity> entry = ArgumentCaptor.forClass(EmailOutboxEntity.class);
+        verify(repository).save(entry.capture());
+        assertEquals("test@mail.com", entry.getValue().getRecipient());
+        assertEquals("123456", entry.getValue().getConfirmationCode());
+        assertEquals(Duration.ofMinutes(20), Duration.between(entry.getValue().getCreateAt(), entry.getValue().getExpiresAt()));
+        assertTrue(smtpServer.getMessages().isEmpty());
+    }
+
+    @Test
+    void shouldSendDueEmailsAndRemoveThem() {
+        when(repository.findDueForUpdate(any(), eq(50))).thenReturn(List.of(entry(1L, 0), entry(2L, 0)));
+
+        assertEquals(2, outboxService.dispatch());
+
+        assertEquals(2, smtpServer.getMessages().size());
+        assertTrue(smtpServer.getMessages().get(0).contains("Confirmation code: 123456"));
+        verify(repository).deleteById(1L);
+        verify(repository).deleteById(2L);
+        assertEquals(2.0, meterRegistry.get("auth.mail.outbox.dispatched").tag("result", "sent").counter().count());
+    }
+
+    @Test
+    void shouldSendEachSendersShareOverOneConnection() {
+        when(repository.findDueForUpdate(any(), eq(50)))
+                .thenReturn(List.of(entry(1L, 0), entry(2L, 0), entry(3L, 0), entry(4L, 0), entry(5L, 0), entry(6L, 0)));
+
+        assertEquals(6, outboxService.dispatch());
+
+        // two senders, three emails on each connection
+        assertEquals(6, smtpServer.getMessages().size());
+        assertEquals(2, smtpServer.getAcceptedConnections());
+        assertEquals(6.0, meterRegistry.get("auth.mail.outbox.dispatched").tag("result", "sent").counter().count());
+    }
+
+    @Test
+    void shouldRescheduleWithBackoffWhenSmtpRefuses() {
+        smtpServer.setRefusing(true);
+        when(repository.findDueForUpdate(any(), eq(50))).thenReturn(List.of(entry(1L, 1)));
+        Instant before = Instant.now();
+
+        outboxService.dispatch();
+
+        // the claim made it the second attempt, the delay doubles from the base
+        ArgumentCaptor<Instant> nextAttempt = ArgumentCaptor.forClass(Instant.class);
+        verify(repository).reschedule(eq(1L), nextAttempt.capture(), anyString());
+        assertFalse(nextAttempt.getValue().isBefore(before.plusSeconds(10)));
+        verify(repository, never()).deleteById(any());
+        assertEquals(1.0, meterRegistry.get("auth.mail.outbox.dispatched").tag("result", "retried").counter().count());
+    }
+
+    @Test
+    void shouldGiveUpAfterMaxAttempts() {
+        smtpServer.setRefusing(true);
+        when(repository.findDueForUpdate(any(), eq(50))).thenReturn(List.of(entry(1L, 2)));
+
+        outboxService.dispatch();
+
+        verify(repository).deleteById(1L);
+        verify(repository, never()).reschedule(any(), any(), any());
+        assertEquals(1.0, meterRegistry.get("auth.mail.outbox.dispatched").tag("result", "failed").counter().count());
+    }
+
+    @Test
+    void shouldDropExpiredCodesWithoutSending() {
+        EmailOutboxEntity expired = entry(1L, 0);
+        expired.setExpiresAt(Instant.now().minusSeconds(1));
+        when(repository.findDueForUpdate(any(), eq(50))).thenReturn(List.of(expired));
+
+        outboxService.dispatch();
+
+        assertTrue(smtpServer.getMessages().isEmpty());
+        verify(repository).deleteById(1L);
+        assertEquals(1.0, meterRegistry.get("auth.mail.outbox.dispatched").tag("result", "expired").counter().count());
+    }
+
+    private EmailOutboxEntity entry(Long id, int attempts) {
+        Instant now = Instant.now();
+
+        return EmailOutboxEntity.builder()
+                .id(id)
+                .recipient("test" + id + "@mail.com")
+                .confirmationCode("123456")
+                .attempts(attempts)
+                .nextAttemptAt(now)
+                .expiresAt(now.plus(Duration.ofMinutes(20)))
+                .createAt(now)
+                .build();
+    }
+}
@@ -1,5 +1,6 @@
 package unitTests.services;
 
+import com.ahicode.dtos.ConfirmationEmail;
 import com.ahicode.services.impl.EmailServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,6 +10,13 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 import static org.mockito.Mockito.*;
 
@@ -41,4 +49,47 @@ public class EmailServiceImplTest {
 
         verify(javaMailSender, times(1)).send(expectedMessage);
     }
+
+    @Test
+    void shouldSendBatchOverOneConnection() throws Exception {
+        try (FakeSmtpServer smtpServer = new FakeSmtpServer()) {
+            EmailServiceImpl batchService = smtpEmailService(smtpServer);
+
+            Map<ConfirmationEmail, Exception> failed = batchService.sendConfirmationCodes(List.of(
+                    new ConfirmationEmail("first@mail.com", "111111"),
+                    new ConfirmationEmail("second@mail.com", "222222")
+            ));
+
+            assertTrue(failed.isEmpty());
+            assertEquals(2, smtpServer.getMessages().size());
+            assertEquals(1, smtpServer.getAcceptedConnections());
+        }
+    }
+
+    @Test
+    void shouldReturnEveryRefusedEmailOfBatch() throws Exception {
+        try (FakeSmtpServer smtpServer = new FakeSmtpServer()) {
+            smtpServer.setRefusing(true);
+            EmailServiceImpl batchService = smtpEmailService(smtpServer);
+            ConfirmationEmail first = new ConfirmationEmail("first@mail.com", "111111");
+            ConfirmationEmail second = new ConfirmationEmail("second@mail.com", "222222");
+
+            Map<ConfirmationEmail, Exception> failed = batchService.sendConfirmationCodes(List.of(first, second));
+
+            assertEquals(2, failed.size());
+            assertTrue(failed.containsKey(first));
+            assertTrue(failed.containsKey(second));
+        }
+    }
+
+    private EmailServiceImpl smtpEmailService(FakeSmtpServer smtpServer) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtpServer.getPort());
+        mailSender.setProtocol("smtp");
+
+        EmailServiceImpl service = new EmailServiceImpl(mailSender);
+        ReflectionTestUtils.setField(service, "username", "noreply@tasktrack.local");
+        return service;
+    }
 }
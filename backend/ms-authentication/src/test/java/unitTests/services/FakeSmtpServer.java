@@ -0,0 +1,137 @@
+package unitTests.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// a local stand-in for the SMTP server, it speaks just enough of the protocol for JavaMail's plain smtp transport
+// and keeps the received messages. It can be told to refuse mail to check the retries, to drop its connections, and
+// to delay the greeting the way a TLS handshake and login delay a new connection to the real server
+public class FakeSmtpServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final List<String> messages = new CopyOnWriteArrayList<>();
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger acceptedConnections = new AtomicInteger();
+    private volatile boolean refusing;
+    private volatile Duration greetingDelay = Duration.ZERO;
+
+    public FakeSmtpServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        connections.submit(this::acceptConnections);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public List<String> getMessages() {
+        return messages;
+    }
+
+    public int getAcceptedConnections() {
+        return acceptedConnections.get();
+    }
+
+    public void setRefusing(boolean refusing) {
+        this.refusing = refusing;
+    }
+
+    public void setGreetingDelay(Duration greetingDelay) {
+        this.greetingDelay = greetingDelay;
+    }
+
+    // the clients only notice on their next command, like after a server side timeout
+    public void dropConnections() throws IOException {
+        for (Socket socket : openSockets) {
+            socket.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                acceptedConnections.incrementAndGet();
+                openSockets.add(socket);
+                connections.submit(() -> handle(socket));
+            } catch (IOException exception) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             PrintWriter writer = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+            Thread.sleep(greetingDelay.toMillis());
+            reply(writer, "220 localhost fake smtp");
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+
+                switch (command) {
+                    case "EHLO":
+                    case "HELO":
+                        reply(writer, "250 localhost");
+                        break;
+                    case "MAIL":
+                        reply(writer, refusing ? "451 temporarily unavailable" : "250 OK");
+                        break;
+                    case "DATA":
+                        reply(writer, "354 end data with <CR><LF>.<CR><LF>");
+                        messages.add(readData(reader));
+                        reply(writer, "250 OK");
+                        break;
+                    case "QUIT":
+                        reply(writer, "221 bye");
+                        return;
+                    default:
+                        reply(writer, "250 OK");
+                }
+            }
+        } catch (IOException | InterruptedException exception) {
+            // the client went away
+        } finally {
+            openSockets.remove(socket);
+        }
+    }
+
+    private String readData(BufferedReader reader) throws IOException {
+        StringBuilder data = new StringBuilder();
+        String line;
+
+        while ((line = reader.readLine()) != null && !line.equals(".")) {
+            data.append(line).append('\n');
+        }
+
+        return data.toString();
+    }
+
+    private void reply(PrintWriter writer, String response) {
+        writer.print(response + "\r\n");
+        writer.flush();
+    }
+}
@@ -0,0 +1,102 @@
+package unitTests.services;
+
+import com.ahicode.services.impl.IdentifierFilterServiceImpl;
+import com.ahicode.storage.repositories.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class IdentifierFilterServiceImplTest {
+
+    private UserRepository repository;
+    private SimpleMeterRegistry meterRegistry;
+    private IdentifierFilterServiceImpl filterService;
+
+    @BeforeEach
+    void setup() {
+        repository = mock(UserRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        filterService = new IdentifierFilterServiceImpl(repository, meterRegistry);
+        ReflectionTestUtils.setField(filterService, "enabled", false);
+        ReflectionTestUtils.setField(filterService, "expectedUsers", 1000L);
+        ReflectionTestUtils.setField(filterService, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.setField(filterService, "refreshInterval", Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        filterService.destroy();
+    }
+
+    @Test
+    void shouldSendEverythingToDatabaseBeforeFirstBuild() {
+        assertTrue(filterService.mightBeTaken("new@mail.com", "new_nickname"));
+        assertEquals(1.0, meterRegistry.get("auth.registration.uniqueness.checks").tag("result", "database").counter().count());
+    }
+
+    @Test
+    void shouldReportUsersLoadedOnBuildIgnoringCase() {
+        when(repository.findIdentifiersAfter(eq(0L), any())).thenReturn(List.of(identifiers(1L, "user@mail.com", "user_test")));
+
+        refresh();
+
+        assertTrue(filterService.mightBeTaken("USER@mail.com", "new_nickname"));
+        assertTrue(filterService.mightBeTaken("new@mail.com", "User_Test"));
+        assertFalse(filterService.mightBeTaken("new@mail.com", "new_nickname"));
+        assertEquals(1.0, meterRegistry.get("auth.registration.uniqueness.checks").tag("result", "filtered").counter().count());
+    }
+
+    @Test
+    void shouldReportAddedUsersRightAway() {
+        refresh();
+
+        filterService.add("confirmed@mail.com", "confirmed");
+
+        assertTrue(filterService.mightBeTaken("confirmed@mail.com", "new_nickname"));
+    }
+
+    @Test
+    void shouldCatchUpFromLastSeenUser() {
+        when(repository.findIdentifiersAfter(eq(0L), any())).thenReturn(List.of(identifiers(1L, "user@mail.com", "user_test")));
+        refresh();
+
+        // inserted on another instance
+        when(repository.findIdentifiersAfter(eq(1L), any())).thenReturn(List.of(identifiers(2L, "other@mail.com", "other")));
+        refresh();
+
+        assertTrue(filterService.mightBeTaken("other@mail.com", "new_nickname"));
+        verify(repository, times(1)).findIdentifiersAfter(eq(0L), any());
+    }
+
+    private void refresh() {
+        ReflectionTestUtils.invokeMethod(filterService, "refreshSafely");
+    }
+
+    private UserRepository.Identifiers identifiers(Long id, String email, String nickname) {
+        return new UserRepository.Identifiers() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getEmail() {
+                return email;
+            }
+
+            @Override
+            public String getNickname() {
+                return nickname;
+            }
+        };
+    }
+}
@@ -1,6 +1,7 @@
 package com.ahicode.config;
 
 import com.ahicode.services.MessageProducerService;
+import com.ahicode.services.TrustedIdentityService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -17,6 +18,7 @@ import org.springframework.security.web.authentication.www.BasicAuthenticationFi
 public class SecurityConfig {
     private final UserAuthenticationProvider provider;
     private final MessageProducerService messageService;
+    private final TrustedIdentityService identityService;
     private final UserAuthenticationEntryPoint entryPoint;
 
     @Bean
@@ -25,6 +27,7 @@ public class SecurityConfig {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .addFilterBefore(new JwtAuthFilter(provider, messageService), BasicAuthenticationFilter.class)
+                .addFilterBefore(new TrustedIdentityFilter(provider, identityService), JwtAuthFilter.class)
                 .exceptionHandling(exceptionHandling -> exceptionHandling
                         .authenticationEntryPoint(entryPoint)
                 )
@@ -3,18 +3,16 @@ package com.ahicode.controllers;
 import com.ahicode.dtos.ProjectCreationRequestDto;
 import com.ahicode.dtos.ProjectDto;
 import com.ahicode.dtos.ProjectUpdateRequestDto;
-import com.ahicode.services.JwtService;
+import com.ahicode.dtos.VerifiedToken;
 import com.ahicode.services.ProjectService;
-import jakarta.servlet.http.Cookie;
-import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.util.WebUtils;
 
 import java.util.List;
 
@@ -25,61 +23,47 @@ import java.util.List;
 @RequestMapping("/api/v1/project")
 public class ProjectController {
 
-    private final JwtService jwtService;
     private final ProjectService service;
 
     @PostMapping("/create")
-    public ResponseEntity<ProjectDto> createProject(HttpServletRequest request, @Valid @RequestBody ProjectCreationRequestDto requestDto) {
-        String accessToken = extractCookieValue(request, "accessToken");
+    public ResponseEntity<ProjectDto> createProject(Authentication authentication, @Valid @RequestBody ProjectCreationRequestDto requestDto) {
+        VerifiedToken user = currentUser(authentication);
 
-        Long userId = jwtService.extractUserIdFromAccessToken(accessToken);
-        String userNickname = jwtService.extractEmailFromAccessToken(accessToken);
-
-        return ResponseEntity.status(HttpStatus.CREATED).body(service.createProject(requestDto, userId, userNickname));
+        return ResponseEntity.status(HttpStatus.CREATED).body(service.createProject(requestDto, user.getId(), user.getSubject()));
     }
 
     @PatchMapping("/{projectId}/update")
-    public ResponseEntity<ProjectDto> updateProject(HttpServletRequest request, @PathVariable Long projectId, @Valid @RequestBody ProjectUpdateRequestDto requestDto) {
-        String accessToken = extractCookieValue(request, "accessToken");
-        Long userId = jwtService.extractUserIdFromAccessToken(accessToken);
+    public ResponseEntity<ProjectDto> updateProject(Authentication authentication, @PathVariable Long projectId, @Valid @RequestBody ProjectUpdateRequestDto requestDto) {
+        Long userId = currentUser(authentication).getId();
 
         return ResponseEntity.ok(service.updateProjectInfo(projectId, userId, requestDto));
     }
 
     @GetMapping("/{projectId}")
-    public ResponseEntity<ProjectDto> getProject(HttpServletRequest request, @PathVariable Long projectId) {
-        String accessToken = extractCookieValue(request, "accessToken");
-        Long userId = jwtService.extractUserIdFromAccessToken(accessToken);
+    public ResponseEntity<ProjectDto> getProject(Authentication authentication, @PathVariable Long projectId) {
+        Long userId = currentUser(authentication).getId();
 
         return ResponseEntity.ok(service.getProject(projectId, userId));
     }
 
     @GetMapping("/projects")
-    public ResponseEntity<List<ProjectDto>> getAllJoinedProjects(HttpServletRequest request) {
-        String accessToken = extractCookieValue(request, "accessToken");
-        Long userId = jwtService.extractUserIdFromAccessToken(accessToken);
+    public ResponseEntity<List<ProjectDto>> getAllJoinedProjects(Authentication authentication) {
+        Long userId = currentUser(authentication).getId();
 
         return ResponseEntity.ok(service.getAllProjects(userId));
     }
 
     @DeleteMapping("/{projectId}/delete")
-    public ResponseEntity<Void> deleteProject(HttpServletRequest request, @PathVariable Long projectId) {
-        String accessToken = extractCookieValue(request, "accessToken");
-        Long userId = jwtService.extractUserIdFromAccessToken(accessToken);
+    public ResponseEntity<Void> deleteProject(Authentication authentication, @PathVariable Long projectId) {
+        Long userId = currentUser(authentication).getId();
 
         service.deleteProject(projectId, userId);
 
         return ResponseEntity.noContent().build();
     }
 
-    private String extractCookieValue(HttpServletRequest request, String cookieName) {
-        Cookie cookie = WebUtils.getCookie(request, cookieName);
-
-        if (cookie != null) {
-            return cookie.getValue();
-        } else {
-            log.warn("Cookie {} not found in request", cookieName);
-            return null;
-        }
+    // JwtAuthFilter and TrustedIdentityFilter both leave the verified token in the authentication details
+    private VerifiedToken currentUser(Authentication authentication) {
+        return (VerifiedToken) authentication.getDetails();
     }
 }
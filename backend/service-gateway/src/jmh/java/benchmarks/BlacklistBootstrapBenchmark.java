@@ -0,0 +1,104 @@
+package benchmarks;
+
+import com.ahicode.dtos.ProcessedBatch;
+import com.ahicode.services.BlacklistReplicaService;
+import com.ahicode.services.TokenFingerprint;
+import com.ahicode.services.impl.OffHeapFingerprintTable;
+import com.ahicode.services.impl.TokenProcessingServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// the gateway side of a startup rebuild: decoding the replayed records, skipping the expired ones and filling the
+// local replica, in polls of max-poll-records. Fetching from Kafka and the pipelined Redis writes are not included
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+public class BlacklistBootstrapBenchmark {
+
+    private static final int POLL_RECORDS = 10000;
+
+    @Param({"1000000", "5000000"})
+    private int records;
+
+    private List<List<String>> polls;
+    private TokenProcessingServiceImpl tokenProcessingService;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        SplittableRandom random = new SplittableRandom(42);
+        long now = Instant.now().getEpochSecond();
+
+        polls = new ArrayList<>();
+        for (int i = 0; i < records; i += POLL_RECORDS) {
+            List<String> poll = new ArrayList<>(POLL_RECORDS);
+
+            for (int j = i; j < Math.min(records, i + POLL_RECORDS); j++) {
+                // a fifth of the replayed revocations has already expired
+                long expiration = random.nextInt(5) == 0 ? now - random.nextInt(86400) : now + 1 + random.nextInt(604800);
+                poll.add("{\"jti\":\"" + Long.toHexString(random.nextLong()) + "\",\"exp\":" + expiration
+                        + ",\"rsn\":\"LOGOUT\",\"iss\":\"AUTH-SERVICE\"}");
+            }
+
+            polls.add(poll);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyReplica() {
+        tokenProcessingService = new TokenProcessingServiceImpl(null, new TableReplica(new OffHeapFingerprintTable(records)));
+    }
+
+    @Benchmark
+    public long rebuildReplica() {
+        long restored = 0;
+
+        for (List<String> poll : polls) {
+            ProcessedBatch batch = tokenProcessingService.restoreRevocations(poll, false);
+            restored += batch.getSaved();
+        }
+
+        return restored;
+    }
+
+    // what BlacklistReplicaServiceImpl does on revoke, without its sweeper
+    private static class TableReplica implements BlacklistReplicaService {
+
+        private final OffHeapFingerprintTable table;
+
+        private TableReplica(OffHeapFingerprintTable table) {
+            this.table = table;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public void revoke(String key, Instant expiration) {
+            ByteBuffer fingerprint = ByteBuffer.wrap(TokenFingerprint.digest(key));
+            table.put(fingerprint.getLong(0), fingerprint.getLong(8), (int) ((expiration.getEpochSecond() + 59) / 60));
+        }
+
+        @Override
+        public boolean isRevoked(String token) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package benchmarks;
+
+import com.ahicode.services.impl.OffHeapFingerprintTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// lookup latency of the local replica at full size, the footprint is printed once the table is filled
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BlacklistReplicaBenchmark {
+
+    private static final int SAMPLES = 1 << 20;
+    private static final int EXPIRATION_MINUTE = Integer.MAX_VALUE - 1;
+
+    @Param({"10000000"})
+    private int revokedTokens;
+
+    private OffHeapFingerprintTable table;
+    private long[] revoked;
+    private long[] unknown;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        long heapBefore = usedHeap();
+
+        table = new OffHeapFingerprintTable(revokedTokens);
+        revoked = new long[SAMPLES * 2];
+        unknown = new long[SAMPLES * 2];
+
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < revokedTokens; i++) {
+            long high = random.nextLong();
+            long low = random.nextLong();
+            table.put(high, low, EXPIRATION_MINUTE);
+
+            if (i < SAMPLES) {
+                revoked[i * 2] = high;
+                revoked[i * 2 + 1] = low;
+            }
+        }
+
+        for (int i = 0; i < unknown.length; i++) {
+            unknown[i] = random.nextLong();
+        }
+
+        System.out.printf("%n%d revoked tokens: %d MB off-heap (%.1f bytes per token), heap grew by %d MB%n",
+                table.size(), table.offHeapBytes() >> 20, table.offHeapBytes() / (double) table.size(),
+                (usedHeap() - heapBefore - (revoked.length + unknown.length) * 8L) >> 20);
+    }
+
+    @Benchmark
+    public boolean lookupRevoked() {
+        int sample = nextSample();
+        return table.contains(revoked[sample], revoked[sample + 1], 0);
+    }
+
+    @Benchmark
+    public boolean lookupUnknown() {
+        int sample = nextSample();
+        return table.contains(unknown[sample], unknown[sample + 1], 0);
+    }
+
+    private int nextSample() {
+        next = (next + 2) & (SAMPLES * 2 - 1);
+        return next;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import com.ahicode.dtos.ProcessedToken;
+import com.ahicode.services.impl.TokenProcessor;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+// the split and Gson parse TokenProcessor used before, against the payload scanner
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TokenProcessorBenchmark {
+
+    private String token;
+
+    @Setup
+    public void setup() {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String payload = "{\"id\":1,\"role\":\"USER\",\"sub\":\"benchmark@example.com\",\"jti\":\"AAECAwQFBgcICQoL\","
+                + "\"iat\":" + Instant.now().getEpochSecond() + ",\"exp\":" + Instant.now().plusSeconds(3600).getEpochSecond() + "}";
+
+        token = encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(new byte[32]);
+    }
+
+    @Benchmark
+    public long parseWithGson() {
+        String[] tokenParts = token.split("\\.");
+        byte[] decodedBytes = Base64.getUrlDecoder().decode(tokenParts[1]);
+        String jsonToken = new String(decodedBytes, StandardCharsets.UTF_8);
+
+        JsonObject jsonObject = JsonParser.parseString(jsonToken).getAsJsonObject();
+        long exp = jsonObject.get("exp").getAsLong();
+
+        return Duration.between(Instant.now(), Instant.ofEpochSecond(exp)).toMinutes();
+    }
+
+    @Benchmark
+    public long parseWithScanner() {
+        ProcessedToken processedToken = TokenProcessor.parse(token);
+        return processedToken.getTtl(Instant.now()).toMillis();
+    }
+
+    @Benchmark
+    public String extractTokenId() {
+        return TokenProcessor.extractTokenId(token);
+    }
+}
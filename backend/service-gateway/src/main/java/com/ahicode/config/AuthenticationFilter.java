@@ -1,71 +1,155 @@
 package com.ahicode.config;
 
+import com.ahicode.services.BlacklistReplicaService;
+import com.ahicode.services.IdentityPropagationService;
+import com.ahicode.services.TokenEpochService;
 import com.ahicode.services.TokenSetService;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
 
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class AuthenticationFilter extends AbstractGatewayFilterFactory<AuthenticationFilter.Config> {
 
-    private static final Set<String> UNSECURED_PATHS = Set.of(
-            "/api/v1/auth/login",
-            "/api/v1/auth/register",
-            "/api/v1/auth/confirmRegister",
-            "/api/v1/auth/admin/confirmRegister",
-            "/webjars",
-            "/favicon.ico",
-            "/v3/api-docs",
-            "/swagger-resources",
-            "/swagger-ui/index.css",
-            "/swagger-ui/index.html",
-            "/swagger-ui/swagger-ui.css",
-            "/v3/api-docs/swagger-config",
-            "/swagger-ui/favicon-32x32.png",
-            "/swagger-ui/swagger-ui-bundle.js",
-            "/swagger-ui/swagger-initializer.js",
-            "/swagger-ui/swagger-ui-standalone-preset.js"
-    );
+    // the browser sends the CORS preflight of the auth forms without cookies, it must not need a token
+    private static final PathPolicyMatcher UNSECURED_ROUTES = PathPolicyMatcher.builder()
+            .permit("/api/v1/auth/login", "POST", "OPTIONS")
+            .permit("/api/v1/auth/register", "POST", "OPTIONS")
+            .permit("/api/v1/auth/confirmRegister", "POST", "OPTIONS")
+            .permit("/api/v1/auth/admin/confirmRegister", "POST", "OPTIONS")
+            .permit("/favicon.ico", "GET", "HEAD")
+            .permit("/webjars/**", "GET", "HEAD")
+            .permit("/v3/api-docs/**", "GET", "HEAD")
+            .permit("/swagger-resources/**", "GET", "HEAD")
+            .permit("/swagger-ui/**", "GET", "HEAD")
+            .build();
 
     private final TokenSetService tokenSetService;
+    private final BlacklistReplicaService blacklistReplicaService;
+    private final TokenEpochService tokenEpochService;
+    private final IdentityPropagationService identityService;
 
-    public AuthenticationFilter(TokenSetService tokenSetService) {
+    public AuthenticationFilter(
+            TokenSetService tokenSetService,
+            BlacklistReplicaService blacklistReplicaService,
+            TokenEpochService tokenEpochService,
+            IdentityPropagationService identityService
+    ) {
         super(Config.class);
         this.tokenSetService = tokenSetService;
+        this.blacklistReplicaService = blacklistReplicaService;
+        this.tokenEpochService = tokenEpochService;
+        this.identityService = identityService;
     }
 
     @Override
     public GatewayFilter apply(Config config) {
         return (exchange, chain) -> {
             String path = exchange.getRequest().getURI().getPath();
+            String method = exchange.getRequest().getMethod().name();
 
-            if (UNSECURED_PATHS.contains(path)) {
-                return chain.filter(exchange);
+            if (UNSECURED_ROUTES.matches(method, path)) {
+                return chain.filter(withoutIdentityHeaders(exchange));
             }
 
-            String accessToken = exchange.getRequest().getHeaders().getFirst("Authorization");
-            String refreshToken = null;
+            HttpCookie refreshTokenCookie = exchange.getRequest().getCookies().getFirst("refreshToken");
 
-            if (accessToken == null) {
-                refreshToken = exchange.getRequest().getCookies().getFirst("refreshToken").getValue();
+            // a session revoked with all the others of its user is answered locally, without a blacklist lookup
+            if (tokenEpochService.isRevoked(extractAccessToken(exchange.getRequest()))
+                    || (refreshTokenCookie != null && tokenEpochService.isRevoked(refreshTokenCookie.getValue()))) {
+                return reject(exchange);
             }
 
-            if (accessToken != null && refreshToken != null) {
-                boolean isRefreshTokenInBlacklist = tokenSetService.isTokenInBlackList(refreshToken);
+            // nothing was checked against the blacklist, so no identity is vouched for. The services ask for the
+            // refresh token themselves
+            if (refreshTokenCookie == null) {
+                return chain.filter(withoutIdentityHeaders(exchange));
+            }
 
-                if (isRefreshTokenInBlacklist) {
-                    exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
-                    return exchange.getResponse().setComplete();
-                }
+            if (blacklistReplicaService.isEnabled()) {
+                return blacklistReplicaService.isRevoked(refreshTokenCookie.getValue())
+                        ? reject(exchange)
+                        : forward(exchange, chain);
             }
 
-            return chain.filter(exchange);
+            return tokenSetService.isTokenInBlackList(refreshTokenCookie.getValue())
+                    .flatMap(isRefreshTokenInBlacklist -> {
+                        if (isRefreshTokenInBlacklist) {
+                            return reject(exchange);
+                        }
+
+                        return forward(exchange, chain);
+                    });
         };
     }
 
+    private Mono<Void> reject(ServerWebExchange exchange) {
+        exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+        return exchange.getResponse().setComplete();
+    }
+
+    private Mono<Void> forward(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (identityService.isEnabled()) {
+            ServerHttpRequest request = exchange.getRequest().mutate()
+                    .headers(headers -> {
+                        removeIdentityHeaders(headers);
+                        identityService.propagate(headers, extractAccessToken(exchange.getRequest()));
+                    })
+                    .build();
+
+            return chain.filter(exchange.mutate().request(request).build());
+        }
+
+        return chain.filter(withoutIdentityHeaders(exchange));
+    }
+
+    // nothing the client sends under the reserved names reaches the services, on public routes neither. Requests
+    // rarely carry any, so the exchange is only copied when there is something to remove
+    private ServerWebExchange withoutIdentityHeaders(ServerWebExchange exchange) {
+        if (exchange.getRequest().getHeaders().keySet().stream().noneMatch(TrustedIdentityHeaders::isReserved)) {
+            return exchange;
+        }
+
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(AuthenticationFilter::removeIdentityHeaders)
+                .build();
+
+        return exchange.mutate().request(request).build();
+    }
+
+    private static void removeIdentityHeaders(HttpHeaders headers) {
+        List<String> reserved = new ArrayList<>();
+
+        for (String name : headers.keySet()) {
+            if (TrustedIdentityHeaders.isReserved(name)) {
+                reserved.add(name);
+            }
+        }
+
+        reserved.forEach(headers::remove);
+    }
+
+    private String extractAccessToken(ServerHttpRequest request) {
+        String authHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return authHeader.substring(7);
+        }
+
+        HttpCookie cookie = request.getCookies().getFirst("accessToken");
+        return (cookie != null) ? cookie.getValue() : null;
+    }
+
     public static class Config {
 
     }
@@ -1,14 +1,25 @@
 package com.ahicode.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.TopicConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -16,21 +27,80 @@ import java.util.Map;
 @Configuration
 public class KafkaConsumerConfig {
 
+    public static final String BLACKLIST_TOPIC = "blacklist_tokens_topic";
+    // entry of the retry topology, its backoff topics and the dead letter topic are derived from this name
+    public static final String BLACKLIST_RETRY_TOPIC = "blacklist_tokens_retry";
+    public static final String BLACKLIST_DEAD_LETTER_TOPIC = BLACKLIST_RETRY_TOPIC + "-dlt";
+    // compacted by the authentication service, one record per user with the user's minimum token epoch
+    public static final String TOKEN_EPOCH_TOPIC = "token_epochs_topic";
+
+    @Value("${spring.kafka.bootstrap-servers:localhost:29092}")
+    private String bootstrapServers;
+    @Value("${gateway.kafka.blacklist.partitions:6}")
+    private int blacklistPartitions;
+    @Value("${gateway.kafka.blacklist.concurrency:6}")
+    private int blacklistConcurrency;
+    @Value("${gateway.kafka.blacklist.max-poll-records:1000}")
+    private int blacklistMaxPollRecords;
+    @Value("${gateway.kafka.blacklist.retention:8d}")
+    private Duration blacklistRetention;
+
+    // no default group, every listener names its own and the table readers assign their partitions without one
     @Bean
-    public ConsumerFactory<String, String> consumerFactory() {
+    public ConsumerFactory<String, String> consumerFactory(MeterRegistry meterRegistry) {
         Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:29092");
-        configProps.put(ConsumerConfig.GROUP_ID_CONFIG, "consumer_group");
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
 
-        return new DefaultKafkaConsumerFactory<>(configProps);
+        DefaultKafkaConsumerFactory<String, String> factory = new DefaultKafkaConsumerFactory<>(configProps);
+        // binds the client metrics of every consumer, records-lag-max per partition among them
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
+    }
+
+    // revocations are keyed by jti or fingerprint, so the partitions spread the load evenly over the listener threads.
+    // Compaction keeps one record per key and the retention, longer than a refresh token lives, drops the ones that
+    // can only hold expired tokens, so a replay from the beginning reads little more than the live revocations
+    @Bean
+    public NewTopic blacklistTokensTopic() {
+        return TopicBuilder.name(BLACKLIST_TOPIC)
+                .partitions(blacklistPartitions)
+                .config(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_COMPACT + "," + TopicConfig.CLEANUP_POLICY_DELETE)
+                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(blacklistRetention.toMillis()))
+                .config(TopicConfig.SEGMENT_MS_CONFIG, String.valueOf(Duration.ofDays(1).toMillis()))
+                .build();
+    }
+
+    // unparsable tokens skip the retries, the recoverer adds the original topic, offset and exception as headers
+    @Bean
+    public DeadLetterPublishingRecoverer blacklistDeadLetterRecoverer(KafkaTemplate<String, String> kafkaTemplate) {
+        return new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, exception) -> new TopicPartition(BLACKLIST_DEAD_LETTER_TOPIC, -1));
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory
+    ) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        return factory;
     }
 
+    // hands the listener a whole poll at once, one thread per partition at most since extra consumers would sit idle.
+    // The listener acknowledges a poll only after its tokens are in Redis
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, String> batchKafkaListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory
+    ) {
         ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(consumerFactory());
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(Math.min(blacklistConcurrency, blacklistPartitions));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.getContainerProperties().getKafkaConsumerProperties()
+                .setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(blacklistMaxPollRecords));
         return factory;
     }
 }
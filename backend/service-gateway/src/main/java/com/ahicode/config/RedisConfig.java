@@ -1,15 +1,12 @@
 package com.ahicode.config;
 
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
-import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 
 @Configuration
 public class RedisConfig {
@@ -20,16 +17,12 @@ public class RedisConfig {
     private int redisPort;
 
     @Bean
-    public RedisConnectionFactory tokenRedisConnectionFactory() {
+    public LettuceConnectionFactory tokenRedisConnectionFactory() {
         return new LettuceConnectionFactory(redisHost, redisPort);
     }
 
     @Bean
-    public RedisTemplate<String, Object> tokenRedisTemplate(RedisConnectionFactory factory) {
-        RedisTemplate<String, Object> tokenRedisTemplate = new RedisTemplate<>();
-        tokenRedisTemplate.setConnectionFactory(factory);
-        tokenRedisTemplate.setKeySerializer(new StringRedisSerializer());
-        tokenRedisTemplate.setValueSerializer(new GenericJackson2JsonRedisSerializer());
-        return tokenRedisTemplate;
+    public ReactiveRedisTemplate<String, String> tokenRedisTemplate(ReactiveRedisConnectionFactory factory) {
+        return new ReactiveRedisTemplate<>(factory, RedisSerializationContext.string());
     }
 }
@@ -0,0 +1,53 @@
+package com.ahicode.config;
+
+import com.ahicode.services.TokenEpochTable;
+import com.ahicode.services.TokenEpochTableReader;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+@Configuration
+public class TokenEpochConfig {
+
+    // the same early phase as the blacklist bootstrap: Eureka registers in phase 0, the web server much later
+    private static final int READER_PHASE = -1000;
+
+    @Value("${gateway.token-epochs.enabled:true}")
+    private boolean enabled;
+    @Value("${gateway.token-epochs.required:true}")
+    private boolean required;
+    @Value("${gateway.token-epochs.timeout:1m}")
+    private Duration timeout;
+
+    @Bean
+    public TokenEpochTable tokenEpochTable() {
+        return new TokenEpochTable();
+    }
+
+    @Bean
+    public SmartLifecycle tokenEpochReader(ConsumerFactory<String, String> consumerFactory, TokenEpochTable tokenEpochTable) {
+        return new Reader(
+                () -> consumerFactory.createConsumer(null, null, "-token-epochs", TokenEpochTableReader.consumerProperties()),
+                tokenEpochTable, enabled, required, timeout
+        );
+    }
+
+    // the start, stop and isRunning of the shared reader are the lifecycle methods
+    private static final class Reader extends TokenEpochTableReader implements SmartLifecycle {
+
+        private Reader(Supplier<Consumer<String, String>> consumers, TokenEpochTable table, boolean enabled, boolean required, Duration timeout) {
+            super(KafkaConsumerConfig.TOKEN_EPOCH_TOPIC, consumers, table, enabled, required, timeout);
+        }
+
+        @Override
+        public int getPhase() {
+            return READER_PHASE;
+        }
+    }
+}
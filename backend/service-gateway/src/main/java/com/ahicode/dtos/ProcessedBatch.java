@@ -0,0 +1,28 @@
+package com.ahicode.dtos;
+
+import java.util.List;
+
+public class ProcessedBatch {
+    private final int saved;
+    private final int expired;
+    private final List<Integer> unparsable;
+
+    public ProcessedBatch(int saved, int expired, List<Integer> unparsable) {
+        this.saved = saved;
+        this.expired = expired;
+        this.unparsable = unparsable;
+    }
+
+    public int getSaved() {
+        return saved;
+    }
+
+    public int getExpired() {
+        return expired;
+    }
+
+    // positions in the batch of the records that couldn't be decoded
+    public List<Integer> getUnparsable() {
+        return unparsable;
+    }
+}
@@ -1,19 +1,32 @@
 package com.ahicode.dtos;
 
+import java.time.Duration;
+import java.time.Instant;
+
 public class ProcessedToken {
     private final String token;
-    private final long ttl;
+    private final String tokenId;
+    private final Instant expiration;
 
-    public ProcessedToken(String token, long ttl) {
+    public ProcessedToken(String token, String tokenId, Instant expiration) {
         this.token = token;
-        this.ttl = ttl;
+        this.tokenId = tokenId;
+        this.expiration = expiration;
     }
 
     public String getToken() {
         return token;
     }
 
-    public long getTtl() {
-        return ttl;
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public Instant getExpiration() {
+        return expiration;
+    }
+
+    public Duration getTtl(Instant now) {
+        return Duration.between(now, expiration);
     }
 }
@@ -0,0 +1,43 @@
+package com.ahicode.dtos;
+
+public class TokenIdentity {
+    private final Long userId;
+    private final String role;
+    private final String subject;
+    private final String tokenId;
+    private final int tokenEpoch;
+    private final long expiration;
+
+    public TokenIdentity(Long userId, String role, String subject, String tokenId, int tokenEpoch, long expiration) {
+        this.userId = userId;
+        this.role = role;
+        this.subject = subject;
+        this.tokenId = tokenId;
+        this.tokenEpoch = tokenEpoch;
+        this.expiration = expiration;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public int getTokenEpoch() {
+        return tokenEpoch;
+    }
+
+    public long getExpiration() {
+        return expiration;
+    }
+}
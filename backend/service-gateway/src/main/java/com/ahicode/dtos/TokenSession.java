@@ -0,0 +1,19 @@
+package com.ahicode.dtos;
+
+public class TokenSession {
+    private final long userId;
+    private final int tokenEpoch;
+
+    public TokenSession(long userId, int tokenEpoch) {
+        this.userId = userId;
+        this.tokenEpoch = tokenEpoch;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public int getTokenEpoch() {
+        return tokenEpoch;
+    }
+}
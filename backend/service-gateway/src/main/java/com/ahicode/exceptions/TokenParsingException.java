@@ -0,0 +1,8 @@
+package com.ahicode.exceptions;
+
+public class TokenParsingException extends RuntimeException {
+
+    public TokenParsingException(String message) {
+        super(message);
+    }
+}
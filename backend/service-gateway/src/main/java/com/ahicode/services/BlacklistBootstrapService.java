@@ -0,0 +1,5 @@
+package com.ahicode.services;
+
+public interface BlacklistBootstrapService {
+    void rebuild();
+}
@@ -0,0 +1,9 @@
+package com.ahicode.services;
+
+import java.time.Instant;
+
+public interface BlacklistReplicaService {
+    boolean isEnabled();
+    void revoke(String key, Instant expiration);
+    boolean isRevoked(String token);
+}
@@ -0,0 +1,8 @@
+package com.ahicode.services;
+
+import org.springframework.http.HttpHeaders;
+
+public interface IdentityPropagationService {
+    boolean isEnabled();
+    void propagate(HttpHeaders headers, String accessToken);
+}
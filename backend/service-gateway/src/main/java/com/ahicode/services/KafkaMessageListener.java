@@ -1,5 +1,12 @@
 package com.ahicode.services;
 
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.List;
+
 public interface KafkaMessageListener {
-    void listen(String message);
+    void listen(List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment);
+    void retry(ConsumerRecord<String, String> record);
+    void deadLetter(ConsumerRecord<String, String> record);
 }
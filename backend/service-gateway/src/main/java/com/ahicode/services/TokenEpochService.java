@@ -0,0 +1,6 @@
+package com.ahicode.services;
+
+public interface TokenEpochService {
+    boolean isRevoked(String token);
+    void update(Long userId, int minimumEpoch);
+}
@@ -1,5 +1,12 @@
 package com.ahicode.services;
 
+import com.ahicode.dtos.ProcessedBatch;
+
+import java.util.List;
+
 public interface TokenProcessingService {
-    void processToken(String token);
+    ProcessedBatch processRevocations(List<String> records);
+    void processRevocation(String record);
+    void replicateRevocation(String record);
+    ProcessedBatch restoreRevocations(List<String> records, boolean redis);
 }
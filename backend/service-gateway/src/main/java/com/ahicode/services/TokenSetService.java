@@ -1,8 +1,13 @@
 package com.ahicode.services;
 
-import java.util.concurrent.TimeUnit;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
 
 public interface TokenSetService {
-    void saveToken(String token, long ttlInUnits, TimeUnit unit);
-    boolean isTokenInBlackList(String token);
+    Mono<Boolean> saveTokens(Map<String, Duration> ttlByKey);
+    Mono<Boolean> isTokenInBlackList(String token);
+    Mono<Boolean> isPopulated();
+    Mono<Boolean> markPopulated();
 }
@@ -0,0 +1,315 @@
+package com.ahicode.services.impl;
+
+import com.ahicode.config.KafkaConsumerConfig;
+import com.ahicode.dtos.ProcessedBatch;
+import com.ahicode.exceptions.TokenParsingException;
+import com.ahicode.services.BlacklistBootstrapService;
+import com.ahicode.services.BlacklistReplicaService;
+import com.ahicode.services.CompactedTopicReader;
+import com.ahicode.services.TokenProcessingService;
+import com.ahicode.services.TokenSetService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// replays the blacklist topic from the beginning when the gateway starts, into the local replica and, if Redis lost
+// its data, into Redis. It runs in an early lifecycle phase, before the Eureka registration, the web server and the
+// Kafka listeners, so the gateway neither takes traffic nor reports ready until the blacklist is complete. The replica
+// then keeps reading the topic where the replay ended, on every instance and without a consumer group
+@Service
+public class BlacklistBootstrapServiceImpl implements BlacklistBootstrapService, SmartLifecycle {
+
+    private static final Logger logger = Logger.getLogger(BlacklistBootstrapServiceImpl.class.getName());
+
+    // Eureka registers in phase 0, the web server and the listener containers start much later
+    private static final int PHASE = -1000;
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final Duration REDIS_TIMEOUT = Duration.ofSeconds(5);
+    private static final int MAX_PARTITION_FETCH_BYTES = 8 * 1024 * 1024;
+
+    private final ConsumerFactory<String, String> consumerFactory;
+    private final TokenProcessingService tokenProcessingService;
+    private final TokenSetService tokenSetService;
+    private final BlacklistReplicaService blacklistReplicaService;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final boolean required;
+    private final Duration timeout;
+    private final int maxPollRecords;
+
+    private volatile boolean running;
+    // where the last replay ended, the replica continues from there
+    private volatile Map<TopicPartition, Long> replayed = Map.of();
+    private CompactedTopicReader replicaReader;
+
+    @Autowired
+    public BlacklistBootstrapServiceImpl(
+            ConsumerFactory<String, String> consumerFactory,
+            TokenProcessingService tokenProcessingService,
+            TokenSetService tokenSetService,
+            BlacklistReplicaService blacklistReplicaService,
+            MeterRegistry meterRegistry,
+            @Value("${gateway.blacklist.bootstrap.enabled:true}") boolean enabled,
+            @Value("${gateway.blacklist.bootstrap.required:true}") boolean required,
+            @Value("${gateway.blacklist.bootstrap.timeout:5m}") Duration timeout,
+            @Value("${gateway.blacklist.bootstrap.max-poll-records:10000}") int maxPollRecords
+    ) {
+        this.consumerFactory = consumerFactory;
+        this.tokenProcessingService = tokenProcessingService;
+        this.tokenSetService = tokenSetService;
+        this.blacklistReplicaService = blacklistReplicaService;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.required = required;
+        this.timeout = timeout;
+        this.maxPollRecords = maxPollRecords;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+
+        if (enabled) {
+            rebuild();
+        }
+
+        if (blacklistReplicaService.isEnabled()) {
+            startReplica();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+
+        if (replicaReader != null) {
+            replicaReader.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    @Override
+    public void rebuild() {
+        boolean rebuildRedis = isRedisRebuildNeeded();
+
+        if (!rebuildRedis && !blacklistReplicaService.isEnabled()) {
+            logger.log(Level.INFO, "Redis blacklist is populated and the replica is disabled, nothing to rebuild");
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+
+        Replay replay;
+
+        try (Consumer<String, String> consumer = consumerFactory.createConsumer(null, null, "-bootstrap", overrides())) {
+            List<TopicPartition> partitions = partitionsOf(consumer);
+
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+
+            replay = replay(consumer, endOffsets, rebuildRedis, startedAt + timeout.toNanos());
+
+            if (replay != null) {
+                replayed = positionsOf(consumer, partitions);
+
+                if (rebuildRedis) {
+                    tokenSetService.markPopulated().block(REDIS_TIMEOUT);
+                }
+            }
+        } catch (RuntimeException exception) {
+            fail("Blacklist bootstrap failed: " + exception, startedAt, "failed");
+            return;
+        }
+
+        // outside the try, the exception of a required bootstrap must not be reported a second time as a failure
+        if (replay == null) {
+            fail("Blacklist bootstrap timed out after " + timeout, startedAt, "timed-out");
+            return;
+        }
+
+        Duration elapsed = record(startedAt, "completed");
+        logger.log(Level.INFO, "Rebuilt the blacklist from " + replay.records + " records in " + elapsed.toMillis()
+                + " ms: " + replay.restored + " restored, " + replay.expired + " expired, " + replay.unparsable
+                + " unparsable" + (rebuildRedis ? ", Redis included" : ", replica only"));
+    }
+
+    // without a replay, or after a failed one, the replica reads the topic from the beginning
+    private void startReplica() {
+        replicaReader = new CompactedTopicReader(
+                KafkaConsumerConfig.BLACKLIST_TOPIC,
+                () -> consumerFactory.createConsumer(null, null, "-blacklist-replica", replicaOverrides()),
+                record -> replicate(record.value())
+        );
+
+        boolean caughtUp;
+        try {
+            caughtUp = replicaReader.start(replayed, timeout);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            caughtUp = false;
+        }
+
+        if (caughtUp) {
+            return;
+        }
+
+        if (required) {
+            replicaReader.close();
+            throw new IllegalStateException("Blacklist replica did not catch up within " + timeout);
+        }
+
+        logger.log(Level.WARNING, "Blacklist replica did not catch up within " + timeout + ", it keeps reading while serving");
+    }
+
+    private void replicate(String record) {
+        try {
+            tokenProcessingService.replicateRevocation(record);
+        } catch (TokenParsingException exception) {
+            // the shared group parks it in the dead letter topic, the replica has nothing to add
+        }
+    }
+
+    private Replay replay(Consumer<String, String> consumer, Map<TopicPartition, Long> endOffsets, boolean redis, long deadline) {
+        Replay replay = new Replay();
+        List<String> values = new ArrayList<>(maxPollRecords);
+
+        while (!isCaughtUp(consumer, endOffsets)) {
+            if (System.nanoTime() > deadline) {
+                return null;
+            }
+
+            ConsumerRecords<String, String> records = consumer.poll(POLL_TIMEOUT);
+
+            if (records.isEmpty()) {
+                continue;
+            }
+
+            values.clear();
+            for (ConsumerRecord<String, String> record : records) {
+                values.add(record.value());
+            }
+
+            ProcessedBatch batch = tokenProcessingService.restoreRevocations(values, redis);
+            replay.records += values.size();
+            replay.restored += batch.getSaved();
+            replay.expired += batch.getExpired();
+            replay.unparsable += batch.getUnparsable().size();
+        }
+
+        return replay;
+    }
+
+    // a Redis that can't be reached is left to the lookup failure policy, the replica is still rebuilt
+    private boolean isRedisRebuildNeeded() {
+        try {
+            return !Boolean.TRUE.equals(tokenSetService.isPopulated().block(REDIS_TIMEOUT));
+        } catch (RuntimeException exception) {
+            logger.log(Level.WARNING, "Redis is unavailable, the blacklist bootstrap skips it: " + exception);
+            return false;
+        }
+    }
+
+    private void fail(String message, long startedAt, String result) {
+        record(startedAt, result);
+
+        if (required) {
+            throw new IllegalStateException(message);
+        }
+
+        logger.log(Level.WARNING, message + ", the gateway starts with what has been restored");
+    }
+
+    private Duration record(long startedAt, String result) {
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+        Timer.builder("gateway.blacklist.bootstrap.duration")
+                .description("Time to replay the blacklist topic on startup")
+                .tag("result", result)
+                .register(meterRegistry)
+                .record(elapsed);
+        return elapsed;
+    }
+
+    // fetches as much as a poll can hold, nothing is committed, there is no group to commit to
+    private Properties overrides() {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(maxPollRecords));
+        properties.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, String.valueOf(MAX_PARTITION_FETCH_BYTES));
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        return properties;
+    }
+
+    private static Properties replicaOverrides() {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        return properties;
+    }
+
+    private static List<TopicPartition> partitionsOf(Consumer<String, String> consumer) {
+        List<PartitionInfo> infos = consumer.partitionsFor(KafkaConsumerConfig.BLACKLIST_TOPIC);
+        List<TopicPartition> partitions = new ArrayList<>();
+
+        if (infos != null) {
+            for (PartitionInfo info : infos) {
+                partitions.add(new TopicPartition(info.topic(), info.partition()));
+            }
+        }
+
+        return partitions;
+    }
+
+    private static boolean isCaughtUp(Consumer<String, String> consumer, Map<TopicPartition, Long> endOffsets) {
+        for (Map.Entry<TopicPartition, Long> end : endOffsets.entrySet()) {
+            if (consumer.position(end.getKey()) < end.getValue()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static Map<TopicPartition, Long> positionsOf(Consumer<String, String> consumer, List<TopicPartition> partitions) {
+        Map<TopicPartition, Long> positions = new HashMap<>();
+
+        for (TopicPartition partition : partitions) {
+            positions.put(partition, consumer.position(partition));
+        }
+
+        return positions;
+    }
+
+    private static final class Replay {
+        private long records;
+        private long restored;
+        private long expired;
+        private long unparsable;
+    }
+}
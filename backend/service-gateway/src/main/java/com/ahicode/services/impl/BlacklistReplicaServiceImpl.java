@@ -0,0 +1,100 @@
+package com.ahicode.services.impl;
+
+import com.ahicode.services.BlacklistReplicaService;
+import com.ahicode.services.TokenFingerprint;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Service
+public class BlacklistReplicaServiceImpl implements BlacklistReplicaService, DisposableBean {
+
+    private static final Logger logger = Logger.getLogger(BlacklistReplicaServiceImpl.class.getName());
+
+    @Value("${gateway.blacklist.replica.enabled:false}")
+    private boolean enabled;
+    @Value("${gateway.blacklist.replica.expected-entries:1000000}")
+    private int expectedEntries;
+    @Value("${gateway.blacklist.replica.sweep-interval:1m}")
+    private Duration sweepInterval;
+
+    private OffHeapFingerprintTable table;
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    private void init() {
+        if (!enabled) {
+            return;
+        }
+
+        table = new OffHeapFingerprintTable(expectedEntries);
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "blacklist-replica-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::removeExpired, sweepInterval.toMillis(), sweepInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void revoke(String key, Instant expiration) {
+        if (!expiration.isAfter(Instant.now())) {
+            return;
+        }
+
+        // rounded up, so an entry never leaves the replica before its token expires
+        int expirationMinute = (int) ((expiration.getEpochSecond() + 59) / 60);
+        ByteBuffer fingerprint = fingerprint(key);
+
+        table.put(fingerprint.getLong(0), fingerprint.getLong(8), expirationMinute);
+    }
+
+    @Override
+    public boolean isRevoked(String token) {
+        ByteBuffer fingerprint = fingerprint(TokenProcessor.blacklistKey(token));
+        return table.contains(fingerprint.getLong(0), fingerprint.getLong(8), currentMinute());
+    }
+
+    @Override
+    public void destroy() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    private void removeExpired() {
+        try {
+            int removed = table.removeExpired(currentMinute());
+
+            if (removed > 0) {
+                logger.log(Level.INFO, "Removed " + removed + " expired tokens from the blacklist replica, " + table.size() + " left");
+            }
+        } catch (RuntimeException exception) {
+            logger.log(Level.WARNING, "Blacklist replica sweep failed", exception);
+        }
+    }
+
+    // the table holds the first 128 bits of the SHA-256 of the blacklist key, as two longs
+    private static ByteBuffer fingerprint(String key) {
+        return ByteBuffer.wrap(TokenFingerprint.digest(key));
+    }
+
+    private static int currentMinute() {
+        return (int) (Instant.now().getEpochSecond() / 60);
+    }
+}
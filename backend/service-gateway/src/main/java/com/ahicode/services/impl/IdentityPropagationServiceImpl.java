@@ -0,0 +1,129 @@
+package com.ahicode.services.impl;
+
+import com.ahicode.config.TrustedIdentityHeaders;
+import com.ahicode.dtos.TokenIdentity;
+import com.ahicode.services.IdentityPropagationService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+@Service
+public class IdentityPropagationServiceImpl implements IdentityPropagationService {
+
+    private static final Logger logger = Logger.getLogger(IdentityPropagationServiceImpl.class.getName());
+    private static final String ALGORITHM = "HmacSHA256";
+
+    @Value("${gateway.security.identity-propagation.enabled:false}")
+    private boolean enabled;
+    @Value("${application.security.jwt.access-token.secret-key:}")
+    private String accessTokenSecretKey;
+    @Value("${application.security.trusted-identity.secret-key:}")
+    private String identitySecretKey;
+
+    private JwtParser accessTokenParser;
+    private ThreadLocal<Mac> mac;
+
+    @PostConstruct
+    private void init() {
+        if (!enabled) {
+            return;
+        }
+
+        if (accessTokenSecretKey.isBlank() || identitySecretKey.isBlank()) {
+            throw new IllegalStateException("Identity propagation is enabled without the access token or identity secret key");
+        }
+
+        accessTokenParser = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(accessTokenSecretKey)))
+                .build();
+
+        SecretKeySpec key = new SecretKeySpec(Base64.getDecoder().decode(identitySecretKey), ALGORITHM);
+        mac = ThreadLocal.withInitial(() -> createMac(key));
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void propagate(HttpHeaders headers, String accessToken) {
+        // the authentication filter has already removed whatever the client sent under the reserved names
+        if (accessToken == null) {
+            return;
+        }
+
+        // missing, expired or invalid tokens go downstream without identity, JwtAuthFilter handles them as before
+        verify(accessToken).ifPresent(identity -> {
+            String userId = String.valueOf(identity.getUserId());
+            String subject = URLEncoder.encode(identity.getSubject(), StandardCharsets.UTF_8);
+            String tokenEpoch = String.valueOf(identity.getTokenEpoch());
+            String expiration = String.valueOf(identity.getExpiration());
+            String canonical = TrustedIdentityHeaders.canonical(
+                    userId, identity.getRole(), subject, identity.getTokenId(), tokenEpoch, expiration
+            );
+
+            headers.set(TrustedIdentityHeaders.USER_ID, userId);
+            headers.set(TrustedIdentityHeaders.USER_ROLE, identity.getRole());
+            headers.set(TrustedIdentityHeaders.USER_SUBJECT, subject);
+            if (identity.getTokenId() != null) {
+                headers.set(TrustedIdentityHeaders.TOKEN_ID, identity.getTokenId());
+            }
+            headers.set(TrustedIdentityHeaders.TOKEN_EPOCH, tokenEpoch);
+            headers.set(TrustedIdentityHeaders.EXPIRATION, expiration);
+            headers.set(TrustedIdentityHeaders.SIGNATURE, Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    mac.get().doFinal(canonical.getBytes(StandardCharsets.UTF_8))
+            ));
+        });
+    }
+
+    private Optional<TokenIdentity> verify(String accessToken) {
+        try {
+            Claims claims = accessTokenParser.parseClaimsJws(accessToken).getBody();
+            Number userId = claims.get("id", Number.class);
+            String role = claims.get("role", String.class);
+            Integer tokenEpoch = claims.get("tep", Integer.class);
+
+            if (userId == null || role == null || claims.getSubject() == null || claims.getExpiration() == null) {
+                return Optional.empty();
+            }
+
+            return Optional.of(new TokenIdentity(
+                    userId.longValue(),
+                    role,
+                    claims.getSubject(),
+                    claims.getId(),
+                    tokenEpoch != null ? tokenEpoch : 0,
+                    claims.getExpiration().getTime() / 1000
+            ));
+        } catch (RuntimeException exception) {
+            logger.fine("The access token was not verified on the gateway: " + exception.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static Mac createMac(SecretKeySpec key) {
+        try {
+            Mac instance = Mac.getInstance(ALGORITHM);
+            instance.init(key);
+            return instance;
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException("Unable to initialize " + ALGORITHM, exception);
+        }
+    }
+}
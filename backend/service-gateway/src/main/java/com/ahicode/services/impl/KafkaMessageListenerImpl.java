@@ -1,24 +1,166 @@
 package com.ahicode.services.impl;
 
+import com.ahicode.config.KafkaConsumerConfig;
+import com.ahicode.dtos.ProcessedBatch;
+import com.ahicode.exceptions.TokenParsingException;
 import com.ahicode.services.KafkaMessageListener;
 import com.ahicode.services.TokenProcessingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 @Service
 public class KafkaMessageListenerImpl implements KafkaMessageListener {
 
+    private static final Logger logger = Logger.getLogger(KafkaMessageListenerImpl.class.getName());
+
     private final TokenProcessingService tokenProcessingService;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final DeadLetterPublishingRecoverer deadLetterRecoverer;
+    private final MeterRegistry meterRegistry;
+    private final Counter savedTokens;
+    private final Counter skippedTokens;
+    private final Counter retriedTokens;
+    private final Timer revocationDelay;
 
     @Autowired
-    public KafkaMessageListenerImpl(TokenProcessingService tokenProcessingService) {
+    public KafkaMessageListenerImpl(
+            TokenProcessingService tokenProcessingService,
+            KafkaTemplate<String, String> kafkaTemplate,
+            DeadLetterPublishingRecoverer deadLetterRecoverer,
+            MeterRegistry meterRegistry
+    ) {
         this.tokenProcessingService = tokenProcessingService;
+        this.kafkaTemplate = kafkaTemplate;
+        this.deadLetterRecoverer = deadLetterRecoverer;
+        this.meterRegistry = meterRegistry;
+        this.savedTokens = ingestedTokens(meterRegistry, "saved");
+        this.skippedTokens = ingestedTokens(meterRegistry, "skipped");
+        this.retriedTokens = ingestedTokens(meterRegistry, "retried");
+        this.revocationDelay = Timer.builder("gateway.blacklist.revocation.delay")
+                .description("Time from publishing a token to the blacklist until it is stored in Redis")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Override
+    @KafkaListener(
+            topics = KafkaConsumerConfig.BLACKLIST_TOPIC,
+            groupId = "consumer_group",
+            containerFactory = "batchKafkaListenerContainerFactory"
+    )
+    public void listen(List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment) {
+        List<String> values = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            values.add(record.value());
+        }
+
+        ProcessedBatch batch;
+        try {
+            batch = tokenProcessingService.processRevocations(values);
+        } catch (RuntimeException exception) {
+            // Redis rejected the batch, its records wait on the retry topics so the partition keeps moving
+            logger.log(Level.WARNING, "Moving " + records.size() + " blacklist tokens to the retry topic: " + exception);
+            forwardToRetry(records);
+            acknowledgment.acknowledge();
+            retriedTokens.increment(records.size());
+            return;
+        }
+
+        // retrying can't fix a malformed record, it is parked right away
+        for (int index : batch.getUnparsable()) {
+            deadLetterRecoverer.accept(records.get(index), new TokenParsingException("Blacklist record parsing failed"));
+        }
+
+        acknowledgment.acknowledge();
+
+        savedTokens.increment(batch.getSaved());
+        skippedTokens.increment(records.size() - batch.getSaved());
+        recordDelay(records);
+    }
+
+    @Override
+    @RetryableTopic(
+            attempts = "${gateway.kafka.blacklist.retry.attempts:4}",
+            backoff = @Backoff(
+                    delayExpression = "${gateway.kafka.blacklist.retry.delay-ms:2000}",
+                    multiplierExpression = "${gateway.kafka.blacklist.retry.multiplier:5}"
+            ),
+            retryTopicSuffix = "-backoff",
+            dltTopicSuffix = "-dlt",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_DELAY_VALUE,
+            numPartitions = "${gateway.kafka.blacklist.partitions:6}",
+            exclude = TokenParsingException.class,
+            kafkaTemplate = "kafkaTemplate"
+    )
+    @KafkaListener(topics = KafkaConsumerConfig.BLACKLIST_RETRY_TOPIC, groupId = "consumer_group")
+    public void retry(ConsumerRecord<String, String> record) {
+        tokenProcessingService.processRevocation(record.value());
+
+        savedTokens.increment();
+        recordDelay(List.of(record));
     }
 
+    // the dead letter topic keeps the records for inspection or replay, this only counts and reports them
     @Override
-    @KafkaListener(topics = "blacklist_tokens_topic", groupId = "consumer_group")
-    public void listen(String token) {
-        tokenProcessingService.processToken(token);
+    @DltHandler
+    public void deadLetter(ConsumerRecord<String, String> record) {
+        Header causeHeader = record.headers().lastHeader(KafkaHeaders.DLT_EXCEPTION_FQCN);
+        String cause = causeHeader != null ? new String(causeHeader.value(), StandardCharsets.UTF_8) : "unknown";
+
+        meterRegistry.counter("gateway.blacklist.dead.letters", "cause", cause.substring(cause.lastIndexOf('.') + 1))
+                .increment();
+        logger.log(Level.WARNING, "Blacklist token parked in " + record.topic() + ", cause " + cause);
+    }
+
+    private void forwardToRetry(List<ConsumerRecord<String, String>> records) {
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[records.size()];
+
+        // the original timestamp is kept so the revocation delay still measures from the first publish
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, String> record = records.get(i);
+            sends[i] = kafkaTemplate.send(new ProducerRecord<>(
+                    KafkaConsumerConfig.BLACKLIST_RETRY_TOPIC, null, record.timestamp(), record.key(), record.value()
+            ));
+        }
+
+        CompletableFuture.allOf(sends).join();
+    }
+
+    private void recordDelay(List<ConsumerRecord<String, String>> records) {
+        // record timestamps are the producer's send time
+        long now = System.currentTimeMillis();
+        for (ConsumerRecord<String, String> record : records) {
+            revocationDelay.record(Duration.ofMillis(Math.max(0, now - record.timestamp())));
+        }
+    }
+
+    private static Counter ingestedTokens(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("gateway.blacklist.tokens.ingested")
+                .description("Blacklist tokens consumed from Kafka")
+                .tag("result", result)
+                .register(meterRegistry);
     }
-}
\ No newline at end of file
+}
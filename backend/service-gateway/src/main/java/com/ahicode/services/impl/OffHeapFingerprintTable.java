@@ -0,0 +1,252 @@
+package com.ahicode.services.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.locks.StampedLock;
+
+// open addressing table of 128-bit fingerprints with an expiration minute, kept in direct memory so that millions
+// of revoked tokens cost neither heap nor GC time. Lookups are lock-free unless they race with a write, writers are
+// serialized, and growing or compacting the table builds a new buffer before swapping it in
+public class OffHeapFingerprintTable {
+
+    private static final int SLOT_BYTES = 20;
+    private static final int HIGH_OFFSET = 0;
+    private static final int LOW_OFFSET = 8;
+    private static final int EXPIRATION_OFFSET = 16;
+
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+
+    private static final double MAX_LOAD = 0.75;
+    private static final int MIN_CAPACITY = 1 << 4;
+    // 64M slots of 20 bytes stay under the 2GB limit of a single ByteBuffer
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final int MAX_ENTRIES = (int) (MAX_CAPACITY * MAX_LOAD);
+    private static final int SWEEP_CHUNK = 4096;
+
+    private final Object writeMonitor = new Object();
+    private final int minCapacity;
+    private volatile Slots slots;
+    private int earliestExpiration = Integer.MAX_VALUE;
+
+    public OffHeapFingerprintTable(int expectedEntries) {
+        this.minCapacity = capacityFor(expectedEntries);
+        this.slots = new Slots(minCapacity);
+    }
+
+    public boolean contains(long high, long low, int currentMinute) {
+        Slots current = slots;
+        long stamp = current.lock.tryOptimisticRead();
+        int expiration = current.find(high, low);
+
+        if (!current.lock.validate(stamp)) {
+            stamp = current.lock.readLock();
+            try {
+                expiration = current.find(high, low);
+            } finally {
+                current.lock.unlockRead(stamp);
+            }
+        }
+
+        return expiration > currentMinute;
+    }
+
+    public void put(long high, long low, int expirationMinute) {
+        if (expirationMinute <= EMPTY) {
+            throw new IllegalArgumentException("Expiration minute must be positive");
+        }
+
+        synchronized (writeMonitor) {
+            Slots current = slots;
+
+            if (current.size + current.deleted + 1 > current.threshold) {
+                current = rebuild(current, current.size + 1);
+            }
+
+            current.insert(high, low, expirationMinute);
+            earliestExpiration = Math.min(earliestExpiration, expirationMinute);
+        }
+    }
+
+    // entries expire in whole minutes, a sweep only scans the table once the earliest expiration minute has passed
+    public int removeExpired(int currentMinute) {
+        synchronized (writeMonitor) {
+            if (earliestExpiration > currentMinute) {
+                return 0;
+            }
+
+            Slots current = slots;
+            int removed = 0;
+            int earliest = Integer.MAX_VALUE;
+
+            for (int from = 0; from < current.capacity; from += SWEEP_CHUNK) {
+                int to = Math.min(from + SWEEP_CHUNK, current.capacity);
+                long stamp = current.lock.writeLock();
+
+                try {
+                    for (int index = from; index < to; index++) {
+                        int expiration = current.expiration(index);
+
+                        if (expiration == EMPTY || expiration == DELETED) {
+                            continue;
+                        }
+
+                        if (expiration <= currentMinute) {
+                            current.buffer.putInt(index * SLOT_BYTES + EXPIRATION_OFFSET, DELETED);
+                            removed++;
+                        } else {
+                            earliest = Math.min(earliest, expiration);
+                        }
+                    }
+                } finally {
+                    current.lock.unlockWrite(stamp);
+                }
+            }
+
+            current.size -= removed;
+            current.deleted += removed;
+            earliestExpiration = earliest;
+
+            if (current.deleted > current.size) {
+                rebuild(current, current.size);
+            }
+
+            return removed;
+        }
+    }
+
+    public int size() {
+        return slots.size;
+    }
+
+    public long offHeapBytes() {
+        return (long) slots.capacity * SLOT_BYTES;
+    }
+
+    private Slots rebuild(Slots current, int entries) {
+        // a third of headroom so a grown table isn't rebuilt again a few inserts later
+        long withHeadroom = entries < MAX_ENTRIES ? Math.min(entries + entries / 3L, MAX_ENTRIES) : entries;
+        Slots rebuilt = new Slots(Math.max(minCapacity, capacityFor(withHeadroom)));
+
+        for (int index = 0; index < current.capacity; index++) {
+            int expiration = current.expiration(index);
+
+            if (expiration != EMPTY && expiration != DELETED) {
+                int offset = index * SLOT_BYTES;
+                rebuilt.insert(
+                        current.buffer.getLong(offset + HIGH_OFFSET),
+                        current.buffer.getLong(offset + LOW_OFFSET),
+                        expiration
+                );
+            }
+        }
+
+        slots = rebuilt;
+        return rebuilt;
+    }
+
+    private static int capacityFor(long entries) {
+        if (entries > MAX_ENTRIES) {
+            throw new IllegalStateException("Fingerprint table can't hold more than " + MAX_ENTRIES + " entries");
+        }
+
+        long required = (long) Math.ceil(Math.max(entries, 1) / MAX_LOAD);
+        int capacity = MIN_CAPACITY;
+
+        while (capacity < required) {
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+
+    private static final class Slots {
+        private final ByteBuffer buffer;
+        private final StampedLock lock = new StampedLock();
+        private final int capacity;
+        private final int mask;
+        private final int threshold;
+        private int size;
+        private int deleted;
+
+        private Slots(int capacity) {
+            this.buffer = ByteBuffer.allocateDirect(capacity * SLOT_BYTES).order(ByteOrder.nativeOrder());
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.threshold = (int) (capacity * MAX_LOAD);
+        }
+
+        private int expiration(int index) {
+            return buffer.getInt(index * SLOT_BYTES + EXPIRATION_OFFSET);
+        }
+
+        // fingerprints are already uniformly distributed hash output, so the low bits index the table directly
+        private int find(long high, long low) {
+            int index = (int) low & mask;
+
+            for (int probe = 0; probe < capacity; probe++) {
+                int offset = index * SLOT_BYTES;
+                int expiration = buffer.getInt(offset + EXPIRATION_OFFSET);
+
+                if (expiration == EMPTY) {
+                    return EMPTY;
+                }
+
+                if (expiration != DELETED && buffer.getLong(offset + HIGH_OFFSET) == high
+                        && buffer.getLong(offset + LOW_OFFSET) == low) {
+                    return expiration;
+                }
+
+                index = (index + 1) & mask;
+            }
+
+            return EMPTY;
+        }
+
+        private void insert(long high, long low, int expirationMinute) {
+            int index = (int) low & mask;
+            int target = -1;
+
+            for (int probe = 0; probe < capacity; probe++) {
+                int offset = index * SLOT_BYTES;
+                int expiration = buffer.getInt(offset + EXPIRATION_OFFSET);
+
+                if (expiration == EMPTY) {
+                    break;
+                }
+
+                if (expiration == DELETED) {
+                    if (target < 0) {
+                        target = index;
+                    }
+                } else if (buffer.getLong(offset + HIGH_OFFSET) == high && buffer.getLong(offset + LOW_OFFSET) == low) {
+                    if (expiration < expirationMinute) {
+                        long stamp = lock.writeLock();
+                        buffer.putInt(offset + EXPIRATION_OFFSET, expirationMinute);
+                        lock.unlockWrite(stamp);
+                    }
+                    return;
+                }
+
+                index = (index + 1) & mask;
+            }
+
+            boolean reusesDeleted = target >= 0;
+            int offset = (reusesDeleted ? target : index) * SLOT_BYTES;
+            long stamp = lock.writeLock();
+
+            try {
+                buffer.putLong(offset + HIGH_OFFSET, high);
+                buffer.putLong(offset + LOW_OFFSET, low);
+                buffer.putInt(offset + EXPIRATION_OFFSET, expirationMinute);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+
+            size++;
+            if (reusesDeleted) {
+                deleted--;
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ahicode.services.impl;
+
+import com.ahicode.dtos.ProcessedToken;
+import com.ahicode.dtos.RevocationEvent;
+import com.ahicode.exceptions.TokenParsingException;
+import com.ahicode.services.RevocationEventCodec;
+
+// blacklist records are revocation events written with the shared RevocationEventCodec. Records published before the
+// event schema hold the token itself, those are still decoded through TokenProcessor
+public class RevocationEventDecoder {
+
+    public static RevocationEvent decode(String record) {
+        if (record == null || record.isEmpty()) {
+            throw new TokenParsingException("Empty blacklist record");
+        }
+
+        if (record.charAt(0) != '{') {
+            ProcessedToken token = TokenProcessor.parse(record);
+            return RevocationEvent.forToken(record, token.getTokenId(), token.getExpiration(), null, null);
+        }
+
+        try {
+            return RevocationEventCodec.decode(record);
+        } catch (IllegalArgumentException exception) {
+            throw new TokenParsingException("Revocation event parsing failed");
+        }
+    }
+}
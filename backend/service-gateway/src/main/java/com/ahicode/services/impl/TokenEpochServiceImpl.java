@@ -0,0 +1,39 @@
+package com.ahicode.services.impl;
+
+import com.ahicode.dtos.TokenSession;
+import com.ahicode.services.TokenEpochService;
+import com.ahicode.services.TokenEpochTable;
+import org.springframework.stereotype.Service;
+
+@Service
+public class TokenEpochServiceImpl implements TokenEpochService {
+
+    // fed by the TokenEpochTableReader of TokenEpochConfig, which reads the whole topic on every instance
+    private final TokenEpochTable table;
+
+    public TokenEpochServiceImpl(TokenEpochTable table) {
+        this.table = table;
+    }
+
+    @Override
+    public boolean isRevoked(String token) {
+        // most of the time nobody has revoked their sessions and the token isn't even decoded
+        if (token == null || table.isEmpty()) {
+            return false;
+        }
+
+        TokenSession session = TokenProcessor.extractSession(token);
+
+        if (session == null) {
+            // the services reject a token they can't read
+            return false;
+        }
+
+        return table.isRevoked(session.getUserId(), session.getTokenEpoch());
+    }
+
+    @Override
+    public void update(Long userId, int minimumEpoch) {
+        table.update(userId, minimumEpoch);
+    }
+}
@@ -1,12 +1,20 @@
 package com.ahicode.services.impl;
 
-import com.ahicode.dtos.ProcessedToken;
+import com.ahicode.dtos.ProcessedBatch;
+import com.ahicode.dtos.RevocationEvent;
+import com.ahicode.exceptions.TokenParsingException;
+import com.ahicode.services.BlacklistReplicaService;
 import com.ahicode.services.TokenProcessingService;
 import com.ahicode.services.TokenSetService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -14,20 +22,105 @@ import java.util.logging.Logger;
 public class TokenProcessingServiceImpl implements TokenProcessingService {
 
     private final TokenSetService tokenSetService;
+    private final BlacklistReplicaService blacklistReplicaService;
     private static final Logger logger = Logger.getLogger(TokenProcessingServiceImpl.class.getName());
 
     @Autowired
-    public TokenProcessingServiceImpl(TokenSetService tokenSetService) {
+    public TokenProcessingServiceImpl(TokenSetService tokenSetService, BlacklistReplicaService blacklistReplicaService) {
         this.tokenSetService = tokenSetService;
+        this.blacklistReplicaService = blacklistReplicaService;
     }
 
     @Override
-    public void processToken(String token) {
-        ProcessedToken processedToken = TokenProcessor.parse(token);
+    public ProcessedBatch processRevocations(List<String> records) {
+        Instant now = Instant.now();
+        Map<String, Duration> ttlByKey = new HashMap<>(records.size() * 2);
+        List<Integer> unparsable = new ArrayList<>();
+        int expired = 0;
 
-        long ttl = processedToken.getTtl();
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                RevocationEvent event = RevocationEventDecoder.decode(records.get(i));
+                Duration ttl = event.getTtl(now);
 
-        tokenSetService.saveToken(token, ttl, TimeUnit.MINUTES);
-        logger.log(Level.INFO, "The token was successfully save to blacklist");
+                // an expired token is rejected anyway, and Redis refuses a non-positive TTL
+                if (ttl.isNegative() || ttl.isZero()) {
+                    expired++;
+                } else {
+                    ttlByKey.put(event.getKey(), ttl);
+                }
+            } catch (TokenParsingException exception) {
+                unparsable.add(i);
+            }
+        }
+
+        if (!ttlByKey.isEmpty()) {
+            save(ttlByKey);
+            logger.log(Level.INFO, "Saved " + ttlByKey.size() + " tokens to blacklist, " + expired + " expired, "
+                    + unparsable.size() + " unparsable");
+        }
+
+        return new ProcessedBatch(ttlByKey.size(), expired, unparsable);
+    }
+
+    @Override
+    public void processRevocation(String record) {
+        RevocationEvent event = RevocationEventDecoder.decode(record);
+        Duration ttl = event.getTtl(Instant.now());
+
+        if (!ttl.isNegative() && !ttl.isZero()) {
+            save(Map.of(event.getKey(), ttl));
+        }
+    }
+
+    @Override
+    public void replicateRevocation(String record) {
+        RevocationEvent event = RevocationEventDecoder.decode(record);
+        blacklistReplicaService.revoke(event.getKey(), event.getExpiration());
+    }
+
+    // replays records into the replica and, when asked, into Redis. Expired and unparsable records are only counted
+    @Override
+    public ProcessedBatch restoreRevocations(List<String> records, boolean redis) {
+        Instant now = Instant.now();
+        Map<String, Duration> ttlByKey = new HashMap<>(redis ? records.size() * 2 : 0);
+        List<Integer> unparsable = new ArrayList<>();
+        int restored = 0;
+        int expired = 0;
+
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                RevocationEvent event = RevocationEventDecoder.decode(records.get(i));
+                Duration ttl = event.getTtl(now);
+
+                if (ttl.isNegative() || ttl.isZero()) {
+                    expired++;
+                    continue;
+                }
+
+                if (blacklistReplicaService.isEnabled()) {
+                    blacklistReplicaService.revoke(event.getKey(), event.getExpiration());
+                }
+                if (redis) {
+                    ttlByKey.put(event.getKey(), ttl);
+                }
+                restored++;
+            } catch (TokenParsingException exception) {
+                unparsable.add(i);
+            }
+        }
+
+        if (!ttlByKey.isEmpty()) {
+            save(ttlByKey);
+        }
+
+        return new ProcessedBatch(restored, expired, unparsable);
+    }
+
+    // runs on a Kafka consumer thread, the caller decides what happens to the records when the write fails
+    private void save(Map<String, Duration> ttlByKey) {
+        if (!Boolean.TRUE.equals(tokenSetService.saveTokens(ttlByKey).block())) {
+            throw new IllegalStateException("Failed to save " + ttlByKey.size() + " tokens to blacklist");
+        }
     }
 }
@@ -1,37 +1,304 @@
 package com.ahicode.services.impl;
 
 import com.ahicode.dtos.ProcessedToken;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.ahicode.dtos.RevocationEvent;
+import com.ahicode.dtos.TokenSession;
+import com.ahicode.exceptions.TokenParsingException;
 
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
 import java.time.Instant;
-import java.util.Base64;
+import java.util.Arrays;
 
+// reads exp and jti straight from the decoded payload bytes, without splitting the token or building a JSON tree.
+// The signature isn't checked here, the services verify it, the gateway only needs the claims to key the blacklist
 public class TokenProcessor {
+
+    private static final byte[] EXPIRATION_CLAIM = "exp".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TOKEN_ID_CLAIM = "jti".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] USER_ID_CLAIM = "id".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TOKEN_EPOCH_CLAIM = "tep".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int MAX_PAYLOAD_LENGTH = 8192;
+    private static final int[] BASE64_URL_VALUES = new int[128];
+    private static final ThreadLocal<byte[][]> PAYLOAD = ThreadLocal.withInitial(() -> new byte[][]{new byte[512]});
+
+    static {
+        Arrays.fill(BASE64_URL_VALUES, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_URL_VALUES[alphabet.charAt(i)] = i;
+        }
+    }
+
     public static ProcessedToken parse(String token) {
-        try {
-            String[] tokenParts = token.split("\\.");
-            if (tokenParts.length != 3) {
-                throw new RuntimeException("Invalid JWT format");
+        Scanner scanner = scannerFor(token);
+
+        if (scanner == null || !scanner.scan(true)) {
+            throw new TokenParsingException("Token parsing failed");
+        }
+
+        return new ProcessedToken(token, scanner.tokenId, Instant.ofEpochSecond(scanner.expiration));
+    }
+
+    // null for tokens issued before the jti claim and for anything that doesn't parse
+    public static String extractTokenId(String token) {
+        Scanner scanner = scannerFor(token);
+
+        if (scanner == null || !scanner.scan(false)) {
+            return null;
+        }
+
+        return scanner.tokenId;
+    }
+
+    // null for tokens without a user id and for anything that doesn't parse, a missing tep is epoch 0
+    public static TokenSession extractSession(String token) {
+        Scanner scanner = scannerFor(token);
+
+        if (scanner == null || !scanner.scan(false) || scanner.userId < 0 || scanner.tokenEpoch > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        return new TokenSession(scanner.userId, (int) scanner.tokenEpoch);
+    }
+
+    // the key a revocation event carries for this token, derived as the services derive it
+    public static String blacklistKey(String token) {
+        return RevocationEvent.keyOf(token, extractTokenId(token));
+    }
+
+    public static String blacklistKey(ProcessedToken token) {
+        return RevocationEvent.keyOf(token.getToken(), token.getTokenId());
+    }
+
+    private static Scanner scannerFor(String token) {
+        int payloadStart = token.indexOf('.') + 1;
+        int payloadEnd = payloadStart > 0 ? token.indexOf('.', payloadStart) : -1;
+
+        if (payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0 || payloadEnd - payloadStart > MAX_PAYLOAD_LENGTH) {
+            return null;
+        }
+
+        byte[][] holder = PAYLOAD.get();
+        int capacity = (payloadEnd - payloadStart) * 3 / 4;
+
+        if (holder[0].length < capacity) {
+            holder[0] = new byte[capacity];
+        }
+
+        int length = decode(token, payloadStart, payloadEnd, holder[0]);
+        return length < 0 ? null : new Scanner(holder[0], length);
+    }
+
+    // unpadded base64url only, returns the number of decoded bytes or -1
+    private static int decode(String source, int from, int to, byte[] target) {
+        if ((to - from) % 4 == 1) {
+            return -1;
+        }
+
+        int bits = 0;
+        int bitCount = 0;
+        int position = 0;
+
+        for (int i = from; i < to; i++) {
+            char c = source.charAt(i);
+            int value = c < 128 ? BASE64_URL_VALUES[c] : -1;
+
+            if (value < 0) {
+                return -1;
+            }
+
+            bits = (bits << 6) | value;
+            bitCount += 6;
+
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                target[position++] = (byte) (bits >>> bitCount);
+                bits &= (1 << bitCount) - 1;
+            }
+        }
+
+        return position;
+    }
+
+    // walks the top level members only, so an "exp" inside a string or a nested object is never taken for the claim
+    private static final class Scanner {
+        private final byte[] json;
+        private final int length;
+        private int position;
+        private long expiration = -1;
+        private long userId = -1;
+        private long tokenEpoch;
+        private String tokenId;
+
+        private Scanner(byte[] json, int length) {
+            this.json = json;
+            this.length = length;
+        }
+
+        private boolean scan(boolean requireExpiration) {
+            if (!consume('{')) {
+                return false;
+            }
+
+            if (!consume('}')) {
+                do {
+                    skipWhitespace();
+                    int keyStart = position + 1;
+                    int keyEnd = skipString();
+
+                    if (keyEnd < 0 || !consume(':')) {
+                        return false;
+                    }
+
+                    skipWhitespace();
+
+                    if (keyEquals(keyStart, keyEnd, EXPIRATION_CLAIM)) {
+                        expiration = number();
+                        if (expiration < 0) {
+                            return false;
+                        }
+                    } else if (keyEquals(keyStart, keyEnd, USER_ID_CLAIM)) {
+                        userId = number();
+                        if (userId < 0) {
+                            return false;
+                        }
+                    } else if (keyEquals(keyStart, keyEnd, TOKEN_EPOCH_CLAIM)) {
+                        tokenEpoch = number();
+                        if (tokenEpoch < 0) {
+                            return false;
+                        }
+                    } else if (keyEquals(keyStart, keyEnd, TOKEN_ID_CLAIM) && position < length && json[position] == '"') {
+                        int valueStart = position + 1;
+                        int valueEnd = skipString();
+                        if (valueEnd < 0) {
+                            return false;
+                        }
+                        tokenId = new String(json, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+                    } else if (!skipValue()) {
+                        return false;
+                    }
+                } while (consume(','));
+
+                if (!consume('}')) {
+                    return false;
+                }
+            }
+
+            return !requireExpiration || expiration >= 0;
+        }
+
+        private boolean keyEquals(int start, int end, byte[] claim) {
+            return end - start == claim.length && Arrays.equals(json, start, end, claim, 0, claim.length);
+        }
+
+        // integral seconds as jjwt and the services write them, anything else is rejected
+        private long number() {
+            int start = position;
+            long value = 0;
+
+            while (position < length && position - start < 18 && json[position] >= '0' && json[position] <= '9') {
+                value = value * 10 + (json[position] - '0');
+                position++;
+            }
+
+            if (position == start || (position < length && (json[position] == '.' || json[position] == 'e'
+                    || json[position] == 'E' || (json[position] >= '0' && json[position] <= '9')))) {
+                return -1;
+            }
+
+            return value;
+        }
+
+        // positioned on the opening quote, returns the index of the closing quote and moves past it, or -1
+        private int skipString() {
+            if (position >= length || json[position] != '"') {
+                return -1;
             }
 
-            String tokenPayload = tokenParts[1];
-            byte[] decodedBytes = Base64.getUrlDecoder().decode(tokenPayload);
-            String jsonToken = new String(decodedBytes, StandardCharsets.UTF_8);
+            position++;
+
+            while (position < length) {
+                byte current = json[position];
 
-            JsonObject jsonObject = JsonParser.parseString(jsonToken).getAsJsonObject();
-            long exp = jsonObject.get("exp").getAsLong();
+                if (current == '"') {
+                    return position++;
+                }
 
-            Instant expTime = Instant.ofEpochSecond(exp);
-            Instant now = Instant.now();
-            long minutesUntilExpiration = Duration.between(now, expTime).toMinutes();
+                position += current == '\\' ? 2 : 1;
+            }
 
-            return new ProcessedToken(token, minutesUntilExpiration);
+            return -1;
+        }
 
-        } catch (Exception e) {
-            throw new RuntimeException("Token parsing failed");
+        private boolean skipValue() {
+            if (position >= length) {
+                return false;
+            }
+
+            byte current = json[position];
+
+            if (current == '"') {
+                return skipString() >= 0;
+            }
+
+            if (current == '{' || current == '[') {
+                int depth = 0;
+
+                while (position < length) {
+                    current = json[position];
+
+                    if (current == '"') {
+                        if (skipString() < 0) {
+                            return false;
+                        }
+                        continue;
+                    }
+
+                    if (current == '{' || current == '[') {
+                        depth++;
+                    } else if ((current == '}' || current == ']') && --depth == 0) {
+                        position++;
+                        return true;
+                    }
+
+                    position++;
+                }
+
+                return false;
+            }
+
+            // numbers, true, false and null run until the next separator
+            int start = position;
+            while (position < length && json[position] != ',' && json[position] != '}'
+                    && json[position] != ' ' && json[position] != '\t' && json[position] != '\n' && json[position] != '\r') {
+                position++;
+            }
+
+            return position > start;
+        }
+
+        private boolean consume(char expected) {
+            skipWhitespace();
+
+            if (position < length && json[position] == expected) {
+                position++;
+                return true;
+            }
+
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (position < length) {
+                byte current = json[position];
+
+                if (current != ' ' && current != '\t' && current != '\n' && current != '\r') {
+                    return;
+                }
+
+                position++;
+            }
         }
     }
 }
@@ -3,27 +3,89 @@ package com.ahicode.services.impl;
 import com.ahicode.services.TokenSetService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 @Service
 public class TokenSetServiceImpl implements TokenSetService {
-    @Autowired
-    private RedisTemplate<String, Object> tokenRedisTemplate;
+
+    private static final Logger logger = Logger.getLogger(TokenSetServiceImpl.class.getName());
+
+    private static final String KEY_PREFIX = "blacklist:";
+    private static final String STORED_VALUE = "1";
+    // written once the blacklist is rebuilt from the topic, a Redis that lost its data has no marker either
+    private static final String POPULATED_MARKER_KEY = "blacklist:populated";
+
+    private final ReactiveRedisTemplate<String, String> tokenRedisTemplate;
+    private final Duration lookupTimeout;
+    private final boolean failOpen;
+    private final boolean legacyKeys;
+    private final int maxInFlight;
 
     @Autowired
-    public TokenSetServiceImpl(@Qualifier("tokenRedisTemplate") RedisTemplate<String, Object> tokenRedisTemplate) {
+    public TokenSetServiceImpl(
+            @Qualifier("tokenRedisTemplate") ReactiveRedisTemplate<String, String> tokenRedisTemplate,
+            @Value("${gateway.redis.token.lookup-timeout:100ms}") Duration lookupTimeout,
+            @Value("${gateway.redis.token.fail-open:false}") boolean failOpen,
+            @Value("${gateway.redis.token.legacy-keys:true}") boolean legacyKeys,
+            @Value("${gateway.redis.token.max-in-flight:256}") int maxInFlight
+    ) {
         this.tokenRedisTemplate = tokenRedisTemplate;
+        this.lookupTimeout = lookupTimeout;
+        this.failOpen = failOpen;
+        this.legacyKeys = legacyKeys;
+        this.maxInFlight = maxInFlight;
     }
 
-    public void saveToken(String token, long ttlInUnits, TimeUnit unit) {
-        tokenRedisTemplate.opsForValue().set(token, "stored", ttlInUnits, unit);
+    // Lettuce writes every SET to the shared connection without waiting for the previous reply, so the whole batch is
+    // pipelined and costs about one round trip instead of one per token. maxInFlight caps the unanswered SETs per batch
+    public Mono<Boolean> saveTokens(Map<String, Duration> ttlByKey) {
+        return Flux.fromIterable(ttlByKey.entrySet())
+                .flatMap(entry -> tokenRedisTemplate.opsForValue().set(KEY_PREFIX + entry.getKey(), STORED_VALUE, entry.getValue()),
+                        maxInFlight)
+                .all(Boolean::booleanValue);
+    }
+
+    // a slow or unavailable Redis must not hold the request, the token is treated as revoked unless fail-open is opted into
+    public Mono<Boolean> isTokenInBlackList(String token) {
+        return lookup(token)
+                .timeout(lookupTimeout)
+                .defaultIfEmpty(false)
+                .onErrorResume(exception -> {
+                    logger.log(Level.WARNING, "Blacklist lookup failed, treating token as " +
+                            (failOpen ? "valid" : "revoked") + ": " + exception);
+                    return Mono.just(!failOpen);
+                });
+    }
+
+    public Mono<Boolean> isPopulated() {
+        return tokenRedisTemplate.hasKey(POPULATED_MARKER_KEY);
+    }
+
+    public Mono<Boolean> markPopulated() {
+        return tokenRedisTemplate.opsForValue().set(POPULATED_MARKER_KEY, STORED_VALUE);
+    }
+
+    // entries written before the jti claim are keyed by the whole token, they are still read until they expire
+    private Mono<Boolean> lookup(String token) {
+        if (legacyKeys) {
+            return Flux.just(keyOf(token), token)
+                    .flatMap(tokenRedisTemplate::hasKey)
+                    .any(Boolean::booleanValue);
+        }
+
+        return tokenRedisTemplate.hasKey(keyOf(token));
     }
 
-    public boolean isTokenInBlackList(String token) {
-        return Boolean.TRUE.equals(tokenRedisTemplate.hasKey(token));
+    private static String keyOf(String token) {
+        return KEY_PREFIX + TokenProcessor.blacklistKey(token);
     }
 }
@@ -0,0 +1,248 @@
+package config;
+
+import com.ahicode.config.AuthenticationFilter;
+import com.ahicode.services.BlacklistReplicaService;
+import com.ahicode.services.IdentityPropagationService;
+import com.ahicode.services.TokenEpochService;
+import com.ahicode.services.TokenEpochTable;
+import com.ahicode.services.TokenSetService;
+import com.ahicode.services.impl.TokenEpochServiceImpl;
+import com.ahicode.services.impl.TokenSetServiceImpl;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class AuthenticationFilterBlockingTest {
+
+    private ReactiveRedisTemplate<String, String> redisTemplate;
+    private BlacklistReplicaService blacklistReplicaService;
+    private TokenEpochService tokenEpochService;
+    private IdentityPropagationService identityService;
+    private AtomicBoolean forwarded;
+    private AtomicReference<HttpHeaders> forwardedHeaders;
+    private GatewayFilterChain chain;
+
+    @BeforeAll
+    static void installBlockHound() {
+        BlockHound.install();
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        redisTemplate = mock(ReactiveRedisTemplate.class);
+        blacklistReplicaService = mock(BlacklistReplicaService.class);
+        tokenEpochService = new TokenEpochServiceImpl(new TokenEpochTable());
+        identityService = mock(IdentityPropagationService.class);
+        forwarded = new AtomicBoolean();
+        forwardedHeaders = new AtomicReference<>();
+        chain = exchange -> Mono.fromRunnable(() -> {
+            forwarded.set(true);
+            forwardedHeaders.set(exchange.getRequest().getHeaders());
+        });
+    }
+
+    @Test
+    void shouldForwardWithoutBlockingEventLoop() {
+        when(redisTemplate.hasKey(anyString())).thenReturn(Mono.just(false).delayElement(Duration.ofMillis(10)));
+        MockServerWebExchange exchange = securedExchange();
+
+        StepVerifier.create(onEventLoop(filter(true), exchange)).verifyComplete();
+
+        assertTrue(forwarded.get());
+    }
+
+    @Test
+    void shouldRejectBlacklistedRefreshToken() {
+        when(redisTemplate.hasKey(anyString())).thenReturn(Mono.just(true));
+        MockServerWebExchange exchange = securedExchange();
+
+        StepVerifier.create(onEventLoop(filter(true), exchange)).verifyComplete();
+
+        assertFalse(forwarded.get());
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+    }
+
+    @Test
+    void shouldForwardWhenRedisTimesOutAndFailOpen() {
+        when(redisTemplate.hasKey(anyString())).thenReturn(Mono.never());
+        MockServerWebExchange exchange = securedExchange();
+
+        StepVerifier.create(onEventLoop(filter(true), exchange)).verifyComplete();
+
+        assertTrue(forwarded.get());
+    }
+
+    @Test
+    void shouldRejectWhenRedisFailsAndFailClosed() {
+        when(redisTemplate.hasKey(anyString())).thenReturn(Mono.error(new IllegalStateException("connection refused")));
+        MockServerWebExchange exchange = securedExchange();
+
+        StepVerifier.create(onEventLoop(filter(false), exchange)).verifyComplete();
+
+        assertFalse(forwarded.get());
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+    }
+
+    @Test
+    void shouldAnswerFromReplicaWithoutRedis() {
+        when(blacklistReplicaService.isEnabled()).thenReturn(true);
+        when(blacklistReplicaService.isRevoked("refresh")).thenReturn(true);
+        MockServerWebExchange exchange = securedExchange();
+
+        StepVerifier.create(onEventLoop(filter(true), exchange)).verifyComplete();
+
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void shouldRejectRevokedSessionWithoutBlacklistLookup() {
+        tokenEpochService.update(7L, 2);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/project/projects")
+                .cookie(new HttpCookie("refreshToken", makeToken("{\"id\":7,\"tep\":1,\"exp\":9999999999}"))));
+
+        StepVerifier.create(onEventLoop(filter(true), exchange)).verifyComplete();
+
+        assertFalse(forwarded.get());
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void shouldForwardSessionStartedAfterRevocation() {
+        tokenEpochService.update(7L, 2);
+        when(redisTemplate.hasKey(anyString())).thenReturn(Mono.just(false));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/project/projects")
+                .cookie(new HttpCookie("refreshToken", makeToken("{\"id\":7,\"tep\":2,\"exp\":9999999999}"))));
+
+        StepVerifier.create(onEventLoop(filter(true), exchange)).verifyComplete();
+
+        assertTrue(forwarded.get());
+    }
+
+    @Test
+    void shouldRejectRevokedAccessTokenWithoutRefreshToken() {
+        tokenEpochService.update(7L, 2);
+        when(identityService.isEnabled()).thenReturn(true);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/project/projects")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + makeToken("{\"id\":7,\"tep\":1,\"exp\":9999999999}")));
+
+        StepVerifier.create(onEventLoop(filter(true), exchange)).verifyComplete();
+
+        assertFalse(forwarded.get());
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        verify(identityService, never()).propagate(any(), any());
+    }
+
+    @Test
+    void shouldNotVouchForAccessTokenWithoutRefreshToken() {
+        when(identityService.isEnabled()).thenReturn(true);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/project/projects")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + makeToken("{\"id\":7,\"exp\":9999999999}"))
+                .header("X-User-Subject", "victim@example.com"));
+
+        StepVerifier.create(onEventLoop(filter(true), exchange)).verifyComplete();
+
+        assertTrue(forwarded.get());
+        assertNull(forwardedHeaders.get().getFirst("X-User-Subject"));
+        verify(identityService, never()).propagate(any(), any());
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void shouldForwardPreflightOfPublicRoutes() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.options("/api/v1/auth/login"));
+
+        StepVerifier.create(onEventLoop(filter(true), exchange)).verifyComplete();
+
+        assertTrue(forwarded.get());
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void shouldStripIdentityHeadersOnPublicRoutes() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/auth/login")
+                .header("X-User-Id", "1")
+                .header("x-user-role", "ADMIN")
+                .header("X-User-Anything", "value")
+                .header("X-Request-Id", "kept"));
+
+        StepVerifier.create(onEventLoop(filter(true), exchange)).verifyComplete();
+
+        HttpHeaders headers = forwardedHeaders.get();
+        assertNull(headers.getFirst("X-User-Id"));
+        assertNull(headers.getFirst("X-User-Role"));
+        assertNull(headers.getFirst("X-User-Anything"));
+        assertEquals("kept", headers.getFirst("X-Request-Id"));
+    }
+
+    @Test
+    void shouldStripIdentityHeadersWithoutPropagation() {
+        when(redisTemplate.hasKey(anyString())).thenReturn(Mono.just(false));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/project/projects")
+                .cookie(new HttpCookie("refreshToken", "refresh"))
+                .header("X-User-Subject", "victim@example.com"));
+
+        StepVerifier.create(onEventLoop(filter(true), exchange)).verifyComplete();
+
+        assertNull(forwardedHeaders.get().getFirst("X-User-Subject"));
+    }
+
+    @Test
+    void shouldDetectBlockingLookupOnEventLoop() {
+        TokenSetService blockingService = mock(TokenSetService.class);
+        when(blockingService.isTokenInBlackList("refresh")).thenReturn(Mono.fromCallable(() -> {
+            Thread.sleep(10);
+            return false;
+        }));
+        GatewayFilter filter = new AuthenticationFilter(blockingService, blacklistReplicaService, tokenEpochService, identityService).apply(new AuthenticationFilter.Config());
+
+        StepVerifier.create(onEventLoop(filter, securedExchange()))
+                .expectError(BlockingOperationError.class)
+                .verify();
+    }
+
+    private GatewayFilter filter(boolean failOpen) {
+        TokenSetService tokenSetService = new TokenSetServiceImpl(redisTemplate, Duration.ofMillis(50), failOpen, false, 256);
+        return new AuthenticationFilter(tokenSetService, blacklistReplicaService, tokenEpochService, identityService).apply(new AuthenticationFilter.Config());
+    }
+
+    // parallel scheduler threads are non-blocking for BlockHound, the same as Netty's event loop
+    private Mono<Void> onEventLoop(GatewayFilter filter, MockServerWebExchange exchange) {
+        return Mono.defer(() -> filter.filter(exchange, chain)).subscribeOn(Schedulers.parallel());
+    }
+
+    private String makeToken(String payload) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+
+    private MockServerWebExchange securedExchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/project/projects")
+                .cookie(new HttpCookie("refreshToken", "refresh")));
+    }
+}
@@ -0,0 +1,165 @@
+package services;
+
+import com.ahicode.dtos.ProcessedBatch;
+import com.ahicode.services.BlacklistReplicaService;
+import com.ahicode.services.TokenProcessingService;
+import com.ahicode.services.TokenSetService;
+import com.ahicode.services.impl.BlacklistBootstrapServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.ConsumerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BlacklistBootstrapServiceImplTest {
+
+    private static final String TOPIC = "blacklist_tokens_topic";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+    private MockConsumer<String, String> consumer;
+    private MockConsumer<String, String> replicaConsumer;
+    private ConsumerFactory<String, String> consumerFactory;
+    private TokenProcessingService tokenProcessingService;
+    private TokenSetService tokenSetService;
+    private BlacklistReplicaService blacklistReplicaService;
+    private SimpleMeterRegistry meterRegistry;
+    private BlacklistBootstrapServiceImpl service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        consumer = consumerWithEnd(3L);
+        // the replica reader gets a consumer of its own once the replay closed the first one
+        replicaConsumer = consumerWithEnd(0L);
+
+        consumerFactory = mock(ConsumerFactory.class);
+        when(consumerFactory.createConsumer(isNull(), isNull(), eq("-bootstrap"), any(Properties.class))).thenReturn(consumer);
+        when(consumerFactory.createConsumer(isNull(), isNull(), eq("-blacklist-replica"), any(Properties.class))).thenReturn(replicaConsumer);
+
+        tokenProcessingService = mock(TokenProcessingService.class);
+        tokenSetService = mock(TokenSetService.class);
+        blacklistReplicaService = mock(BlacklistReplicaService.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        when(tokenSetService.isPopulated()).thenReturn(Mono.just(false));
+        when(tokenSetService.markPopulated()).thenReturn(Mono.just(true));
+        when(blacklistReplicaService.isEnabled()).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    @Test
+    void shouldReplayTopicIntoRedisAndReplica() {
+        scheduleRecords("first", "second", "third");
+        when(tokenProcessingService.restoreRevocations(anyList(), eq(true))).thenReturn(new ProcessedBatch(2, 1, List.of()));
+
+        service(false, Duration.ofSeconds(10)).start();
+
+        verify(tokenProcessingService).restoreRevocations(List.of("first", "second", "third"), true);
+        verify(tokenSetService).markPopulated();
+        assertEquals(1, meterRegistry.get("gateway.blacklist.bootstrap.duration").tag("result", "completed").timer().count());
+        assertTrue(consumer.closed());
+    }
+
+    @Test
+    void shouldContinueReplicaWhereReplayEnded() {
+        scheduleRecords("first", "second", "third");
+        when(tokenProcessingService.restoreRevocations(anyList(), anyBoolean())).thenReturn(new ProcessedBatch(3, 0, List.of()));
+        replicaConsumer.updateEndOffsets(Map.of(PARTITION, 4L));
+        replicaConsumer.schedulePollTask(() -> {
+            List<String> values = List.of("first", "second", "third", "fourth");
+            for (int i = 0; i < values.size(); i++) {
+                replicaConsumer.addRecord(new ConsumerRecord<>(TOPIC, 0, i, "jti:" + i, values.get(i)));
+            }
+        });
+
+        service(false, Duration.ofSeconds(10)).start();
+
+        verify(tokenProcessingService).replicateRevocation("fourth");
+        verify(tokenProcessingService, times(1)).replicateRevocation(anyString());
+    }
+
+    @Test
+    void shouldFillReplicaOnlyWhenRedisIsPopulated() {
+        scheduleRecords("first", "second", "third");
+        when(tokenSetService.isPopulated()).thenReturn(Mono.just(true));
+        when(tokenProcessingService.restoreRevocations(anyList(), eq(false))).thenReturn(new ProcessedBatch(3, 0, List.of()));
+
+        service(false, Duration.ofSeconds(10)).start();
+
+        verify(tokenProcessingService).restoreRevocations(anyList(), eq(false));
+        verify(tokenSetService, never()).markPopulated();
+    }
+
+    @Test
+    void shouldSkipReplayWhenThereIsNothingToRebuild() {
+        when(tokenSetService.isPopulated()).thenReturn(Mono.just(true));
+        when(blacklistReplicaService.isEnabled()).thenReturn(false);
+
+        service(false, Duration.ofSeconds(10)).start();
+
+        verifyNoInteractions(consumerFactory, tokenProcessingService);
+    }
+
+    @Test
+    void shouldNotMarkRedisPopulatedWhenReplayFails() {
+        scheduleRecords("first", "second", "third");
+        when(tokenProcessingService.restoreRevocations(anyList(), anyBoolean())).thenThrow(new IllegalStateException("connection refused"));
+
+        service(false, Duration.ofSeconds(10)).start();
+
+        verify(tokenSetService, never()).markPopulated();
+        assertEquals(1, meterRegistry.get("gateway.blacklist.bootstrap.duration").tag("result", "failed").timer().count());
+    }
+
+    @Test
+    void shouldAbortStartupWhenRequiredReplayTimesOut() {
+        // the end offset is never reached, the records never arrive
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> service(true, Duration.ofMillis(100)).start());
+
+        assertEquals("Blacklist bootstrap timed out after PT0.1S", exception.getMessage());
+        assertEquals(1, meterRegistry.get("gateway.blacklist.bootstrap.duration").timers().size());
+        assertEquals(1, meterRegistry.get("gateway.blacklist.bootstrap.duration").tag("result", "timed-out").timer().count());
+    }
+
+    private BlacklistBootstrapServiceImpl service(boolean required, Duration timeout) {
+        service = new BlacklistBootstrapServiceImpl(consumerFactory, tokenProcessingService, tokenSetService,
+                blacklistReplicaService, meterRegistry, true, required, timeout, 1000);
+        return service;
+    }
+
+    private static MockConsumer<String, String> consumerWithEnd(long endOffset) {
+        MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.updatePartitions(TOPIC, List.of(new PartitionInfo(TOPIC, 0, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        consumer.updateEndOffsets(Map.of(PARTITION, endOffset));
+        return consumer;
+    }
+
+    private void scheduleRecords(String... values) {
+        consumer.schedulePollTask(() -> {
+            for (int i = 0; i < values.length; i++) {
+                consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, i, "jti:" + i, values[i]));
+            }
+        });
+    }
+}
@@ -0,0 +1,115 @@
+package services;
+
+import com.ahicode.dtos.ProcessedBatch;
+import com.ahicode.exceptions.TokenParsingException;
+import com.ahicode.services.TokenProcessingService;
+import com.ahicode.services.impl.KafkaMessageListenerImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class KafkaMessageListenerImplTest {
+
+    private TokenProcessingService tokenProcessingService;
+    private KafkaTemplate<String, String> kafkaTemplate;
+    private DeadLetterPublishingRecoverer deadLetterRecoverer;
+    private Acknowledgment acknowledgment;
+    private SimpleMeterRegistry meterRegistry;
+    private KafkaMessageListenerImpl listener;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        tokenProcessingService = mock(TokenProcessingService.class);
+        kafkaTemplate = mock(KafkaTemplate.class);
+        deadLetterRecoverer = mock(DeadLetterPublishingRecoverer.class);
+        acknowledgment = mock(Acknowledgment.class);
+        meterRegistry = new SimpleMeterRegistry();
+        listener = new KafkaMessageListenerImpl(tokenProcessingService, kafkaTemplate, deadLetterRecoverer, meterRegistry);
+    }
+
+    @Test
+    void shouldAcknowledgeAfterTokensAreSaved() {
+        when(tokenProcessingService.processRevocations(List.of("first", "second"))).thenReturn(new ProcessedBatch(1, 1, List.of()));
+
+        listener.listen(List.of(makeRecord("first"), makeRecord("second")), acknowledgment);
+
+        verify(acknowledgment).acknowledge();
+        assertEquals(1.0, meterRegistry.get("gateway.blacklist.tokens.ingested").tag("result", "saved").counter().count());
+        assertEquals(1.0, meterRegistry.get("gateway.blacklist.tokens.ingested").tag("result", "skipped").counter().count());
+        assertEquals(2, meterRegistry.get("gateway.blacklist.revocation.delay").timer().count());
+    }
+
+    @Test
+    void shouldParkUnparsableTokensWithoutHoldingBatch() {
+        ConsumerRecord<String, String> malformed = makeRecord("malformed");
+        when(tokenProcessingService.processRevocations(List.of("first", "malformed"))).thenReturn(new ProcessedBatch(1, 0, List.of(1)));
+
+        listener.listen(List.of(makeRecord("first"), malformed), acknowledgment);
+
+        verify(deadLetterRecoverer).accept(eq(malformed), any(TokenParsingException.class));
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldMoveBatchToRetryTopicWhenRedisFails() {
+        ConsumerRecord<String, String> record = makeRecord("first");
+        when(tokenProcessingService.processRevocations(anyList())).thenThrow(new IllegalStateException("connection refused"));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(new SendResult<>(null, null)));
+
+        listener.listen(List.of(record), acknowledgment);
+
+        ArgumentCaptor<ProducerRecord<String, String>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(captor.capture());
+        assertEquals("blacklist_tokens_retry", captor.getValue().topic());
+        assertEquals(record.timestamp(), captor.getValue().timestamp());
+        verify(acknowledgment).acknowledge();
+        assertEquals(1.0, meterRegistry.get("gateway.blacklist.tokens.ingested").tag("result", "retried").counter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldNotAcknowledgeWhenRetryTopicIsUnavailable() {
+        when(tokenProcessingService.processRevocations(anyList())).thenThrow(new IllegalStateException("connection refused"));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        assertThrows(RuntimeException.class, () -> listener.listen(List.of(makeRecord("first")), acknowledgment));
+
+        verifyNoInteractions(acknowledgment);
+    }
+
+    @Test
+    void shouldCountDeadLettersByCause() {
+        ConsumerRecord<String, String> record = makeRecord("malformed");
+        record.headers().add(KafkaHeaders.DLT_EXCEPTION_FQCN,
+                TokenParsingException.class.getName().getBytes(StandardCharsets.UTF_8));
+
+        listener.deadLetter(record);
+
+        assertEquals(1.0, meterRegistry.get("gateway.blacklist.dead.letters").tag("cause", "TokenParsingException").counter().count());
+    }
+
+    private ConsumerRecord<String, String> makeRecord(String token) {
+        return new ConsumerRecord<>("blacklist_tokens_topic", 0, 0, System.currentTimeMillis() - 100,
+                TimestampType.CREATE_TIME, 0, 0, "key", token, new RecordHeaders(), Optional.empty());
+    }
+}
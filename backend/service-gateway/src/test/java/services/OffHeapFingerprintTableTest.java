@@ -0,0 +1,68 @@
+package services;
+
+import com.ahicode.services.impl.OffHeapFingerprintTable;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapFingerprintTableTest {
+
+    private static final int NOW = 29_000_000;
+
+    @Test
+    void shouldContainOnlyUnexpiredFingerprints() {
+        OffHeapFingerprintTable table = new OffHeapFingerprintTable(16);
+
+        table.put(1L, 2L, NOW + 10);
+        table.put(3L, 4L, NOW);
+
+        assertTrue(table.contains(1L, 2L, NOW));
+        assertFalse(table.contains(3L, 4L, NOW));
+        assertFalse(table.contains(1L, 3L, NOW));
+    }
+
+    @Test
+    void shouldKeepLatestExpirationOfSameFingerprint() {
+        OffHeapFingerprintTable table = new OffHeapFingerprintTable(16);
+
+        table.put(1L, 2L, NOW + 10);
+        table.put(1L, 2L, NOW + 5);
+
+        assertEquals(1, table.size());
+        assertTrue(table.contains(1L, 2L, NOW + 9));
+    }
+
+    @Test
+    void shouldGrowAndKeepCollidingEntries() {
+        OffHeapFingerprintTable table = new OffHeapFingerprintTable(16);
+        long initialBytes = table.offHeapBytes();
+
+        // identical low bits put every entry on the same probe chain
+        for (long high = 0; high < 1000; high++) {
+            table.put(high, 7L, NOW + 10);
+        }
+
+        assertEquals(1000, table.size());
+        assertTrue(table.offHeapBytes() > initialBytes);
+        for (long high = 0; high < 1000; high++) {
+            assertTrue(table.contains(high, 7L, NOW));
+        }
+    }
+
+    @Test
+    void shouldRemoveExpiredEntriesWithoutBreakingProbeChains() {
+        OffHeapFingerprintTable table = new OffHeapFingerprintTable(64);
+
+        for (long high = 0; high < 40; high++) {
+            table.put(high, 7L, high % 2 == 0 ? NOW + 1 : NOW + 10);
+        }
+
+        assertEquals(0, table.removeExpired(NOW));
+        assertEquals(20, table.removeExpired(NOW + 1));
+
+        assertEquals(20, table.size());
+        for (long high = 0; high < 40; high++) {
+            assertEquals(high % 2 == 1, table.contains(high, 7L, NOW + 1));
+        }
+    }
+}
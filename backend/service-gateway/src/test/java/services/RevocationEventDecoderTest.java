@@ -0,0 +1,49 @@
+package services;
+
+import com.ahicode.enums.RevocationReason;
+import com.ahicode.exceptions.TokenParsingException;
+import com.ahicode.services.TokenFingerprint;
+import com.ahicode.services.impl.RevocationEventDecoder;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RevocationEventDecoderTest {
+
+    @Test
+    void shouldDecodeEvent() {
+        String record = "{\"jti\":\"AAECAwQFBgcICQoL\",\"exp\":1700000000,\"rsn\":\"LOGOUT\",\"iss\":\"AUTH-SERVICE\"}";
+
+        assertEquals("jti:AAECAwQFBgcICQoL", RevocationEventDecoder.decode(record).getKey());
+        assertEquals(RevocationReason.LOGOUT, RevocationEventDecoder.decode(record).getReason());
+    }
+
+    @Test
+    void shouldDecodeLegacyTokenRecord() {
+        String token = makeToken("{\"sub\":\"mock@example.com\",\"jti\":\"id\",\"exp\":1700000000}");
+        String legacyToken = makeToken("{\"sub\":\"mock@example.com\",\"exp\":1700000000}");
+
+        assertEquals("jti:id", RevocationEventDecoder.decode(token).getKey());
+        assertEquals(Instant.ofEpochSecond(1700000000), RevocationEventDecoder.decode(token).getExpiration());
+        assertEquals("fp:" + TokenFingerprint.of(legacyToken), RevocationEventDecoder.decode(legacyToken).getKey());
+        assertNull(RevocationEventDecoder.decode(token).getReason());
+    }
+
+    @Test
+    void shouldRejectIncompleteOrMalformedRecords() {
+        assertThrows(TokenParsingException.class, () -> RevocationEventDecoder.decode("{\"jti\":\"id\"}"));
+        assertThrows(TokenParsingException.class, () -> RevocationEventDecoder.decode("{\"jti\":\"id\",\"exp\":17"));
+        assertThrows(TokenParsingException.class, () -> RevocationEventDecoder.decode("malformed"));
+        assertThrows(TokenParsingException.class, () -> RevocationEventDecoder.decode(""));
+    }
+
+    private String makeToken(String payload) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+}
@@ -0,0 +1,115 @@
+package services;
+
+import com.ahicode.dtos.ProcessedBatch;
+import com.ahicode.exceptions.TokenParsingException;
+import com.ahicode.services.BlacklistReplicaService;
+import com.ahicode.services.TokenFingerprint;
+import com.ahicode.services.TokenSetService;
+import com.ahicode.services.impl.TokenProcessingServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TokenProcessingServiceImplTest {
+
+    private TokenSetService tokenSetService;
+    private BlacklistReplicaService blacklistReplicaService;
+    private TokenProcessingServiceImpl tokenProcessingService;
+
+    @BeforeEach
+    void setup() {
+        tokenSetService = mock(TokenSetService.class);
+        blacklistReplicaService = mock(BlacklistReplicaService.class);
+        tokenProcessingService = new TokenProcessingServiceImpl(tokenSetService, blacklistReplicaService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldSaveWholeBatchInOneCall() {
+        String live = makeEvent("live", Instant.now().plusSeconds(600));
+        String expired = makeEvent("expired", Instant.now().minusSeconds(60));
+        when(tokenSetService.saveTokens(anyMap())).thenReturn(Mono.just(true));
+
+        ProcessedBatch batch = tokenProcessingService.processRevocations(List.of(live, expired, "malformed", live));
+
+        ArgumentCaptor<Map<String, Duration>> captor = ArgumentCaptor.forClass(Map.class);
+        assertEquals(1, batch.getSaved());
+        assertEquals(1, batch.getExpired());
+        assertEquals(List.of(2), batch.getUnparsable());
+        verify(tokenSetService, times(1)).saveTokens(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertTrue(captor.getValue().get("jti:live").toSeconds() > 590);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStillAcceptLegacyTokenRecords() {
+        String token = makeToken(Instant.now().plusSeconds(600));
+        when(tokenSetService.saveTokens(anyMap())).thenReturn(Mono.just(true));
+
+        tokenProcessingService.processRevocations(List.of(token));
+
+        ArgumentCaptor<Map<String, Duration>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(tokenSetService).saveTokens(captor.capture());
+        assertTrue(captor.getValue().containsKey("fp:" + TokenFingerprint.of(token)));
+    }
+
+    @Test
+    void shouldFailBatchWhenRedisWriteFails() {
+        when(tokenSetService.saveTokens(anyMap())).thenReturn(Mono.error(new IllegalStateException("connection refused")));
+
+        assertThrows(IllegalStateException.class,
+                () -> tokenProcessingService.processRevocations(List.of(makeEvent("live", Instant.now().plusSeconds(600)))));
+    }
+
+    @Test
+    void shouldRejectMalformedSingleRecord() {
+        assertThrows(TokenParsingException.class, () -> tokenProcessingService.processRevocation("malformed"));
+
+        verifyNoInteractions(tokenSetService);
+    }
+
+    @Test
+    void shouldSkipRedisWhenNothingToSave() {
+        assertEquals(0, tokenProcessingService.processRevocations(List.of(makeEvent("expired", Instant.now().minusSeconds(60)))).getSaved());
+        verifyNoInteractions(tokenSetService);
+    }
+
+    @Test
+    void shouldRestoreLiveRevocationsIntoReplicaOnly() {
+        Instant expiration = Instant.now().plusSeconds(600);
+        when(blacklistReplicaService.isEnabled()).thenReturn(true);
+
+        ProcessedBatch batch = tokenProcessingService.restoreRevocations(
+                List.of(makeEvent("live", expiration), makeEvent("expired", Instant.now().minusSeconds(60)), "malformed"), false);
+
+        assertEquals(1, batch.getSaved());
+        assertEquals(1, batch.getExpired());
+        assertEquals(List.of(2), batch.getUnparsable());
+        verify(blacklistReplicaService).revoke("jti:live", Instant.ofEpochSecond(expiration.getEpochSecond()));
+        verifyNoInteractions(tokenSetService);
+    }
+
+    private String makeEvent(String tokenId, Instant expiration) {
+        return "{\"jti\":\"" + tokenId + "\",\"exp\":" + expiration.getEpochSecond() + ",\"rsn\":\"LOGOUT\",\"iss\":\"AUTH-SERVICE\"}";
+    }
+
+    private String makeToken(Instant expiration) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String payload = "{\"sub\":\"mock@example.com\",\"exp\":" + expiration.getEpochSecond() + "}";
+
+        return encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+}
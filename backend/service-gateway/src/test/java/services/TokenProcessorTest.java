@@ -0,0 +1,71 @@
+package services;
+
+import com.ahicode.dtos.ProcessedToken;
+import com.ahicode.dtos.TokenSession;
+import com.ahicode.services.impl.TokenProcessor;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenProcessorTest {
+
+    @Test
+    void shouldReadExpirationAndTokenId() {
+        ProcessedToken processedToken = TokenProcessor.parse(makeToken(
+                "{\"id\":1,\"role\":\"USER\",\"sub\":\"mock@example.com\",\"jti\":\"AAECAwQFBgcICQoL\",\"iat\":1000,\"exp\":2000}"
+        ));
+
+        assertEquals(Instant.ofEpochSecond(2000), processedToken.getExpiration());
+        assertEquals("AAECAwQFBgcICQoL", processedToken.getTokenId());
+    }
+
+    @Test
+    void shouldKeepSecondPrecisionForShortTtl() {
+        Instant now = Instant.ofEpochSecond(1970);
+
+        ProcessedToken processedToken = TokenProcessor.parse(makeToken("{\"sub\":\"mock@example.com\",\"exp\":2000}"));
+
+        assertEquals(30, processedToken.getTtl(now).toSeconds());
+        assertNull(processedToken.getTokenId());
+    }
+
+    @Test
+    void shouldIgnoreExpOutsideTopLevelMembers() {
+        ProcessedToken processedToken = TokenProcessor.parse(makeToken(
+                "{\"sub\":\"\\\"exp\\\":5\",\"nested\":{\"exp\":5,\"list\":[1,{\"b\":\"}\"}]},\"exp\" : 3000}"
+        ));
+
+        assertEquals(Instant.ofEpochSecond(3000), processedToken.getExpiration());
+    }
+
+    @Test
+    void shouldRejectTokenWithoutIntegralExpiration() {
+        assertThrows(RuntimeException.class, () -> TokenProcessor.parse(makeToken("{\"sub\":\"mock@example.com\"}")));
+        assertThrows(RuntimeException.class, () -> TokenProcessor.parse(makeToken("{\"exp\":1.5E9}")));
+        assertThrows(RuntimeException.class, () -> TokenProcessor.parse("header.payload"));
+        assertNull(TokenProcessor.extractTokenId("refresh"));
+    }
+
+    @Test
+    void shouldReadUserIdAndTokenEpoch() {
+        TokenSession session = TokenProcessor.extractSession(makeToken(
+                "{\"id\":7,\"role\":\"USER\",\"sub\":\"mock@example.com\",\"tep\":3,\"iat\":1000,\"exp\":2000}"
+        ));
+
+        assertEquals(7, session.getUserId());
+        assertEquals(3, session.getTokenEpoch());
+        assertEquals(0, TokenProcessor.extractSession(makeToken("{\"id\":7,\"exp\":2000}")).getTokenEpoch());
+        assertNull(TokenProcessor.extractSession(makeToken("{\"sub\":\"mock@example.com\",\"exp\":2000}")));
+        assertNull(TokenProcessor.extractSession(makeToken("{\"id\":7,\"tep\":\"3\",\"exp\":2000}")));
+    }
+
+    private String makeToken(String payload) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+}
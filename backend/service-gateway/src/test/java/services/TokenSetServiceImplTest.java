@@ -0,0 +1,91 @@
+package services;
+
+import com.ahicode.services.TokenFingerprint;
+import com.ahicode.services.impl.TokenSetServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+
+public class TokenSetServiceImplTest {
+
+    private ReactiveRedisTemplate<String, String> redisTemplate;
+    private ReactiveValueOperations<String, String> valueOperations;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        redisTemplate = mock(ReactiveRedisTemplate.class);
+        valueOperations = mock(ReactiveValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @Test
+    void shouldStoreEntryUnderEventKey() {
+        when(valueOperations.set(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+
+        StepVerifier.create(service(false).saveTokens(Map.of("jti:AAECAwQFBgcICQoL", Duration.ofMinutes(10))))
+                .expectNext(true)
+                .verifyComplete();
+
+        verify(valueOperations).set("blacklist:jti:AAECAwQFBgcICQoL", "1", Duration.ofMinutes(10));
+    }
+
+    @Test
+    void shouldLookUpTokenByTokenId() {
+        String token = makeToken("{\"sub\":\"mock@example.com\",\"jti\":\"AAECAwQFBgcICQoL\",\"exp\":9999999999}");
+        when(redisTemplate.hasKey(anyString())).thenReturn(Mono.just(false));
+
+        StepVerifier.create(service(false).isTokenInBlackList(token)).expectNext(false).verifyComplete();
+
+        verify(redisTemplate).hasKey("blacklist:jti:AAECAwQFBgcICQoL");
+    }
+
+    @Test
+    void shouldReportFailedWriteInBatch() {
+        when(valueOperations.set(eq("blacklist:jti:first"), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(valueOperations.set(eq("blacklist:jti:second"), anyString(), any(Duration.class))).thenReturn(Mono.just(false));
+
+        StepVerifier.create(service(false).saveTokens(Map.of("jti:first", Duration.ofMinutes(10), "jti:second", Duration.ofMinutes(5))))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldKeyLegacyTokenByFingerprint() {
+        String token = makeToken("{\"sub\":\"mock@example.com\",\"exp\":9999999999}");
+        when(redisTemplate.hasKey(anyString())).thenReturn(Mono.just(true));
+
+        StepVerifier.create(service(false).isTokenInBlackList(token)).expectNext(true).verifyComplete();
+
+        verify(redisTemplate).hasKey("blacklist:fp:" + TokenFingerprint.of(token));
+    }
+
+    @Test
+    void shouldStillFindTokensStoredUnderLegacyKey() {
+        String token = makeToken("{\"sub\":\"mock@example.com\",\"jti\":\"AAECAwQFBgcICQoL\",\"exp\":9999999999}");
+        when(redisTemplate.hasKey("blacklist:jti:AAECAwQFBgcICQoL")).thenReturn(Mono.just(false));
+        when(redisTemplate.hasKey(token)).thenReturn(Mono.just(true));
+
+        StepVerifier.create(service(true).isTokenInBlackList(token)).expectNext(true).verifyComplete();
+    }
+
+    private TokenSetServiceImpl service(boolean legacyKeys) {
+        return new TokenSetServiceImpl(redisTemplate, Duration.ofMillis(50), true, legacyKeys, 256);
+    }
+
+    private String makeToken(String payload) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+}
@@ -0,0 +1,96 @@
+// Compares platform and virtual thread request handling of ms-authentication and ms-project.
+//
+// Run once per mode against the same data, then compare the p(99) of the two scenarios and the highest
+// arrival rate each mode sustains without dropped iterations:
+//
+//   VIRTUAL_THREADS_ENABLED=false ./gradlew :ms-authentication:bootRun :ms-project:bootRun
+//   k6 run -e MODE=platform --summary-export=platform.json load-tests/virtual-threads.js
+//
+//   VIRTUAL_THREADS_ENABLED=true ./gradlew :ms-authentication:bootRun :ms-project:bootRun
+//   k6 run -e MODE=virtual --summary-export=virtual.json load-tests/virtual-threads.js
+//
+// Virtual threads need the services to run on JDK 21 or newer, with the property set on an older JDK they refuse
+// to start. The build targets 17, so the virtual run needs a JDK 21 runtime. No results are recorded yet.
+// USERS is the number of confirmed accounts loadtest-<n>@example.com with password PASSWORD.
+
+import http from 'k6/http';
+import { check } from 'k6';
+
+const AUTH_URL = __ENV.AUTH_URL || 'http://localhost:8081';
+const PROJECT_URL = __ENV.PROJECT_URL || 'http://localhost:8082';
+const USERS = parseInt(__ENV.USERS || '200');
+const PASSWORD = __ENV.PASSWORD || 'password';
+
+export const options = {
+    tags: { mode: __ENV.MODE || 'unknown' },
+    scenarios: {
+        logins: {
+            executor: 'ramping-arrival-rate',
+            exec: 'login',
+            startRate: 10,
+            timeUnit: '1s',
+            preAllocatedVUs: 200,
+            maxVUs: 2000,
+            stages: [
+                { target: 100, duration: '1m' },
+                { target: 400, duration: '2m' },
+                { target: 800, duration: '2m' },
+            ],
+        },
+        projectReads: {
+            executor: 'ramping-arrival-rate',
+            exec: 'readProjects',
+            startRate: 50,
+            timeUnit: '1s',
+            preAllocatedVUs: 200,
+            maxVUs: 2000,
+            stages: [
+                { target: 500, duration: '1m' },
+                { target: 2000, duration: '2m' },
+                { target: 4000, duration: '2m' },
+            ],
+        },
+    },
+    thresholds: {
+        'http_req_duration{scenario:logins}': ['p(99)<1500'],
+        'http_req_duration{scenario:projectReads}': ['p(99)<300'],
+        'dropped_iterations': ['count<1'],
+    },
+};
+
+export function setup() {
+    const cookies = [];
+
+    for (let i = 0; i < USERS; i++) {
+        const response = loginAs(i);
+        if (response.status === 200) {
+            cookies.push({
+                accessToken: response.cookies.accessToken[0].value,
+                refreshToken: response.cookies.refreshToken[0].value,
+            });
+        }
+    }
+
+    return { cookies };
+}
+
+export function login() {
+    const response = loginAs(Math.floor(Math.random() * USERS));
+
+    check(response, { 'login succeeded': (r) => r.status === 200 });
+}
+
+export function readProjects(data) {
+    const cookies = data.cookies[Math.floor(Math.random() * data.cookies.length)];
+    const response = http.get(`${PROJECT_URL}/api/v1/project/projects`, { cookies });
+
+    check(response, { 'projects read': (r) => r.status === 200 });
+}
+
+function loginAs(user) {
+    return http.post(
+        `${AUTH_URL}/api/v1/auth/login`,
+        JSON.stringify({ email: `loadtest-${user}@example.com`, password: PASSWORD }),
+        { headers: { 'Content-Type': 'application/json' } },
+    );
+}